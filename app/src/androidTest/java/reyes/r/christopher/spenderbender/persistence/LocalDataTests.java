@@ -33,12 +33,21 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import reyes.r.christopher.spenderbender.model.EpochDay;
 import reyes.r.christopher.spenderbender.model.ExpenseModel;
+import reyes.r.christopher.spenderbender.model.Money;
 
 import static org.junit.Assert.*;
 
@@ -216,7 +225,7 @@ public class LocalDataTests {
 
         // Check that rows in the database match the expenses we tried to save
 
-        Cursor expenses = db.query(TransactionContract.TableName, null, null, null, null, null, null);
+        Cursor expenses = db.query(TransactionContract.ExpenseView.getName(), null, null, null, null, null, null);
 
         Assert.assertTrue("Cursor moves to first", expenses.moveToFirst());
 
@@ -233,9 +242,9 @@ public class LocalDataTests {
                     )
             );
 
-            double amount = expenses.getDouble(
+            long amountInMinorUnits = expenses.getLong(
                     expenses.getColumnIndexOrThrow(
-                            TransactionContract.Amount.getName()
+                            TransactionContract.AmountInMinorUnits.getName()
                     )
             );
 
@@ -287,7 +296,7 @@ public class LocalDataTests {
             }
 
             Assert.assertEquals("Saved expense name correctly", modelToCompare.getName(), name);
-            Assert.assertEquals("Saved expense amount correctly", modelToCompare.getAmount(), amount, 0.001);
+            Assert.assertEquals("Saved expense amount correctly", modelToCompare.getAmountInMinorUnits(), amountInMinorUnits);
             Assert.assertEquals("Saved expense Year Incurred correctly", modelToCompare.getYearIncurred(), yearIncurred);
             Assert.assertEquals("Saved expense Month Incurred correctly", modelToCompare.getMonthIncurred(), monthIncurred);
             Assert.assertEquals("Saved expense Day Incurred correctly", modelToCompare.getDayIncurred(), dayIncurred);
@@ -352,6 +361,24 @@ public class LocalDataTests {
         db.close();
     }
 
+    @Test
+    public void rejectsAmountsTooLargeForMoney() {
+        ExpenseModel tooMuch = new ExpenseModel("too much", Double.MAX_VALUE, 2016, Calendar.AUGUST, 22);
+        Assert.assertEquals("A single save rejects the expense", ExpenseModel.UNSAVED_EXPENSE, (long) this.databaseHandler.saveExpense(tooMuch));
+
+        List<ExpenseModel> batch = new ArrayList<>();
+        batch.add(new ExpenseModel("too much", Double.MAX_VALUE, 2016, Calendar.AUGUST, 22));
+        batch.add(new ExpenseModel("enough", 1.00, 2016, Calendar.AUGUST, 22));
+        List<ExpenseModel> failed = this.databaseHandler.saveExpenses(batch);
+        Assert.assertEquals("A batch save rejects the same expense", 1, failed.size());
+        Assert.assertEquals("too much", failed.get(0).getName());
+
+        Assert.assertEquals("Only the valid expense was saved", 1, this.databaseHandler.getAllExpenses().size());
+        SQLiteStatement countPayees = this.databaseHandler.getReadableDatabase().compileStatement("Select count(*) from " + PayeeContract.TableName);
+        Assert.assertEquals("No payee is left behind by the rejected saves", 1, countPayees.simpleQueryForLong());
+        countPayees.close();
+    }
+
     @Test
     public void canGetAllExpenses() {
         // Note: We assume that the saveExpense method has already been tested and works
@@ -425,4 +452,762 @@ public class LocalDataTests {
             Assert.assertEquals("Able to retrieve expense dayCreated correctly", matchingModel.getDayCreated(), expense.getDayCreated());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void canSaveExpensesInBatch() {
+        Assert.assertEquals("Saving an empty batch has no failures", 0, this.databaseHandler.saveExpenses(new ArrayList<ExpenseModel>()).size());
+
+        ExpenseModel validExpense1 = new ExpenseModel(
+                "Groceries",
+                54.10,
+                2016,
+                Calendar.SEPTEMBER,
+                3
+        );
+
+        ExpenseModel invalidExpenseNullName = new ExpenseModel(
+                null,
+                1.00,
+                2016,
+                Calendar.SEPTEMBER,
+                4
+        );
+
+        ExpenseModel alreadySavedExpense = new ExpenseModel(
+                "Coffee",
+                3.25,
+                2016,
+                Calendar.SEPTEMBER,
+                4,
+                2016,
+                Calendar.SEPTEMBER,
+                4,
+                77
+        );
+
+        ExpenseModel validExpense2 = new ExpenseModel(
+                "Gas",
+                30.00,
+                2016,
+                Calendar.SEPTEMBER,
+                5
+        );
+
+        List<ExpenseModel> batch = new ArrayList<>();
+        batch.add(validExpense1);
+        batch.add(invalidExpenseNullName);
+        batch.add(alreadySavedExpense);
+        batch.add(validExpense2);
+
+        List<ExpenseModel> failedExpenses = this.databaseHandler.saveExpenses(batch);
+
+        Assert.assertEquals("Only the invalid and already saved expenses fail", 2, failedExpenses.size());
+        Assert.assertSame("Failures are reported in order", invalidExpenseNullName, failedExpenses.get(0));
+        Assert.assertSame("Failures are reported in order", alreadySavedExpense, failedExpenses.get(1));
+
+        Assert.assertEquals("Failed expense keeps its UNSAVED id", ExpenseModel.UNSAVED_EXPENSE, invalidExpenseNullName.getId());
+        Assert.assertEquals("Already saved expense keeps its id", 77, alreadySavedExpense.getId());
+        Assert.assertNotEquals("Valid expense before the failure is saved", ExpenseModel.UNSAVED_EXPENSE, validExpense1.getId());
+        Assert.assertNotEquals("Valid expense after the failure is saved", ExpenseModel.UNSAVED_EXPENSE, validExpense2.getId());
+
+        List<ExpenseModel> allExpenses = this.databaseHandler.getAllExpenses();
+        Assert.assertEquals("Only the valid expenses are in the database", 2, allExpenses.size());
+
+        for (ExpenseModel expense : allExpenses) {
+            ExpenseModel matchingModel = expense.getId() == validExpense1.getId() ? validExpense1 : validExpense2;
+
+            Assert.assertEquals("Batch saved expense id correctly", matchingModel.getId(), expense.getId());
+            Assert.assertEquals("Batch saved expense name correctly", matchingModel.getName(), expense.getName());
+            Assert.assertEquals("Batch saved expense amount correctly", matchingModel.getAmount(), expense.getAmount(), 0.001);
+            Assert.assertEquals("Batch saved expense dayIncurred correctly", matchingModel.getDayIncurred(), expense.getDayIncurred());
+        }
+    }
+
+    @Test
+    public void sharedHandlerIsReferenceCounted() {
+        // Note: This never opens the shared connection, so the real database is not touched
+        Context appContext = InstrumentationRegistry.getTargetContext();
+
+        LocalDatabaseHandler shared1 = LocalDatabaseHandler.acquire(appContext);
+        LocalDatabaseHandler shared2 = LocalDatabaseHandler.acquire(appContext);
+
+        Assert.assertSame("Every caller gets the same shared handler", shared1, shared2);
+
+        LocalDatabaseHandler.shutdown();
+        shared1.release();
+
+        LocalDatabaseHandler shared3 = LocalDatabaseHandler.acquire(appContext);
+        Assert.assertSame("Shared handler stays alive while it is still referenced", shared2, shared3);
+
+        shared2.release();
+        shared3.release();
+
+        boolean caughtCorrectException = Boolean.FALSE;
+        try {
+            shared1.release();
+        } catch (IllegalStateException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+        Assert.assertTrue("Cannot release the shared handler more times than it was acquired", caughtCorrectException);
+
+        LocalDatabaseHandler.shutdown();
+
+        LocalDatabaseHandler shared4 = LocalDatabaseHandler.acquire(appContext);
+        Assert.assertNotSame("Shutting down with no references discards the shared handler", shared1, shared4);
+        shared4.release();
+        LocalDatabaseHandler.shutdown();
+    }
+
+    @Test
+    public void canPageThroughExpenses() {
+        ExpensePage emptyPage = this.databaseHandler.getExpensePage(null, 10);
+        Assert.assertEquals("When there are no expenses, the first page is empty", 0, emptyPage.getExpenses().size());
+        Assert.assertFalse("When there are no expenses, there is no next page", emptyPage.hasNextPage());
+
+        // Save out of order, with two expenses sharing a date so the Id breaks the tie
+        List<ExpenseModel> batch = new ArrayList<>();
+        batch.add(new ExpenseModel("march", 3.00, 2016, Calendar.MARCH, 1));
+        batch.add(new ExpenseModel("january", 1.00, 2016, Calendar.JANUARY, 31));
+        batch.add(new ExpenseModel("last year", 0.50, 2015, Calendar.DECEMBER, 31));
+        batch.add(new ExpenseModel("february a", 2.00, 2016, Calendar.FEBRUARY, 14));
+        batch.add(new ExpenseModel("february b", 2.50, 2016, Calendar.FEBRUARY, 14));
+        Assert.assertEquals("Test set up incorrectly: all expenses should save", 0, this.databaseHandler.saveExpenses(batch).size());
+
+        String[] expectedOrder = {"last year", "january", "february a", "february b", "march"};
+
+        List<String> pagedNames = new ArrayList<>();
+        ExpensePage.Key nextKey = null;
+        int pageCount = 0;
+
+        do {
+            ExpensePage page = this.databaseHandler.getExpensePage(nextKey, 2);
+            Assert.assertTrue("Pages never exceed the page size", page.getExpenses().size() <= 2);
+
+            for (ExpenseModel expense : page.getExpenses()) {
+                pagedNames.add(expense.getName());
+            }
+
+            nextKey = page.getNextKey();
+            pageCount++;
+        } while (nextKey != null);
+
+        Assert.assertEquals("Five expenses in pages of two takes three pages", 3, pageCount);
+        Assert.assertEquals("Every expense is returned exactly once", expectedOrder.length, pagedNames.size());
+
+        for (int i = 0; i < expectedOrder.length; i++) {
+            Assert.assertEquals("Expenses are ordered by date incurred and then by Id", expectedOrder[i], pagedNames.get(i));
+        }
+
+        ExpensePage exactPage = this.databaseHandler.getExpensePage(null, 5);
+        Assert.assertEquals("A page exactly the size of the table holds everything", 5, exactPage.getExpenses().size());
+        Assert.assertFalse("A page exactly the size of the table has no next page", exactPage.hasNextPage());
+    }
+
+    @Test
+    public void canStreamExpenses() {
+        ExpenseCursor emptyCursor = this.databaseHandler.openExpenseCursor();
+        Assert.assertFalse("When there are no expenses, the cursor has nothing to visit", emptyCursor.moveToNext());
+        emptyCursor.close();
+
+        List<ExpenseModel> batch = new ArrayList<>();
+        batch.add(new ExpenseModel("second", 2.25, 2016, Calendar.MAY, 2));
+        batch.add(new ExpenseModel("first", 1.50, 2016, Calendar.MAY, 1));
+        Assert.assertEquals("Test set up incorrectly: all expenses should save", 0, this.databaseHandler.saveExpenses(batch).size());
+
+        ExpenseCursor expenses = this.databaseHandler.openExpenseCursor();
+        Assert.assertEquals("Cursor visits every expense", 2, expenses.getCount());
+
+        Assert.assertTrue("Cursor moves to the first expense", expenses.moveToNext());
+        Assert.assertEquals("Cursor visits expenses in date order", "first", expenses.getName());
+        Assert.assertEquals("Cursor reads the amount", 1.50, expenses.getAmount(), 0.001);
+        Assert.assertEquals("Cursor reads the Id", batch.get(1).getId(), expenses.getId());
+        Assert.assertEquals("Cursor reads the day incurred", 1, expenses.getDayIncurred());
+
+        ExpenseModel copy = expenses.toExpenseModel();
+
+        Assert.assertTrue("Cursor moves to the second expense", expenses.moveToNext());
+        Assert.assertEquals("Cursor visits expenses in date order", "second", expenses.getName());
+        Assert.assertFalse("Cursor stops after the last expense", expenses.moveToNext());
+
+        expenses.close();
+
+        Assert.assertEquals("Copied expense keeps its values after the cursor moves on", "first", copy.getName());
+        Assert.assertEquals("Copied expense keeps its values after the cursor moves on", batch.get(1).getId(), copy.getId());
+    }
+
+    @Test
+    public void databaseCreatesIndexes() {
+        SQLiteDatabase db = this.databaseHandler.getReadableDatabase();
+
+        HashSet<String> indexNames = new HashSet<>();
+
+        Cursor results = db.rawQuery("PRAGMA index_list('" + TransactionContract.TableName + "');", null);
+        int name = results.getColumnIndexOrThrow("name");
+        while (results.moveToNext()) {
+            indexNames.add(results.getString(name));
+        }
+        results.close();
+
+        for (SQLiteIndexDefinition index : TransactionContract.schema.getIndexes()) {
+            Assert.assertTrue("Index [" + index.getName() + "] should exist", indexNames.contains(index.getName()));
+        }
+
+        // onCreate restores missing indexes on an existing table
+        for (SQLiteIndexDefinition index : TransactionContract.schema.getIndexes()) {
+            db.execSQL("DROP INDEX " + index.getName() + ";");
+        }
+
+        this.databaseHandler.onCreate(db);
+
+        indexNames.clear();
+        results = db.rawQuery("PRAGMA index_list('" + TransactionContract.TableName + "');", null);
+        name = results.getColumnIndexOrThrow("name");
+        while (results.moveToNext()) {
+            indexNames.add(results.getString(name));
+        }
+        results.close();
+
+        for (SQLiteIndexDefinition index : TransactionContract.schema.getIndexes()) {
+            Assert.assertTrue("Index [" + index.getName() + "] should exist after onCreate", indexNames.contains(index.getName()));
+        }
+    }
+
+    @Test
+    public void upgradeFromVersion2() {
+        SQLiteDatabase db = this.databaseHandler.getWritableDatabase();
+
+        // Recreate the version 2 layout, where amounts were REAL
+        db.execSQL("DROP TABLE " + TransactionContract.TableName + ";");
+        db.execSQL("CREATE TABLE " + TransactionContract.TableName + " ( _id INTEGER PRIMARY KEY AUTOINCREMENT UNIQUE NOT NULL, name TEXT NOT NULL, amount REAL NOT NULL, "
+                + "incurredyear INTEGER NOT NULL, incurredmonth INTEGER NOT NULL, incurredday INTEGER NOT NULL, "
+                + "createdyear INTEGER NOT NULL, createdmonth INTEGER NOT NULL, createdday INTEGER NOT NULL );");
+
+        // More rows than a single migration batch, with a gap in the Ids.
+        // 0.285 and 1.005 are just below their halfway points in binary, so SQLite's ROUND() would round them down
+        int legacyRowCount = 1203;
+        double[] legacyAmounts = {12.34, 0.1, -5.5, 1000000.01, 0.285, 1.005, -0.285};
+
+        // Note: month 1 is February, since months are stored like Calendar
+        db.beginTransaction();
+        for (int i = 1; i <= legacyRowCount; i++) {
+            long id = i < 100 ? i : i + 10;
+            db.execSQL("INSERT INTO " + TransactionContract.TableName + " VALUES ( ?, ?, ?, 2016, 1, 15, 2016, 1, 16 );",
+                    new Object[] {id, "legacy " + i, legacyAmounts[i % legacyAmounts.length]});
+        }
+        db.setTransactionSuccessful();
+        db.endTransaction();
+
+        this.databaseHandler.onUpgrade(db, 2, LocalDatabaseHandler.DatabaseVersion);
+
+        SQLiteStatement countStar = db.compileStatement("Select count(*) from " + TransactionContract.TableName);
+        Assert.assertEquals("Every legacy row is migrated", legacyRowCount, countStar.simpleQueryForLong());
+        countStar.close();
+
+        ExpenseCursor expenses = this.databaseHandler.openExpenseCursor();
+        int i = 0;
+        while (expenses.moveToNext()) {
+            i++;
+            long expectedId = i < 100 ? i : i + 10;
+
+            Assert.assertEquals("Migrated rows keep their Ids", expectedId, expenses.getId());
+            Assert.assertEquals("Migrated rows keep their names", "legacy " + i, expenses.getName());
+            Assert.assertEquals("Migrated amounts round the same way as Money",
+                    Money.toMinorUnits(legacyAmounts[i % legacyAmounts.length]), expenses.getAmountInMinorUnits());
+            Assert.assertEquals("Migrated rows keep their dates", 16, expenses.getDayCreated());
+            Assert.assertEquals("Migrated rows get their epoch day filled in", EpochDay.of(2016, Calendar.FEBRUARY, 15), expenses.getEpochDayIncurred());
+        }
+        expenses.close();
+
+        Assert.assertEquals("Monthly rollup is built from the migrated rows", legacyRowCount,
+                this.databaseHandler.getMonthlyTotal(2016, Calendar.FEBRUARY).getExpenseCount());
+        Assert.assertEquals("Search index is built from the migrated rows", 1,
+                this.databaseHandler.searchExpenses("legacy 1203", 10).size());
+
+        SQLiteStatement countPayees = db.compileStatement("Select count(*) from " + PayeeContract.TableName);
+        Assert.assertEquals("Every distinct legacy name becomes a payee", legacyRowCount, countPayees.simpleQueryForLong());
+        countPayees.close();
+
+        ExpenseModel newExpense = new ExpenseModel("after upgrade", 1.00, 2016, Calendar.MARCH, 3);
+        long newId = this.databaseHandler.saveExpense(newExpense);
+        Assert.assertTrue("New Ids continue after the migrated ones", newId > legacyRowCount + 10);
+    }
+
+    @Test
+    public void upgradeFromVersion2SetsAsideAmountsMoneyCannotHold() {
+        SQLiteDatabase db = this.databaseHandler.getWritableDatabase();
+
+        db.execSQL("DROP TABLE " + TransactionContract.TableName + ";");
+        db.execSQL("CREATE TABLE " + TransactionContract.TableName + " ( _id INTEGER PRIMARY KEY AUTOINCREMENT UNIQUE NOT NULL, name TEXT NOT NULL, amount REAL NOT NULL, "
+                + "incurredyear INTEGER NOT NULL, incurredmonth INTEGER NOT NULL, incurredday INTEGER NOT NULL, "
+                + "createdyear INTEGER NOT NULL, createdmonth INTEGER NOT NULL, createdday INTEGER NOT NULL );");
+
+        // Two huge amounts and a normal one, all in February, which the rollup would SUM() together
+        String insert = "INSERT INTO " + TransactionContract.TableName + " VALUES ( ?, ?, ?, 2016, 1, 15, 2016, 1, 16 );";
+        db.execSQL(insert, new Object[] {1, "yacht", 1e300});
+        db.execSQL(insert, new Object[] {2, "island", -1e300});
+        db.execSQL(insert, new Object[] {3, "lunch", 12.34});
+
+        this.databaseHandler.onUpgrade(db, 2, LocalDatabaseHandler.DatabaseVersion);
+
+        List<ExpenseModel> migrated = this.databaseHandler.getAllExpenses();
+        Assert.assertEquals("Only amounts Money can hold are migrated", 1, migrated.size());
+        Assert.assertEquals(3, migrated.get(0).getId());
+        Assert.assertEquals("The rollup is built without the huge amounts", 1234,
+                this.databaseHandler.getMonthlyTotal(2016, Calendar.FEBRUARY).getTotalInMinorUnits());
+
+        Cursor setAside = db.rawQuery("SELECT _id, name, amount FROM " + TransactionTableMigrator.UnmigratedTableName + " ORDER BY _id;", null);
+        try {
+            Assert.assertEquals("The other rows are set aside", 2, setAside.getCount());
+            setAside.moveToFirst();
+            Assert.assertEquals("yacht", setAside.getString(1));
+            Assert.assertEquals("Set aside rows keep their amounts", 1e300, setAside.getDouble(2), 0);
+        } finally {
+            setAside.close();
+        }
+    }
+
+    @Test
+    public void canGetExpensesBetween() {
+        List<ExpenseModel> batch = new ArrayList<>();
+        batch.add(new ExpenseModel("before", 1.00, 2016, Calendar.JANUARY, 31));
+        batch.add(new ExpenseModel("first day", 2.00, 2016, Calendar.FEBRUARY, 1));
+        batch.add(new ExpenseModel("leap day", 3.00, 2016, Calendar.FEBRUARY, 29));
+        batch.add(new ExpenseModel("after", 4.00, 2016, Calendar.MARCH, 1));
+        Assert.assertEquals("Test set up incorrectly: all expenses should save", 0, this.databaseHandler.saveExpenses(batch).size());
+
+        Assert.assertEquals("Saving an expense stores its epoch day", EpochDay.of(2016, Calendar.FEBRUARY, 29), batch.get(2).getEpochDayIncurred());
+
+        List<ExpenseModel> february = this.databaseHandler.getExpensesBetween(
+                EpochDay.of(2016, Calendar.FEBRUARY, 1),
+                EpochDay.of(2016, Calendar.FEBRUARY, 29)
+        );
+
+        Assert.assertEquals("Range includes both of its ends and nothing outside", 2, february.size());
+        Assert.assertEquals("Range is ordered by date", "first day", february.get(0).getName());
+        Assert.assertEquals("Range is ordered by date", "leap day", february.get(1).getName());
+
+        Assert.assertEquals("Single day range works", 1, this.databaseHandler.getExpensesBetween(
+                EpochDay.of(2016, Calendar.MARCH, 1), EpochDay.of(2016, Calendar.MARCH, 1)).size());
+
+        Assert.assertEquals("Empty range returns nothing", 0, this.databaseHandler.getExpensesBetween(
+                EpochDay.of(2016, Calendar.MARCH, 1), EpochDay.of(2016, Calendar.FEBRUARY, 1)).size());
+    }
+
+    @Test
+    public void monthlyRollupFollowsChanges() {
+        List<ExpenseModel> batch = new ArrayList<>();
+        batch.add(new ExpenseModel("small", 1.25, 2016, Calendar.JANUARY, 3));
+        batch.add(new ExpenseModel("large", 40.00, 2016, Calendar.JANUARY, 20));
+        batch.add(new ExpenseModel("middle", 7.50, 2016, Calendar.JANUARY, 31));
+        batch.add(new ExpenseModel("february", 2.00, 2016, Calendar.FEBRUARY, 1));
+        Assert.assertEquals("Test set up incorrectly: all expenses should save", 0, this.databaseHandler.saveExpenses(batch).size());
+        this.databaseHandler.saveExpense(new ExpenseModel("next year", 3.00, 2017, Calendar.JANUARY, 1));
+
+        ExpenseTotal january = this.databaseHandler.getMonthlyTotal(2016, Calendar.JANUARY);
+        Assert.assertEquals("Rollup counts the month's expenses", 3, january.getExpenseCount());
+        Assert.assertEquals("Rollup totals the month's expenses", 4875, january.getTotalInMinorUnits());
+        Assert.assertEquals("Rollup tracks the smallest amount", 125, january.getMinimumInMinorUnits());
+        Assert.assertEquals("Rollup tracks the largest amount", 4000, january.getMaximumInMinorUnits());
+
+        ExpenseTotal year = this.databaseHandler.getYearlyTotal(2016);
+        Assert.assertEquals("Yearly total combines its months", 4, year.getExpenseCount());
+        Assert.assertEquals("Yearly total combines its months", 5075, year.getTotalInMinorUnits());
+
+        Assert.assertTrue("Months without expenses are empty", this.databaseHandler.getMonthlyTotal(2016, Calendar.MARCH).isEmpty());
+
+        SQLiteDatabase db = this.databaseHandler.getWritableDatabase();
+
+        // Removing the largest expense finds the next largest
+        db.delete(TransactionContract.TableName, TransactionContract.PrimaryKey.getName() + " = ?",
+                new String[] {String.valueOf(batch.get(1).getId())});
+        january = this.databaseHandler.getMonthlyTotal(2016, Calendar.JANUARY);
+        Assert.assertEquals("Rollup follows deletes", 2, january.getExpenseCount());
+        Assert.assertEquals("Rollup follows deletes", 875, january.getTotalInMinorUnits());
+        Assert.assertEquals("Rollup recomputes the largest amount", 750, january.getMaximumInMinorUnits());
+
+        // Moving the smallest expense to February updates both months
+        db.execSQL("UPDATE " + TransactionContract.TableName + " SET " + TransactionContract.MonthIncurred.getName() + " = ? WHERE "
+                + TransactionContract.PrimaryKey.getName() + " = ?", new Object[] {Calendar.FEBRUARY, batch.get(0).getId()});
+        january = this.databaseHandler.getMonthlyTotal(2016, Calendar.JANUARY);
+        ExpenseTotal february = this.databaseHandler.getMonthlyTotal(2016, Calendar.FEBRUARY);
+        Assert.assertEquals("Rollup follows updates out of a month", 1, january.getExpenseCount());
+        Assert.assertEquals("Rollup recomputes the smallest amount", 750, january.getMinimumInMinorUnits());
+        Assert.assertEquals("Rollup follows updates into a month", 2, february.getExpenseCount());
+        Assert.assertEquals("Rollup follows updates into a month", 325, february.getTotalInMinorUnits());
+        Assert.assertEquals("Rollup follows updates into a month", 125, february.getMinimumInMinorUnits());
+
+        // Emptying a month removes its row
+        db.delete(TransactionContract.TableName, TransactionContract.PrimaryKey.getName() + " = ?",
+                new String[] {String.valueOf(batch.get(2).getId())});
+        Assert.assertTrue("Rollup drops months with no expenses left", this.databaseHandler.getMonthlyTotal(2016, Calendar.JANUARY).isEmpty());
+
+        // A rebuild agrees with the incrementally maintained rollup
+        this.databaseHandler.rebuildMonthlyRollup();
+        february = this.databaseHandler.getMonthlyTotal(2016, Calendar.FEBRUARY);
+        Assert.assertEquals("Rebuilt rollup matches", 2, february.getExpenseCount());
+        Assert.assertEquals("Rebuilt rollup matches", 325, february.getTotalInMinorUnits());
+        Assert.assertEquals("Rebuilt rollup matches", 200, february.getMaximumInMinorUnits());
+        Assert.assertTrue("Rebuilt rollup matches", this.databaseHandler.getMonthlyTotal(2016, Calendar.JANUARY).isEmpty());
+    }
+
+    @Test
+    public void databaseUsesWriteAheadLogging() {
+        Cursor journalMode = this.databaseHandler.getWritableDatabase().rawQuery("PRAGMA journal_mode;", null);
+        Assert.assertTrue("Journal mode can be read", journalMode.moveToFirst());
+        Assert.assertEquals("Database uses write-ahead logging", "wal", journalMode.getString(0).toLowerCase(Locale.US));
+        journalMode.close();
+    }
+
+    @Test
+    public void canQueueExpenses() throws Exception {
+        final int expenseCount = 600;
+
+        final List<Long> callbackIds = Collections.synchronizedList(new ArrayList<Long>());
+        final CountDownLatch callbacksDone = new CountDownLatch(expenseCount);
+        WriteCallback<Long> callback = new WriteCallback<Long>() {
+            @Override
+            public void onWritten(Long result) {
+                callbackIds.add(result);
+                callbacksDone.countDown();
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                callbacksDone.countDown();
+            }
+        };
+
+        List<ExpenseModel> expenses = new ArrayList<>(expenseCount);
+        List<Future<Long>> savedIds = new ArrayList<>(expenseCount);
+        for (int i = 0; i < expenseCount; i++) {
+            ExpenseModel expense = new ExpenseModel("queued " + i, i, 2016, Calendar.MAY, 1 + i % 28);
+            expenses.add(expense);
+            savedIds.add(this.databaseHandler.queueExpense(expense, callback));
+        }
+
+        HashSet<Long> distinctIds = new HashSet<>();
+        for (int i = 0; i < expenseCount; i++) {
+            long id = savedIds.get(i).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals("Queued expense gets the Id it was saved with", id, expenses.get(i).getId());
+            distinctIds.add(id);
+        }
+        Assert.assertEquals("Every queued expense gets its own Id", expenseCount, distinctIds.size());
+
+        Assert.assertTrue("Every callback is called", callbacksDone.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals("Callbacks are told the new Ids", distinctIds, new HashSet<>(callbackIds));
+
+        Assert.assertEquals("Every queued expense is saved", expenseCount,
+                this.databaseHandler.getMonthlyTotal(2016, Calendar.MAY).getExpenseCount());
+
+        // Closing the handler waits for queued writes
+        ExpenseModel lastExpense = new ExpenseModel("last", 1.00, 2016, Calendar.JUNE, 1);
+        Future<Long> lastId = this.databaseHandler.queueExpense(lastExpense);
+        this.databaseHandler.close();
+        Assert.assertTrue("Closing commits queued writes first", lastId.isDone());
+        Assert.assertEquals("Closing commits queued writes first", lastId.get(), Long.valueOf(lastExpense.getId()));
+    }
+
+    @Test
+    public void canSearchExpenses() {
+        List<ExpenseModel> batch = new ArrayList<>();
+        batch.add(new ExpenseModel("Coffee", 3.50, 2016, Calendar.MARCH, 1));
+        batch.add(new ExpenseModel("Coffee shop coffee", 4.00, 2016, Calendar.MARCH, 2));
+        batch.add(new ExpenseModel("Joe's Cafe", 6.25, 2016, Calendar.MARCH, 3));
+        batch.add(new ExpenseModel("coffee beans", 12.00, 2016, Calendar.MARCH, 4));
+        batch.add(new ExpenseModel("Orange juice", 2.00, 2016, Calendar.MARCH, 5));
+        Assert.assertEquals("Test set up incorrectly: all expenses should save", 0, this.databaseHandler.saveExpenses(batch).size());
+
+        List<ExpenseModel> matches = this.databaseHandler.searchExpenses("COFF", 10);
+        Assert.assertEquals("Search matches word prefixes regardless of case", 3, matches.size());
+        Assert.assertEquals("Names matching more often rank first", "Coffee shop coffee", matches.get(0).getName());
+        Assert.assertEquals("Shorter names rank before longer ones", "Coffee", matches.get(1).getName());
+        Assert.assertEquals("Matches are complete expenses", batch.get(1).getId(), matches.get(0).getId());
+
+        Assert.assertEquals("Limit caps the number of matches", 1, this.databaseHandler.searchExpenses("coffee", 1).size());
+        Assert.assertEquals("Every word must match", 1, this.databaseHandler.searchExpenses("coffee be", 10).size());
+        Assert.assertEquals("Punctuation in the query is ignored", "Joe's Cafe", this.databaseHandler.searchExpenses("joe's caf", 10).get(0).getName());
+        Assert.assertEquals("Query operators are searched as words", 1, this.databaseHandler.searchExpenses("OR", 10).size());
+        Assert.assertEquals("Query without words finds nothing", 0, this.databaseHandler.searchExpenses(" \"* ", 10).size());
+
+        // The search index follows changes to the table
+        SQLiteDatabase db = this.databaseHandler.getWritableDatabase();
+        db.execSQL("UPDATE " + PayeeContract.TableName + " SET " + PayeeContract.CanonicalName.getName() + " = 'Tea' WHERE "
+                + PayeeContract.PrimaryKey.getName() + " = ( SELECT " + TransactionContract.PayeeId.getName() + " FROM " + TransactionContract.TableName
+                + " WHERE " + TransactionContract.PrimaryKey.getName() + " = ? )", new Object[] {batch.get(0).getId()});
+        db.delete(TransactionContract.TableName, TransactionContract.PrimaryKey.getName() + " = ?",
+                new String[] {String.valueOf(batch.get(3).getId())});
+
+        Assert.assertEquals("Search follows renames and deletes", 1, this.databaseHandler.searchExpenses("coffee", 10).size());
+        Assert.assertEquals("Search follows renames", batch.get(0).getId(), this.databaseHandler.searchExpenses("tea", 10).get(0).getId());
+    }
+
+    @Test
+    public void expensesShareTheirPayee() {
+        List<ExpenseModel> batch = new ArrayList<>();
+        batch.add(new ExpenseModel("Corner Store", 3.00, 2016, Calendar.APRIL, 1));
+        batch.add(new ExpenseModel("  corner   STORE ", 4.00, 2016, Calendar.APRIL, 2));
+        batch.add(new ExpenseModel("Bakery", 5.00, 2016, Calendar.APRIL, 3));
+        Assert.assertEquals("Test set up incorrectly: all expenses should save", 0, this.databaseHandler.saveExpenses(batch).size());
+
+        ExpenseModel single = new ExpenseModel("CORNER STORE", 6.00, 2016, Calendar.APRIL, 4);
+        this.databaseHandler.saveExpense(single);
+
+        SQLiteDatabase db = this.databaseHandler.getReadableDatabase();
+
+        SQLiteStatement countPayees = db.compileStatement("Select count(*) from " + PayeeContract.TableName);
+        Assert.assertEquals("Names differing only in case and spacing share a payee", 2, countPayees.simpleQueryForLong());
+        countPayees.close();
+
+        SQLiteStatement countPayeeIds = db.compileStatement("Select count(distinct " + TransactionContract.PayeeId.getName() + ") from " + TransactionContract.TableName);
+        Assert.assertEquals("Expenses refer to their payee by Id", 2, countPayeeIds.simpleQueryForLong());
+        countPayeeIds.close();
+
+        for (ExpenseModel expense : this.databaseHandler.getExpensesBetween(EpochDay.of(2016, Calendar.APRIL, 1), EpochDay.of(2016, Calendar.APRIL, 30))) {
+            if (expense.getId() != batch.get(2).getId()) {
+                Assert.assertEquals("Expenses read back the payee's name as first entered", "Corner Store", expense.getName());
+            }
+        }
+
+        // A payee the cache knows about, but which a rolled back transaction never kept
+        db = this.databaseHandler.getWritableDatabase();
+        db.beginTransaction();
+        ExpenseModel rolledBack = new ExpenseModel("Florist", 7.00, 2016, Calendar.APRIL, 5);
+        this.databaseHandler.saveExpense(rolledBack, db);
+        db.endTransaction();
+        this.databaseHandler.forgetPayees();
+
+        ExpenseModel florist = new ExpenseModel("florist", 8.00, 2016, Calendar.APRIL, 6);
+        Assert.assertNotEquals("Payees are added again after a rollback", ExpenseModel.UNSAVED_EXPENSE, (long) this.databaseHandler.saveExpense(florist));
+        Assert.assertEquals("Payees are added again after a rollback", "florist", this.databaseHandler.searchExpenses("florist", 10).get(0).getName());
+    }
+
+    @Test
+    public void canRestoreSnapshot() throws Exception {
+        List<ExpenseModel> batch = new ArrayList<>();
+        batch.add(new ExpenseModel("Coffee", 3.50, 2016, Calendar.MAY, 1));
+        batch.add(new ExpenseModel("Caf\u00e9 \"Cr\u00e8me\"", -1.25, 2016, Calendar.MAY, 2));
+        batch.add(new ExpenseModel("coffee", 4.00, 2016, Calendar.JUNE, 3));
+        Assert.assertEquals("Test set up incorrectly: all expenses should save", 0, this.databaseHandler.saveExpenses(batch).size());
+
+        File cacheDir = InstrumentationRegistry.getTargetContext().getCacheDir();
+        File snapshot = new File(cacheDir, "localDataTest_snapshot");
+        Assert.assertEquals("Every expense is written", 3, this.databaseHandler.writeSnapshot(snapshot));
+
+        // Changes after the snapshot are undone by restoring it
+        this.databaseHandler.saveExpense(new ExpenseModel("Tea", 2.00, 2016, Calendar.MAY, 4));
+        SQLiteDatabase db = this.databaseHandler.getWritableDatabase();
+        db.delete(TransactionContract.TableName, TransactionContract.PrimaryKey.getName() + " = ?",
+                new String[] {String.valueOf(batch.get(0).getId())});
+
+        Assert.assertEquals("Every expense is restored", 3, this.databaseHandler.restoreSnapshot(snapshot));
+
+        List<ExpenseModel> restored = this.databaseHandler.getAllExpenses();
+        Assert.assertEquals("Only the snapshot's expenses remain", 3, restored.size());
+        for (int i = 0; i < batch.size(); i++) {
+            ExpenseModel expected = batch.get(i);
+            ExpenseModel actual = null;
+            for (ExpenseModel expense : restored) {
+                if (expense.getId() == expected.getId()) {
+                    actual = expense;
+                }
+            }
+            Assert.assertNotNull("Expenses keep their Ids", actual);
+            Assert.assertEquals(expected.getName().equals("coffee") ? "Coffee" : expected.getName(), actual.getName());
+            Assert.assertEquals(expected.getAmountInMinorUnits(), actual.getAmountInMinorUnits());
+            Assert.assertEquals(expected.getEpochDayIncurred(), actual.getEpochDayIncurred());
+            Assert.assertEquals(expected.getYearCreated(), actual.getYearCreated());
+            Assert.assertEquals(expected.getMonthCreated(), actual.getMonthCreated());
+            Assert.assertEquals(expected.getDayCreated(), actual.getDayCreated());
+        }
+
+        Assert.assertEquals("The rollup is rebuilt", 2, this.databaseHandler.getMonthlyTotal(2016, Calendar.MAY).getExpenseCount());
+        Assert.assertEquals("The search index is rebuilt", 2, this.databaseHandler.searchExpenses("coffee", 10).size());
+        Assert.assertEquals("Search doesn't find expenses which weren't restored", 0, this.databaseHandler.searchExpenses("tea", 10).size());
+
+        this.databaseHandler.saveExpense(new ExpenseModel("Coffee", 5.00, 2016, Calendar.MAY, 5));
+        Assert.assertEquals("Triggers are recreated", 3, this.databaseHandler.getMonthlyTotal(2016, Calendar.MAY).getExpenseCount());
+        Assert.assertEquals("Restored payees are reused", 3, this.databaseHandler.searchExpenses("coffee", 10).size());
+
+        // Damage one byte of an expense record
+        RandomAccessFile damaged = new RandomAccessFile(snapshot, "rw");
+        damaged.seek(damaged.length() - ExpenseSnapshot.TrailerSize - 1);
+        int original = damaged.read();
+        damaged.seek(damaged.length() - ExpenseSnapshot.TrailerSize - 1);
+        damaged.write(original ^ 0xFF);
+        damaged.close();
+
+        try {
+            this.databaseHandler.restoreSnapshot(snapshot);
+            Assert.fail("A damaged snapshot must not be restored");
+        } catch (IOException e) {
+            Assert.assertEquals("A damaged snapshot leaves the expenses alone", 4, this.databaseHandler.getAllExpenses().size());
+        }
+
+        Assert.assertTrue(snapshot.delete());
+    }
+
+    @Test
+    public void canUpdateAndDeleteExpenses() {
+        ExpenseModel coffee = new ExpenseModel("Coffee", 3.50, 2016, Calendar.JULY, 1);
+        ExpenseModel bagel = new ExpenseModel("Bagel", 2.25, 2016, Calendar.JULY, 1);
+        this.databaseHandler.saveExpense(coffee);
+        this.databaseHandler.saveExpense(bagel);
+
+        try {
+            this.databaseHandler.saveExpense(coffee);
+            Assert.fail("Saved expenses are changed with updateExpense()");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        // Count the rows each statement changes, to show that unchanged expenses aren't written
+        SQLiteDatabase db = this.databaseHandler.getWritableDatabase();
+        SQLiteStatement changes = db.compileStatement("SELECT total_changes()");
+        long changesBefore = changes.simpleQueryForLong();
+        Assert.assertTrue("Unchanged expenses still exist", this.databaseHandler.updateExpense(coffee));
+        Assert.assertEquals("Unchanged expenses aren't written", changesBefore, changes.simpleQueryForLong());
+
+        ExpenseModel tea = new ExpenseModel("Tea", 1.75, 2016, Calendar.AUGUST, 2,
+                coffee.getYearCreated(), coffee.getMonthCreated(), coffee.getDayCreated(), coffee.getId());
+        Assert.assertTrue(this.databaseHandler.updateExpense(tea));
+        changes.close();
+
+        List<ExpenseModel> july = this.databaseHandler.getExpensesBetween(EpochDay.of(2016, Calendar.JULY, 1), EpochDay.of(2016, Calendar.JULY, 31));
+        Assert.assertEquals("Moving the date moves the expense out of its old range", 1, july.size());
+        List<ExpenseModel> august = this.databaseHandler.getExpensesBetween(EpochDay.of(2016, Calendar.AUGUST, 1), EpochDay.of(2016, Calendar.AUGUST, 31));
+        Assert.assertEquals("Moving the date moves the expense into its new range", 1, august.size());
+        Assert.assertEquals(coffee.getId(), august.get(0).getId());
+        Assert.assertEquals("Tea", august.get(0).getName());
+        Assert.assertEquals(175, august.get(0).getAmountInMinorUnits());
+
+        Assert.assertEquals("The rollup follows updates", 1, this.databaseHandler.getMonthlyTotal(2016, Calendar.JULY).getExpenseCount());
+        Assert.assertEquals("The rollup follows updates", 175, this.databaseHandler.getMonthlyTotal(2016, Calendar.AUGUST).getTotalInMinorUnits());
+        Assert.assertEquals("Search follows the new name", coffee.getId(), this.databaseHandler.searchExpenses("tea", 10).get(0).getId());
+        Assert.assertEquals("Search forgets the old name", 0, this.databaseHandler.searchExpenses("coffee", 10).size());
+
+        Assert.assertTrue(this.databaseHandler.deleteExpense(bagel.getId()));
+        Assert.assertFalse("Deleted expenses can't be deleted again", this.databaseHandler.deleteExpense(bagel.getId()));
+        Assert.assertFalse("Deleted expenses can't be updated", this.databaseHandler.updateExpense(bagel));
+        Assert.assertEquals(1, this.databaseHandler.getAllExpenses().size());
+        Assert.assertEquals("The rollup follows deletes", ExpenseTotal.NONE.getExpenseCount(), this.databaseHandler.getMonthlyTotal(2016, Calendar.JULY).getExpenseCount());
+    }
+
+    @Test
+    public void updatesKeepThePayeeSpelling() {
+        ExpenseModel sushi = new ExpenseModel("Sushi", 14.50, 2016, Calendar.JULY, 1);
+        this.databaseHandler.saveExpense(sushi);
+
+        ExpenseModel shouted = new ExpenseModel("SUSHI", 16.00, 2016, Calendar.JULY, 1,
+                sushi.getYearCreated(), sushi.getMonthCreated(), sushi.getDayCreated(), sushi.getId());
+        Assert.assertTrue("Other changes are still saved", this.databaseHandler.updateExpense(shouted));
+
+        ExpenseModel saved = this.databaseHandler.getAllExpenses().get(0);
+        Assert.assertEquals(1600, saved.getAmountInMinorUnits());
+        Assert.assertEquals("Changing only the case doesn't rename the payee", "Sushi", saved.getName());
+    }
+
+    @Test
+    public void changeJournalFollowsChanges() throws Exception {
+        Assert.assertEquals("Nothing has changed yet", 0, this.databaseHandler.getLatestChangeSequence());
+        Assert.assertEquals(0, this.databaseHandler.getChangesSince(0, 100).size());
+
+        ExpenseModel coffee = new ExpenseModel("Coffee", 3.50, 2016, Calendar.SEPTEMBER, 1);
+        ExpenseModel bagel = new ExpenseModel("Bagel", 2.25, 2016, Calendar.SEPTEMBER, 1);
+        this.databaseHandler.saveExpense(coffee);
+        this.databaseHandler.saveExpense(bagel);
+        long afterAdding = this.databaseHandler.getLatestChangeSequence();
+
+        ExpenseModel tea = new ExpenseModel("Tea", 1.75, 2016, Calendar.SEPTEMBER, 2,
+                coffee.getYearCreated(), coffee.getMonthCreated(), coffee.getDayCreated(), coffee.getId());
+        this.databaseHandler.updateExpense(tea);
+        this.databaseHandler.deleteExpense(bagel.getId());
+
+        List<ExpenseChange> changes = this.databaseHandler.getChangesSince(0, 100);
+        Assert.assertEquals("Every change is recorded", 4, changes.size());
+        Assert.assertEquals(ExpenseChange.Type.ADDED, changes.get(0).getType());
+        Assert.assertEquals(coffee.getId(), changes.get(0).getExpenseId());
+        Assert.assertEquals(ExpenseChange.Type.ADDED, changes.get(1).getType());
+        Assert.assertEquals(ExpenseChange.Type.UPDATED, changes.get(2).getType());
+        Assert.assertEquals(coffee.getId(), changes.get(2).getExpenseId());
+        Assert.assertEquals(ExpenseChange.Type.DELETED, changes.get(3).getType());
+        Assert.assertEquals(bagel.getId(), changes.get(3).getExpenseId());
+        for (int i = 1; i < changes.size(); i++) {
+            Assert.assertTrue("Sequence numbers increase", changes.get(i).getSequence() > changes.get(i - 1).getSequence());
+        }
+        Assert.assertEquals(changes.get(3).getSequence(), this.databaseHandler.getLatestChangeSequence());
+
+        Assert.assertEquals("Changes can be read from any point", 2, this.databaseHandler.getChangesSince(afterAdding, 100).size());
+        Assert.assertEquals("Changes can be read a page at a time", 1, this.databaseHandler.getChangesSince(afterAdding, 1).size());
+
+        // A rolled back change is never recorded
+        SQLiteDatabase db = this.databaseHandler.getWritableDatabase();
+        db.beginTransaction();
+        this.databaseHandler.saveExpense(new ExpenseModel("Florist", 7.00, 2016, Calendar.SEPTEMBER, 3), db);
+        db.endTransaction();
+        this.databaseHandler.forgetPayees();
+        Assert.assertEquals("Rolled back changes aren't recorded", changes.get(3).getSequence(), this.databaseHandler.getLatestChangeSequence());
+
+        // Consumers behind discarded changes are told to reload
+        this.databaseHandler.discardChangesThrough(afterAdding);
+        Assert.assertEquals("Consumers which have read the discarded changes carry on", 2, this.databaseHandler.getChangesSince(afterAdding, 100).size());
+        List<ExpenseChange> behind = this.databaseHandler.getChangesSince(0, 100);
+        Assert.assertEquals(1, behind.size());
+        Assert.assertEquals("Consumers which haven't read the discarded changes must reload", ExpenseChange.Type.RESET, behind.get(0).getType());
+        Assert.assertEquals(afterAdding, behind.get(0).getSequence());
+
+        this.databaseHandler.discardChangesThrough(this.databaseHandler.getLatestChangeSequence());
+        Assert.assertTrue("Sequence numbers survive discarding every change", this.databaseHandler.getLatestChangeSequence() > afterAdding);
+
+        // Restoring a snapshot may change anything
+        File snapshot = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "localDataTest_journal");
+        this.databaseHandler.writeSnapshot(snapshot);
+        long beforeRestore = this.databaseHandler.getLatestChangeSequence();
+        this.databaseHandler.restoreSnapshot(snapshot);
+        List<ExpenseChange> restored = this.databaseHandler.getChangesSince(beforeRestore, 100);
+        Assert.assertEquals("Restoring records a single reset", 1, restored.size());
+        Assert.assertEquals(ExpenseChange.Type.RESET, restored.get(0).getType());
+        Assert.assertTrue(snapshot.delete());
+    }
+
+    @Test
+    public void expenseColumnsFollowChanges() throws Exception {
+        ExpenseModel coffee = new ExpenseModel("Coffee", 3.50, 2016, Calendar.SEPTEMBER, 1);
+        ExpenseModel bagel = new ExpenseModel("Bagel", 2.25, 2016, Calendar.SEPTEMBER, 1);
+        this.databaseHandler.saveExpense(coffee);
+        this.databaseHandler.saveExpense(bagel);
+
+        ExpenseColumns columns = this.databaseHandler.loadExpenseColumns();
+        Assert.assertEquals(2, columns.size());
+        Assert.assertEquals(coffee.getId(), columns.getId(0));
+        Assert.assertEquals(350, columns.getAmountInMinorUnits(0));
+        Assert.assertEquals(coffee.getEpochDayIncurred(), columns.getEpochDayIncurred(0));
+        Assert.assertEquals("Coffee", columns.getName(0));
+        Assert.assertEquals(this.databaseHandler.getLatestChangeSequence(), columns.getChangeSequence());
+
+        ExpenseModel tea = new ExpenseModel("Tea", 1.75, 2016, Calendar.SEPTEMBER, 2,
+                coffee.getYearCreated(), coffee.getMonthCreated(), coffee.getDayCreated(), coffee.getId());
+        this.databaseHandler.updateExpense(tea);
+        this.databaseHandler.deleteExpense(bagel.getId());
+        ExpenseModel muffin = new ExpenseModel("Muffin", 2.75, 2016, Calendar.SEPTEMBER, 3);
+        this.databaseHandler.saveExpense(muffin);
+        ExpenseModel scone = new ExpenseModel("Scone", 3.00, 2016, Calendar.SEPTEMBER, 3);
+        this.databaseHandler.saveExpense(scone);
+        this.databaseHandler.deleteExpense(scone.getId());
+
+        this.databaseHandler.refreshExpenseColumns(columns);
+        Assert.assertEquals(2, columns.size());
+        Assert.assertEquals("Tea", columns.getName(columns.indexOf(coffee.getId())));
+        Assert.assertEquals(175, columns.getAmountInMinorUnits(columns.indexOf(coffee.getId())));
+        Assert.assertEquals(-1, columns.indexOf(bagel.getId()));
+        Assert.assertEquals(-1, columns.indexOf(scone.getId()));
+        Assert.assertEquals("New expenses are appended", muffin.getId(), columns.getId(1));
+        Assert.assertEquals(this.databaseHandler.getLatestChangeSequence(), columns.getChangeSequence());
+
+        // Once its changes are discarded, the columns are reloaded
+        this.databaseHandler.saveExpense(new ExpenseModel("Juice", 4.00, 2016, Calendar.SEPTEMBER, 4));
+        this.databaseHandler.discardChangesThrough(this.databaseHandler.getLatestChangeSequence());
+        this.databaseHandler.refreshExpenseColumns(columns);
+        Assert.assertEquals(3, columns.size());
+        Assert.assertEquals("Juice", columns.getName(2));
+    }
+}
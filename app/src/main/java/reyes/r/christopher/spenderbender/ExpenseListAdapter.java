@@ -0,0 +1,132 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender;
+
+import android.databinding.ObservableArrayList;
+import android.databinding.ObservableList;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import reyes.r.christopher.spenderbender.databinding.SingleExpenseItemBinding;
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Binds expenses to the rows of a RecyclerView. Only the visible rows are ever inflated,
+ * and each is reused for whichever expense scrolls into view next.
+ * Rows are identified by the expense's Id, so the list can keep its place when it's reloaded.
+ * Changes to the expense list are passed on to the RecyclerView as they happen, so only the
+ * changed rows are bound again
+ */
+
+class ExpenseListAdapter extends RecyclerView.Adapter<ExpenseListAdapter.ExpenseViewHolder> {
+
+    static class ExpenseViewHolder extends RecyclerView.ViewHolder {
+        private final SingleExpenseItemBinding binding;
+
+        ExpenseViewHolder(SingleExpenseItemBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+        }
+
+        void bind(ExpenseModel expense) {
+            this.binding.setExpense(expense);
+            // Bind now rather than on the next frame, so the row is measured with its contents
+            this.binding.executePendingBindings();
+        }
+    }
+
+    /**
+     * Tells the RecyclerView about each change to the expense list, as it's made
+     */
+    private final ObservableList.OnListChangedCallback<ObservableList<ExpenseModel>> listChangedCallback =
+            new ObservableList.OnListChangedCallback<ObservableList<ExpenseModel>>() {
+        @Override
+        public void onChanged(ObservableList<ExpenseModel> sender) {
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(ObservableList<ExpenseModel> sender, int positionStart, int itemCount) {
+            notifyItemRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(ObservableList<ExpenseModel> sender, int positionStart, int itemCount) {
+            notifyItemRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(ObservableList<ExpenseModel> sender, int fromPosition, int toPosition, int itemCount) {
+            // RecyclerView can only be told about single rows moving
+            if (itemCount == 1) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+            else {
+                notifyDataSetChanged();
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(ObservableList<ExpenseModel> sender, int positionStart, int itemCount) {
+            notifyItemRangeRemoved(positionStart, itemCount);
+        }
+    };
+
+    private ObservableList<ExpenseModel> expenses = new ObservableArrayList<>();
+
+    ExpenseListAdapter() {
+        setHasStableIds(Boolean.TRUE);
+    }
+
+    /**
+     * Replaces every expense in the list. The list is kept rather than copied, and its changes are
+     * shown as they're made, until another list replaces it
+     * @param expenses  The expenses to show, in the order to show them
+     */
+    void setExpenses(ObservableList<ExpenseModel> expenses) {
+        this.expenses.removeOnListChangedCallback(this.listChangedCallback);
+        this.expenses = expenses;
+        this.expenses.addOnListChangedCallback(this.listChangedCallback);
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public ExpenseViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        return new ExpenseViewHolder(SingleExpenseItemBinding.inflate(inflater, parent, Boolean.FALSE));
+    }
+
+    @Override
+    public void onBindViewHolder(ExpenseViewHolder holder, int position) {
+        holder.bind(this.expenses.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return this.expenses.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return this.expenses.get(position).getId();
+    }
+}
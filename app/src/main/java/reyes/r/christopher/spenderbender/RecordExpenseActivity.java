@@ -31,17 +31,20 @@ import android.widget.Toast;
 
 import reyes.r.christopher.spenderbender.databinding.ActivityRecordExpenseBinding;
 import reyes.r.christopher.spenderbender.persistence.LocalDatabaseHandler;
+import reyes.r.christopher.spenderbender.persistence.WriteCallback;
 import reyes.r.christopher.spenderbender.viewmodel.TransactionViewModel;
 
 public class RecordExpenseActivity extends AppCompatActivity {
 
+    private LocalDatabaseHandler dbh;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
         // Set up main activity
-        LocalDatabaseHandler dbh = new LocalDatabaseHandler(this);
-        TransactionViewModel viewModel = new TransactionViewModel(dbh);
+        this.dbh = LocalDatabaseHandler.acquire(this);
+        TransactionViewModel viewModel = new TransactionViewModel(this.dbh);
 
         final ActivityRecordExpenseBinding binding = DataBindingUtil.setContentView(this, R.layout.activity_record_expense);
         binding.setViewModel(viewModel);
@@ -61,19 +64,40 @@ public class RecordExpenseActivity extends AppCompatActivity {
             @Override
             public void onClick(View v) {
                 TransactionViewModel vm = binding.getViewModel();
-                String toastMessage = getString(R.string.record_expense_submit_success);
                 if (vm.validateFields()) {
-                    vm.addExpense();
+                    // Only report success once the expense has actually been written
+                    vm.addExpense(new WriteCallback<Long>() {
+                        @Override
+                        public void onWritten(Long result) {
+                            showToast(R.string.record_expense_submit_success);
+                        }
+
+                        @Override
+                        public void onFailed(Exception e) {
+                            showToast(R.string.record_expense_submit_write_failed);
+                        }
+                    });
                     vm.resetFields();
                 }
                 else {
-                    toastMessage = getString(R.string.record_expense_submit_validation_failed);
+                    showToast(R.string.record_expense_submit_validation_failed);
                 }
-                Toast.makeText(RecordExpenseActivity.this, toastMessage, Toast.LENGTH_SHORT).show();
             }
         });
     }
 
+    private void showToast(int messageId) {
+        // The write may finish after this activity is gone, so don't hold on to it
+        Toast.makeText(getApplicationContext(), messageId, Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    protected void onDestroy() {
+        this.dbh.release();
+        this.dbh = null;
+        super.onDestroy();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.record_expense_toolbar, menu);
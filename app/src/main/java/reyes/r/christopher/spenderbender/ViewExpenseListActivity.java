@@ -19,21 +19,28 @@
 package reyes.r.christopher.spenderbender;
 
 import android.content.Intent;
+import android.databinding.Observable;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.Toolbar;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.widget.TableLayout;
+import android.view.View;
+import android.widget.Toast;
 
-import java.util.List;
-
-import reyes.r.christopher.spenderbender.databinding.SingleExpenseItemBinding;
-import reyes.r.christopher.spenderbender.model.ExpenseModel;
+import reyes.r.christopher.spenderbender.model.ExpenseFormatter;
 import reyes.r.christopher.spenderbender.persistence.LocalDatabaseHandler;
 import reyes.r.christopher.spenderbender.viewmodel.TransactionViewModel;
 
 public class ViewExpenseListActivity extends AppCompatActivity {
+    private static final String LogTag = "ViewExpenseList";
+
+    private LocalDatabaseHandler dbh;
+    private TransactionViewModel viewModel;
+    private ExpenseListAdapter adapter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -46,28 +53,63 @@ public class ViewExpenseListActivity extends AppCompatActivity {
             setSupportActionBar(toolbar);
         }
 
-        LocalDatabaseHandler dbh = new LocalDatabaseHandler(this);
-        TransactionViewModel viewModel = new TransactionViewModel(dbh);
+        RecyclerView list = (RecyclerView) findViewById(R.id.viewExpenseList);
+        assert list != null;
 
-        viewModel.loadAllExpenses();
-        this.updateExpenseList(viewModel.getExpenseModelList());
-    }
+        this.adapter = new ExpenseListAdapter();
+        list.setLayoutManager(new LinearLayoutManager(this));
+        // The list fills the space below the toolbar, so its size never depends on how many expenses it holds
+        list.setHasFixedSize(Boolean.TRUE);
+        list.setAdapter(this.adapter);
 
-    private void updateExpenseList(List<ExpenseModel> expenses) {
-        TableLayout table = (TableLayout) findViewById(R.id.viewExpenseListTable);
-        assert table != null;
+        final View progress = findViewById(R.id.viewExpenseListProgress);
+        assert progress != null;
 
-        table.removeAllViews();
+        this.dbh = LocalDatabaseHandler.acquire(this);
+        this.viewModel = new TransactionViewModel(this.dbh);
+        this.adapter.setExpenses(this.viewModel.getExpenseModelList());
 
-        for (ExpenseModel expense :
-                expenses) {
-            SingleExpenseItemBinding binding = SingleExpenseItemBinding.inflate(getLayoutInflater());
-            binding.setExpense(expense);
+        this.viewModel.addOnPropertyChangedCallback(new Observable.OnPropertyChangedCallback() {
+            @Override
+            public void onPropertyChanged(Observable sender, int propertyId) {
+                if (propertyId == BR.expenseModelList) {
+                    ViewExpenseListActivity.this.adapter.setExpenses(ViewExpenseListActivity.this.viewModel.getExpenseModelList());
+                }
+                else if (propertyId == BR.loading) {
+                    progress.setVisibility(ViewExpenseListActivity.this.viewModel.isLoading() ? View.VISIBLE : View.GONE);
+                }
+                else if (propertyId == BR.loadError) {
+                    RuntimeException error = ViewExpenseListActivity.this.viewModel.getLoadError();
+                    if (error != null) {
+                        Log.w(LogTag, "Could not load expenses", error);
+                        Toast.makeText(getApplicationContext(), R.string.view_expense_list_load_failed, Toast.LENGTH_LONG).show();
+                    }
+                }
+            }
+        });
+
+        // The list is shown empty until the expenses arrive, rather than holding up the first frame
+        this.viewModel.loadAllExpensesInBackground();
+    }
 
-            table.addView(binding.getRoot());
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // The user may have changed their date format while the app was in the background
+        if (ExpenseFormatter.useSystemDateFormat(this)) {
+            this.adapter.notifyDataSetChanged();
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        this.viewModel.cancelLoading();
+        this.viewModel = null;
+        this.dbh.release();
+        this.dbh = null;
+        super.onDestroy();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.list_expense_toolbar, menu);
@@ -0,0 +1,218 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.analytics;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import reyes.r.christopher.spenderbender.model.EpochDay;
+import reyes.r.christopher.spenderbender.persistence.ExpenseColumns;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Totals expenses by day, week, month, year or payee.
+ * Works on ExpenseColumns, so no object is created per expense. Large sets of expenses are split
+ * into one contiguous chunk per thread. Each chunk is totalled on its own and the partial totals
+ * are merged at the end, so threads never share anything they write to.
+ *
+ * The columns are in order of Id rather than date, since that's what lets them be refreshed in
+ * place, so a date range can't be found by searching them. Instead each chunk checks the dates
+ * covered by each of the columns' blocks, and skips the blocks outside the range.
+ *
+ * The columns must not be refreshed while they are being aggregated.
+ * Aggregating a large history can take a while and must not be run on the main thread
+ */
+
+public class ExpenseAggregator {
+    // Below this many expenses per thread, handing work to other threads costs more than it saves
+    static final int MinExpensesPerChunk = 32 * 1024;
+
+    private static final Object sharedExecutorLock = new Object();
+    private static ExecutorService sharedExecutor;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int firstDayOfWeek;
+    private final int minExpensesPerChunk;
+
+    /**
+     * Creates an aggregator which uses a thread per core, shared by every such aggregator, and
+     * starts weeks on the default locale's first day of the week
+     */
+    public ExpenseAggregator() {
+        this(getSharedExecutor(), Runtime.getRuntime().availableProcessors(), Calendar.getInstance().getFirstDayOfWeek());
+    }
+
+    /**
+     * @param executor          Runs the chunks other than the first, which runs on the calling thread
+     * @param parallelism       The most chunks to split the expenses into
+     * @param firstDayOfWeek    The day weeks start on, e.g. Calendar.MONDAY
+     */
+    public ExpenseAggregator(ExecutorService executor, int parallelism, int firstDayOfWeek) {
+        this(executor, parallelism, firstDayOfWeek, MinExpensesPerChunk);
+    }
+
+    ExpenseAggregator(ExecutorService executor, int parallelism, int firstDayOfWeek, int minExpensesPerChunk) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive. Got [" + parallelism + "]");
+        }
+        if (firstDayOfWeek < Calendar.SUNDAY || firstDayOfWeek > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("First day of week must be a Calendar day of the week. Got [" + firstDayOfWeek + "]");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.firstDayOfWeek = firstDayOfWeek;
+        this.minExpensesPerChunk = minExpensesPerChunk;
+    }
+
+    /**
+     * Totals every expense
+     * @param expenses  The expenses to total
+     * @param grouping  How to group them
+     * @return          The totals of each group
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the other chunks
+     * @throws ArithmeticException if a group's total overflows
+     */
+    public GroupedTotals aggregate(ExpenseColumns expenses, Grouping grouping) throws InterruptedException, ArithmeticException {
+        return this.aggregate(expenses, grouping, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Totals the expenses incurred within a date range
+     * @param startEpochDay The first day of the range, inclusive. See EpochDay
+     * @param endEpochDay   The last day of the range, inclusive. See EpochDay
+     */
+    public GroupedTotals aggregate(final ExpenseColumns expenses, final Grouping grouping,
+                                   final int startEpochDay, final int endEpochDay) throws InterruptedException, ArithmeticException {
+        final int size = expenses.size();
+        // Built here, before the columns are read from other threads
+        expenses.ensureBlockIndex();
+        final int chunks = Math.max(1, Math.min(this.parallelism, size / this.minExpensesPerChunk));
+
+        List<Future<TotalsAccumulator>> partials = new ArrayList<>(chunks - 1);
+        try {
+            for (int chunk = 1; chunk < chunks; chunk++) {
+                final int from = getChunkStart(size, chunks, chunk);
+                final int to = getChunkStart(size, chunks, chunk + 1);
+                partials.add(this.executor.submit(new Callable<TotalsAccumulator>() {
+                    @Override
+                    public TotalsAccumulator call() throws Exception {
+                        return ExpenseAggregator.this.aggregateChunk(expenses, grouping, from, to, startEpochDay, endEpochDay);
+                    }
+                }));
+            }
+
+            // The calling thread takes the first chunk rather than waiting idle
+            TotalsAccumulator totals = this.aggregateChunk(expenses, grouping, 0, getChunkStart(size, chunks, 1), startEpochDay, endEpochDay);
+            for (Future<TotalsAccumulator> partial : partials) {
+                totals.addAll(getResult(partial));
+            }
+            return totals.toGroupedTotals(grouping);
+        } finally {
+            // Only does anything if this is ending early
+            for (Future<TotalsAccumulator> partial : partials) {
+                partial.cancel(Boolean.TRUE);
+            }
+        }
+    }
+
+    private TotalsAccumulator aggregateChunk(ExpenseColumns expenses, Grouping grouping, int from, int to,
+                                             int startEpochDay, int endEpochDay) {
+        TotalsAccumulator totals = new TotalsAccumulator();
+        int blockStart = from;
+        while (blockStart < to) {
+            int block = blockStart / ExpenseColumns.BlockSize;
+            int blockEnd = Math.min(to, (block + 1) * ExpenseColumns.BlockSize);
+            if (expenses.getBlockLastEpochDay(block) >= startEpochDay && expenses.getBlockFirstEpochDay(block) <= endEpochDay) {
+                for (int i = blockStart; i < blockEnd; i++) {
+                    int epochDay = expenses.getEpochDayIncurred(i);
+                    if (epochDay >= startEpochDay && epochDay <= endEpochDay) {
+                        totals.add(this.getKey(grouping, expenses, i, epochDay), expenses.getAmountInMinorUnits(i));
+                    }
+                }
+            }
+            blockStart = blockEnd;
+        }
+        return totals;
+    }
+
+    private int getKey(Grouping grouping, ExpenseColumns expenses, int index, int epochDay) {
+        switch (grouping) {
+            case DAY:
+                return epochDay;
+            case WEEK:
+                return epochDay - (EpochDay.getDayOfWeek(epochDay) - this.firstDayOfWeek + 7) % 7;
+            case MONTH:
+                return EpochDay.getMonthsSinceYearZero(epochDay);
+            case YEAR:
+                // Expenses are never before 1000 AD, so the months are never negative
+                return EpochDay.getMonthsSinceYearZero(epochDay) / 12;
+            case PAYEE:
+                return expenses.getPayeeId(index);
+            default:
+                throw new IllegalArgumentException("Unsupported grouping [" + grouping + "]");
+        }
+    }
+
+    /**
+     * @return The position of the first expense in the chunk. Chunks differ in size by at most one
+     */
+    private static int getChunkStart(int size, int chunks, int chunk) {
+        return (int) ((long) size * chunk / chunks);
+    }
+
+    private static TotalsAccumulator getResult(Future<TotalsAccumulator> partial) throws InterruptedException {
+        try {
+            return partial.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Could not aggregate expenses", cause);
+        }
+    }
+
+    private static ExecutorService getSharedExecutor() {
+        synchronized (sharedExecutorLock) {
+            if (sharedExecutor == null) {
+                sharedExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "SpenderBender analytics");
+                        // Idle threads mustn't keep the process alive
+                        thread.setDaemon(Boolean.TRUE);
+                        return thread;
+                    }
+                });
+            }
+            return sharedExecutor;
+        }
+    }
+}
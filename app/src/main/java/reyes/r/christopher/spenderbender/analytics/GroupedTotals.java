@@ -0,0 +1,110 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.analytics;
+
+import java.util.Arrays;
+
+import reyes.r.christopher.spenderbender.persistence.ExpenseTotal;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * The totals of each group of expenses, ordered by key. Groups with no expenses are left out.
+ * Amounts are in minor units. See Money
+ */
+
+public final class GroupedTotals {
+    private final Grouping grouping;
+    private final int[] keys;
+    private final long[] expenseCounts;
+    private final long[] totalsInMinorUnits;
+    private final long[] minimumsInMinorUnits;
+    private final long[] maximumsInMinorUnits;
+
+    GroupedTotals(Grouping grouping, int[] keys, long[] expenseCounts, long[] totalsInMinorUnits,
+                  long[] minimumsInMinorUnits, long[] maximumsInMinorUnits) {
+        this.grouping = grouping;
+        this.keys = keys;
+        this.expenseCounts = expenseCounts;
+        this.totalsInMinorUnits = totalsInMinorUnits;
+        this.minimumsInMinorUnits = minimumsInMinorUnits;
+        this.maximumsInMinorUnits = maximumsInMinorUnits;
+    }
+
+    public Grouping getGrouping() {
+        return this.grouping;
+    }
+
+    /**
+     * @return The number of groups
+     */
+    public int size() {
+        return this.keys.length;
+    }
+
+    /**
+     * @return The key of the group at index. See Grouping for what it means
+     */
+    public int getKey(int index) {
+        return this.keys[index];
+    }
+
+    public long getExpenseCount(int index) {
+        return this.expenseCounts[index];
+    }
+
+    public long getTotalInMinorUnits(int index) {
+        return this.totalsInMinorUnits[index];
+    }
+
+    public long getMinimumInMinorUnits(int index) {
+        return this.minimumsInMinorUnits[index];
+    }
+
+    public long getMaximumInMinorUnits(int index) {
+        return this.maximumsInMinorUnits[index];
+    }
+
+    /**
+     * @return The totals of the group at index
+     */
+    public ExpenseTotal getTotal(int index) {
+        return new ExpenseTotal(
+                this.expenseCounts[index],
+                this.totalsInMinorUnits[index],
+                this.minimumsInMinorUnits[index],
+                this.maximumsInMinorUnits[index]
+        );
+    }
+
+    /**
+     * @return The position of the group with the given key, or -1 if it has no expenses
+     */
+    public int indexOf(int key) {
+        int index = Arrays.binarySearch(this.keys, key);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * @return The totals of the group with the given key, or ExpenseTotal.NONE if it has no expenses
+     */
+    public ExpenseTotal getTotalFor(int key) {
+        int index = this.indexOf(key);
+        return index >= 0 ? this.getTotal(index) : ExpenseTotal.NONE;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.analytics;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * How ExpenseAggregator groups expenses. Each group is identified by an int key
+ */
+
+public enum Grouping {
+    /**
+     * Keyed by the epoch day incurred. See EpochDay
+     */
+    DAY,
+    /**
+     * Keyed by the epoch day of the first day of the week incurred
+     */
+    WEEK,
+    /**
+     * Keyed by the month incurred, as EpochDay.getMonthsSinceYearZero()
+     */
+    MONTH,
+    /**
+     * Keyed by the year incurred
+     */
+    YEAR,
+    /**
+     * Keyed by payee Id. See ExpenseColumns.getPayeeName()
+     */
+    PAYEE
+}
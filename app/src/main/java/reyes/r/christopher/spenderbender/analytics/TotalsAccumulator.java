@@ -0,0 +1,179 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.analytics;
+
+import java.util.Arrays;
+
+import reyes.r.christopher.spenderbender.model.Money;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Accumulates count, total, minimum and maximum per int key, in an open-addressing hash table of
+ * primitive arrays, so adding an expense never allocates.
+ * Not thread safe. Each thread accumulates its own, and they are combined with addAll().
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class TotalsAccumulator {
+    // Must be a power of two
+    private static final int InitialCapacity = 64;
+
+    private int[] keys;
+    private boolean[] isUsed;
+    private long[] expenseCounts;
+    private long[] totalsInMinorUnits;
+    private long[] minimumsInMinorUnits;
+    private long[] maximumsInMinorUnits;
+    private int size = 0;
+
+    // 32 minus log2 of the capacity, so hashing keeps the well mixed high bits
+    private int shift;
+
+    // Neighbouring expenses usually share a key, so the last slot is tried before hashing
+    private int lastKey;
+    private int lastSlot = -1;
+
+    TotalsAccumulator() {
+        this.allocate(InitialCapacity);
+    }
+
+    /**
+     * @param key                   The group the expense belongs to
+     * @param amountInMinorUnits    The amount of the expense. See Money
+     * @throws ArithmeticException if the group's total overflows
+     */
+    void add(int key, long amountInMinorUnits) throws ArithmeticException {
+        this.add(key, 1, amountInMinorUnits, amountInMinorUnits, amountInMinorUnits);
+    }
+
+    /**
+     * Adds every group of another accumulator to this one
+     * @throws ArithmeticException if a group's total overflows
+     */
+    void addAll(TotalsAccumulator other) throws ArithmeticException {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.isUsed[slot]) {
+                this.add(other.keys[slot], other.expenseCounts[slot], other.totalsInMinorUnits[slot],
+                        other.minimumsInMinorUnits[slot], other.maximumsInMinorUnits[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return The groups, ordered by key
+     */
+    GroupedTotals toGroupedTotals(Grouping grouping) {
+        // Keys are signed, so sorting key then slot packed into a long orders by key
+        long[] order = new long[this.size];
+        int next = 0;
+        for (int slot = 0; slot < this.keys.length; slot++) {
+            if (this.isUsed[slot]) {
+                order[next++] = ((long) this.keys[slot] << 32) | slot;
+            }
+        }
+        Arrays.sort(order);
+
+        int[] sortedKeys = new int[this.size];
+        long[] sortedCounts = new long[this.size];
+        long[] sortedTotals = new long[this.size];
+        long[] sortedMinimums = new long[this.size];
+        long[] sortedMaximums = new long[this.size];
+        for (int i = 0; i < this.size; i++) {
+            int slot = (int) order[i];
+            sortedKeys[i] = this.keys[slot];
+            sortedCounts[i] = this.expenseCounts[slot];
+            sortedTotals[i] = this.totalsInMinorUnits[slot];
+            sortedMinimums[i] = this.minimumsInMinorUnits[slot];
+            sortedMaximums[i] = this.maximumsInMinorUnits[slot];
+        }
+
+        return new GroupedTotals(grouping, sortedKeys, sortedCounts, sortedTotals, sortedMinimums, sortedMaximums);
+    }
+
+    private void add(int key, long expenseCount, long totalInMinorUnits, long minimumInMinorUnits, long maximumInMinorUnits) {
+        int slot = this.lastSlot >= 0 && this.lastKey == key ? this.lastSlot : this.findSlot(key);
+
+        if (!this.isUsed[slot]) {
+            // Keep the table at most half full, so probes stay short
+            if ((this.size + 1) * 2 > this.keys.length) {
+                this.rehash(this.keys.length * 2);
+                slot = this.findSlot(key);
+            }
+            this.isUsed[slot] = Boolean.TRUE;
+            this.keys[slot] = key;
+            this.minimumsInMinorUnits[slot] = Long.MAX_VALUE;
+            this.maximumsInMinorUnits[slot] = Long.MIN_VALUE;
+            this.size++;
+        }
+
+        this.expenseCounts[slot] += expenseCount;
+        this.totalsInMinorUnits[slot] = Money.add(this.totalsInMinorUnits[slot], totalInMinorUnits);
+        this.minimumsInMinorUnits[slot] = Math.min(this.minimumsInMinorUnits[slot], minimumInMinorUnits);
+        this.maximumsInMinorUnits[slot] = Math.max(this.maximumsInMinorUnits[slot], maximumInMinorUnits);
+
+        this.lastKey = key;
+        this.lastSlot = slot;
+    }
+
+    /**
+     * @return The slot holding key, or the empty slot where it belongs
+     */
+    private int findSlot(int key) {
+        int mask = this.keys.length - 1;
+        // Fibonacci hashing spreads runs of consecutive keys, such as days, across the table
+        int slot = (key * 0x9E3779B9) >>> this.shift;
+        while (this.isUsed[slot] && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = this.keys;
+        boolean[] oldIsUsed = this.isUsed;
+        long[] oldCounts = this.expenseCounts;
+        long[] oldTotals = this.totalsInMinorUnits;
+        long[] oldMinimums = this.minimumsInMinorUnits;
+        long[] oldMaximums = this.maximumsInMinorUnits;
+
+        this.allocate(capacity);
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            if (oldIsUsed[oldSlot]) {
+                int slot = this.findSlot(oldKeys[oldSlot]);
+                this.isUsed[slot] = Boolean.TRUE;
+                this.keys[slot] = oldKeys[oldSlot];
+                this.expenseCounts[slot] = oldCounts[oldSlot];
+                this.totalsInMinorUnits[slot] = oldTotals[oldSlot];
+                this.minimumsInMinorUnits[slot] = oldMinimums[oldSlot];
+                this.maximumsInMinorUnits[slot] = oldMaximums[oldSlot];
+            }
+        }
+        this.lastSlot = -1;
+    }
+
+    private void allocate(int capacity) {
+        this.shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        this.keys = new int[capacity];
+        this.isUsed = new boolean[capacity];
+        this.expenseCounts = new long[capacity];
+        this.totalsInMinorUnits = new long[capacity];
+        this.minimumsInMinorUnits = new long[capacity];
+        this.maximumsInMinorUnits = new long[capacity];
+    }
+}
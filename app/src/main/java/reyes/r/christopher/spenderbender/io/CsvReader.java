@@ -0,0 +1,170 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Reads comma separated values one record at a time, so only the current record is ever held in memory.
+ * Follows RFC 4180: fields may be quoted, and quoted fields may hold commas, line breaks,
+ * and quotes written twice. Blank lines are skipped, as is a byte order mark at the start of the file.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class CsvReader implements Closeable {
+    private static final int EndOfStream = -1;
+    private static final char ByteOrderMark = '\uFEFF';
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+
+    // Lines are counted from 1, the way a text editor or spreadsheet shows them
+    private int lineNumber = 1;
+    private int recordLineNumber = 0;
+    private boolean isAtStart = Boolean.TRUE;
+    private int pushedBack = EndOfStream;
+
+    /**
+     * @param reader    The source of the CSV text. Wrapped in a BufferedReader if it isn't one already
+     */
+    CsvReader(Reader reader) {
+        this.reader = (reader instanceof BufferedReader) ? reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Reads the next record
+     * @param record    Cleared, then filled with the fields of the next record
+     * @return          false if there are no more records, in which case record is left empty
+     * @throws IOException if the text can't be read, or it ends inside a quoted field
+     */
+    boolean readRecord(List<String> record) throws IOException {
+        record.clear();
+
+        int c = this.read();
+        if (this.isAtStart) {
+            this.isAtStart = Boolean.FALSE;
+            if (c == ByteOrderMark) {
+                c = this.read();
+            }
+        }
+
+        // Skip blank lines between records
+        while (c == '\r' || c == '\n') {
+            this.endLine(c);
+            c = this.read();
+        }
+
+        if (c == EndOfStream) {
+            return Boolean.FALSE;
+        }
+
+        this.recordLineNumber = this.lineNumber;
+        this.field.setLength(0);
+        boolean isQuoted = Boolean.FALSE;
+
+        while (true) {
+            if (isQuoted) {
+                if (c == EndOfStream) {
+                    throw new IOException("Line " + this.recordLineNumber + " ends inside a quoted field");
+                }
+                else if (c == '"') {
+                    int next = this.read();
+                    if (next == '"') {
+                        this.field.append('"');
+                    }
+                    else {
+                        isQuoted = Boolean.FALSE;
+                        c = next;
+                        continue;
+                    }
+                }
+                else {
+                    if (c == '\n' || (c == '\r' && this.peek() != '\n')) {
+                        this.lineNumber++;
+                    }
+                    this.field.append((char) c);
+                }
+            }
+            else if (c == '"' && this.field.length() == 0) {
+                isQuoted = Boolean.TRUE;
+            }
+            else if (c == ',') {
+                record.add(this.field.toString());
+                this.field.setLength(0);
+            }
+            else if (c == '\r' || c == '\n' || c == EndOfStream) {
+                record.add(this.field.toString());
+                this.endLine(c);
+                return Boolean.TRUE;
+            }
+            else {
+                this.field.append((char) c);
+            }
+
+            c = this.read();
+        }
+    }
+
+    /**
+     * @return The line on which the record last returned by readRecord() began
+     */
+    int getRecordLineNumber() {
+        return this.recordLineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    private int read() throws IOException {
+        if (this.pushedBack != EndOfStream) {
+            int c = this.pushedBack;
+            this.pushedBack = EndOfStream;
+            return c;
+        }
+        return this.reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (this.pushedBack == EndOfStream) {
+            this.pushedBack = this.reader.read();
+        }
+        return this.pushedBack;
+    }
+
+    /**
+     * Consumes the rest of a line break, treating \r\n as a single break
+     */
+    private void endLine(int c) throws IOException {
+        if (c == EndOfStream) {
+            return;
+        }
+        if (c == '\r' && this.peek() == '\n') {
+            this.read();
+        }
+        this.lineNumber++;
+    }
+}
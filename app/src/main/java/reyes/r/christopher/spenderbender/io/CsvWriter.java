@@ -0,0 +1,109 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Writes comma separated values one record at a time, in the form CsvReader reads.
+ * Fields are only quoted when they need to be. Records end with \r\n, as RFC 4180 asks.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class CsvWriter implements Closeable, Flushable {
+    private final Writer writer;
+
+    /**
+     * @param writer    Where the CSV text is written. Wrapped in a BufferedWriter if it isn't one already
+     */
+    CsvWriter(Writer writer) {
+        this.writer = (writer instanceof BufferedWriter) ? writer : new BufferedWriter(writer);
+    }
+
+    void writeRecord(List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                this.writer.write(',');
+            }
+            this.writeField(fields.get(i));
+        }
+        this.writer.write("\r\n");
+    }
+
+    void writeRecord(String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                this.writer.write(',');
+            }
+            this.writeField(fields[i]);
+        }
+        this.writer.write("\r\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+    /**
+     * Writes a single field. A null field is written as an empty one
+     */
+    private void writeField(String field) throws IOException {
+        if (field == null) {
+            return;
+        }
+
+        if (!needsQuotes(field)) {
+            this.writer.write(field);
+            return;
+        }
+
+        this.writer.write('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                this.writer.write('"');
+            }
+            this.writer.write(c);
+        }
+        this.writer.write('"');
+    }
+
+    private static boolean needsQuotes(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return Boolean.TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+}
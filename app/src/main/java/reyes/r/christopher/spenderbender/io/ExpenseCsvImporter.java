@@ -0,0 +1,312 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.io;
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+import reyes.r.christopher.spenderbender.model.ExpenseValidator;
+import reyes.r.christopher.spenderbender.persistence.ExpenseStore;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Imports expenses from a CSV file, such as one exported from a spreadsheet.
+ * The file must start with a header naming its columns. The name, amount and date columns are
+ * required, in any order, and any other columns are ignored. Dates are written as yyyy-mm-dd.
+ *
+ * The file is streamed, and rows are saved in fixed-size batches with one transaction per batch,
+ * so memory use stays flat however large the file is. Rows which don't hold a valid expense are
+ * written to a reject file with the reason they were rejected, and the rest of the file carries on.
+ * The reject file can be corrected and imported again.
+ *
+ * Imports can take a while and must not be run on the main thread
+ */
+
+public class ExpenseCsvImporter {
+    public static final String NameColumn = "name";
+    public static final String AmountColumn = "amount";
+    public static final String DateColumn = "date";
+    public static final String ErrorColumn = "error";
+
+    public static final int DefaultBatchSize = 500;
+
+    static final String Encoding = "UTF-8";
+    static final int BufferSize = 64 * 1024;
+
+    private final ExpenseStore store;
+    private final int batchSize;
+
+    public ExpenseCsvImporter(ExpenseStore store) {
+        this(store, DefaultBatchSize);
+    }
+
+    /**
+     * @param store     Where to import the expenses, such as a LocalDatabaseHandler
+     * @param batchSize The number of rows to save in each transaction
+     */
+    public ExpenseCsvImporter(ExpenseStore store, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive. Got [" + batchSize + "]");
+        }
+        this.store = store;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports every expense in a UTF-8 CSV file
+     * @param csv       The file to import
+     * @param rejects   Where rows that can't be imported are written. Deleted if every row was imported
+     * @param listener  Told the totals after every batch. May be null
+     * @return          The final totals
+     * @throws IOException if either file can't be used, or the CSV has no header or is cut short
+     */
+    public ImportSummary importExpenses(File csv, File rejects, @Nullable ImportListener listener) throws IOException {
+        Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(csv), Encoding), BufferSize);
+        try {
+            ImportSummary summary;
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(rejects), Encoding), BufferSize);
+            try {
+                summary = this.importExpenses(in, out, listener);
+            } finally {
+                out.close();
+            }
+
+            if (summary.getRowsRejected() == 0) {
+                rejects.delete();
+            }
+            return summary;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Imports every expense in the CSV text. Neither csv nor rejects is closed
+     * @param csv       The CSV text to import
+     * @param rejects   Where rows that can't be imported are written, as CSV with an extra error column
+     * @param listener  Told the totals after every batch. May be null
+     * @return          The final totals
+     * @throws IOException if the text can't be read or written, or the CSV has no header or is cut short
+     */
+    public ImportSummary importExpenses(Reader csv, Writer rejects, @Nullable ImportListener listener) throws IOException {
+        return new ImportRun(new CsvReader(csv), new CsvWriter(rejects), listener).run();
+    }
+
+    /**
+     * The state of a single import, so that one importer can be used for several files
+     */
+    private class ImportRun {
+        private final CsvReader reader;
+        private final CsvWriter rejectWriter;
+        private final ImportListener listener;
+
+        private final List<ExpenseModel> batch = new ArrayList<>(batchSize);
+        private final List<String[]> batchRecords = new ArrayList<>(batchSize);
+        private final int[] batchLineNumbers = new int[batchSize];
+
+        private int nameIndex;
+        private int amountIndex;
+        private int dateIndex;
+        private int headerSize;
+
+        private int rowsRead = 0;
+        private int rowsImported = 0;
+        private int rowsRejected = 0;
+
+        ImportRun(CsvReader reader, CsvWriter rejectWriter, @Nullable ImportListener listener) {
+            this.reader = reader;
+            this.rejectWriter = rejectWriter;
+            this.listener = listener;
+        }
+
+        ImportSummary run() throws IOException {
+            List<String> record = new ArrayList<>();
+
+            if (!this.reader.readRecord(record)) {
+                return this.getSummary();
+            }
+            this.readHeader(record);
+
+            while (this.reader.readRecord(record)) {
+                this.rowsRead++;
+                int lineNumber = this.reader.getRecordLineNumber();
+
+                ExpenseModel expense;
+                try {
+                    expense = this.toExpense(record);
+                } catch (RowRejectedException e) {
+                    this.reject(record.toArray(new String[record.size()]), lineNumber, e.getMessage());
+                    continue;
+                }
+
+                this.batchLineNumbers[this.batch.size()] = lineNumber;
+                this.batch.add(expense);
+                this.batchRecords.add(record.toArray(new String[record.size()]));
+
+                if (this.batch.size() == batchSize) {
+                    this.saveBatch();
+                }
+            }
+
+            if (!this.batch.isEmpty()) {
+                this.saveBatch();
+            }
+            this.rejectWriter.flush();
+
+            return this.getSummary();
+        }
+
+        private void readHeader(List<String> header) throws IOException {
+            this.headerSize = header.size();
+            this.nameIndex = findColumn(header, NameColumn);
+            this.amountIndex = findColumn(header, AmountColumn);
+            this.dateIndex = findColumn(header, DateColumn);
+
+            List<String> rejectHeader = new ArrayList<>(header);
+            rejectHeader.add(ErrorColumn);
+            this.rejectWriter.writeRecord(rejectHeader);
+        }
+
+        private ExpenseModel toExpense(List<String> record) throws RowRejectedException {
+            int requiredSize = Math.max(this.nameIndex, Math.max(this.amountIndex, this.dateIndex)) + 1;
+            if (record.size() < requiredSize) {
+                throw new RowRejectedException("Expected at least " + requiredSize + " fields but found " + record.size());
+            }
+
+            String name = record.get(this.nameIndex).trim();
+            if (name.isEmpty()) {
+                throw new RowRejectedException("Name is missing");
+            }
+
+            String amountText = record.get(this.amountIndex).trim();
+            if (!ExpenseValidator.isValidAmount(amountText)) {
+                throw new RowRejectedException("Amount [" + amountText + "] is not a valid amount");
+            }
+            double amount = Double.valueOf(amountText);
+
+            String dateText = record.get(this.dateIndex).trim();
+            int[] date = parseDate(dateText);
+            if (date == null) {
+                throw new RowRejectedException("Date [" + dateText + "] is not a date in the form yyyy-mm-dd");
+            }
+            if (!ExpenseValidator.isValidYear(date[0])) {
+                throw new RowRejectedException("Date [" + dateText + "] is before the year 1000");
+            }
+
+            // Everything saved must pass the same rules as an expense typed in by hand
+            if (!ExpenseValidator.isValidExpense(name, amount, date[0], date[1], date[2])) {
+                throw new RowRejectedException("Date [" + dateText + "] does not exist");
+            }
+
+            return new ExpenseModel(name, amount, date[0], date[1], date[2]);
+        }
+
+        private void saveBatch() throws IOException {
+            store.saveExpenses(this.batch);
+
+            for (int i = 0; i < this.batch.size(); i++) {
+                if (this.batch.get(i).getId() == ExpenseModel.UNSAVED_EXPENSE) {
+                    this.reject(this.batchRecords.get(i), this.batchLineNumbers[i], "Could not be saved");
+                }
+                else {
+                    this.rowsImported++;
+                }
+            }
+
+            this.batch.clear();
+            this.batchRecords.clear();
+
+            if (this.listener != null) {
+                this.listener.onProgress(this.getSummary());
+            }
+        }
+
+        /**
+         * Writes the row as it was read, padded out to the header, then why it was rejected
+         */
+        private void reject(String[] record, int lineNumber, String reason) throws IOException {
+            String[] rejected = Arrays.copyOf(record, Math.max(record.length, this.headerSize) + 1);
+            rejected[rejected.length - 1] = "Line " + lineNumber + ": " + reason;
+            this.rejectWriter.writeRecord(rejected);
+            this.rowsRejected++;
+        }
+
+        private ImportSummary getSummary() {
+            return new ImportSummary(this.rowsRead, this.rowsImported, this.rowsRejected);
+        }
+    }
+
+    private static int findColumn(List<String> header, String column) throws IOException {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().toLowerCase(Locale.US).equals(column)) {
+                return i;
+            }
+        }
+        throw new IOException("The file has no [" + column + "] column");
+    }
+
+    /**
+     * @param date  A date written as yyyy-mm-dd
+     * @return      The year, the month as in the Calendar class, and the day. Null if date isn't in that form
+     */
+    static int[] parseDate(String date) {
+        String[] parts = date.split("-", -1);
+        if (parts.length != 3 || parts[0].length() != 4 || parts[1].isEmpty() || parts[2].isEmpty()) {
+            return null;
+        }
+
+        try {
+            // Months are written from 1 but counted from 0 by Calendar
+            return new int[] {
+                    Integer.parseInt(parts[0]),
+                    Integer.parseInt(parts[1]) - 1,
+                    Integer.parseInt(parts[2])
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Thrown when a row doesn't hold a valid expense. The message says why
+     */
+    private static class RowRejectedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        RowRejectedException(String message) {
+            super(message);
+        }
+    }
+}
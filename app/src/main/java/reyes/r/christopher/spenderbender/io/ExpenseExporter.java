@@ -0,0 +1,283 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.io;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import reyes.r.christopher.spenderbender.model.Money;
+import reyes.r.christopher.spenderbender.persistence.ExpenseCursor;
+import reyes.r.christopher.spenderbender.persistence.LocalDatabaseHandler;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Exports expenses as CSV or JSON Lines, optionally gzipped.
+ * Rows are written straight from a database cursor, so memory use stays flat however many
+ * expenses there are. The CSV can be imported again by ExpenseCsvImporter.
+ *
+ * Exports can take a while and must not be run on the main thread
+ */
+
+public class ExpenseExporter {
+    public static final String IdColumn = "id";
+    public static final String CreatedColumn = "created";
+
+    public enum Format {
+        /**
+         * Comma separated values, with a header of id, date, name, amount, created
+         */
+        CSV,
+        /**
+         * One JSON object per line, with the same fields as the CSV
+         */
+        JSON_LINES
+    }
+
+    private final LocalDatabaseHandler dbh;
+
+    public ExpenseExporter(LocalDatabaseHandler dbh) {
+        this.dbh = dbh;
+    }
+
+    /**
+     * Exports every expense to a file, replacing anything already in it
+     * @param file      The file to write
+     * @param format    How to write each expense
+     * @param compress  Whether to gzip the file
+     * @return          The number of expenses exported
+     * @throws IOException if the file can't be written
+     */
+    public int exportExpenses(File file, Format format, boolean compress) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            return this.exportExpenses(out, format, compress);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Exports the expenses incurred within a date range to a file, replacing anything already in it
+     * @param startEpochDay The first day of the range, inclusive. See EpochDay
+     * @param endEpochDay   The last day of the range, inclusive. See EpochDay
+     */
+    public int exportExpenses(File file, Format format, boolean compress, int startEpochDay, int endEpochDay) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            return this.exportExpenses(out, format, compress, startEpochDay, endEpochDay);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Exports every expense, ordered by date incurred. The stream is flushed but not closed
+     * @param out       Where to write the expenses
+     * @param format    How to write each expense
+     * @param compress  Whether to gzip what is written
+     * @return          The number of expenses exported
+     * @throws IOException if the stream can't be written to
+     */
+    public int exportExpenses(OutputStream out, Format format, boolean compress) throws IOException {
+        ExpenseCursor expenses = this.dbh.openExpenseCursor();
+        try {
+            return export(expenses, out, format, compress);
+        } finally {
+            expenses.close();
+        }
+    }
+
+    /**
+     * Exports the expenses incurred within a date range, ordered by date incurred.
+     * The stream is flushed but not closed
+     * @param startEpochDay The first day of the range, inclusive. See EpochDay
+     * @param endEpochDay   The last day of the range, inclusive. See EpochDay
+     */
+    public int exportExpenses(OutputStream out, Format format, boolean compress, int startEpochDay, int endEpochDay) throws IOException {
+        ExpenseCursor expenses = this.dbh.openExpenseCursor(startEpochDay, endEpochDay);
+        try {
+            return export(expenses, out, format, compress);
+        } finally {
+            expenses.close();
+        }
+    }
+
+    private static int export(ExpenseCursor expenses, OutputStream out, Format format, boolean compress) throws IOException {
+        GZIPOutputStream gzip = null;
+        OutputStream target = new BufferedOutputStream(out, ExpenseCsvImporter.BufferSize);
+        if (compress) {
+            gzip = new GZIPOutputStream(target, ExpenseCsvImporter.BufferSize);
+            target = gzip;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, ExpenseCsvImporter.Encoding), ExpenseCsvImporter.BufferSize);
+
+        int exported;
+        switch (format) {
+            case CSV:
+                exported = writeCsv(expenses, writer);
+                break;
+            case JSON_LINES:
+                exported = writeJsonLines(expenses, writer);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported export format [" + format + "]");
+        }
+
+        // Finish rather than close, so the caller's stream is left open
+        writer.flush();
+        if (gzip != null) {
+            gzip.finish();
+        }
+        target.flush();
+
+        return exported;
+    }
+
+    private static int writeCsv(ExpenseCursor expenses, Writer writer) throws IOException {
+        CsvWriter csv = new CsvWriter(writer);
+        csv.writeRecord(
+                IdColumn,
+                ExpenseCsvImporter.DateColumn,
+                ExpenseCsvImporter.NameColumn,
+                ExpenseCsvImporter.AmountColumn,
+                CreatedColumn
+        );
+
+        // The record array, and the scratch builder used to format dates and amounts, are shared by
+        // every row. CsvWriter quotes and writes each field itself
+        StringBuilder text = new StringBuilder();
+        String[] record = new String[5];
+        int exported = 0;
+        while (expenses.moveToNext()) {
+            record[0] = String.valueOf(expenses.getId());
+            record[1] = appendDate(text, expenses.getYearIncurred(), expenses.getMonthIncurred(), expenses.getDayIncurred());
+            record[2] = expenses.getName();
+            record[3] = appendAmount(text, expenses.getAmountInMinorUnits());
+            record[4] = appendDate(text, expenses.getYearCreated(), expenses.getMonthCreated(), expenses.getDayCreated());
+            csv.writeRecord(record);
+            exported++;
+        }
+
+        csv.flush();
+        return exported;
+    }
+
+    private static int writeJsonLines(ExpenseCursor expenses, Writer writer) throws IOException {
+        StringBuilder text = new StringBuilder();
+        int exported = 0;
+        while (expenses.moveToNext()) {
+            writer.write("{\"" + IdColumn + "\":");
+            writer.write(String.valueOf(expenses.getId()));
+            writer.write(",\"" + ExpenseCsvImporter.DateColumn + "\":\"");
+            writer.write(appendDate(text, expenses.getYearIncurred(), expenses.getMonthIncurred(), expenses.getDayIncurred()));
+            writer.write("\",\"" + ExpenseCsvImporter.NameColumn + "\":");
+            writeJsonString(writer, expenses.getName());
+            writer.write(",\"" + ExpenseCsvImporter.AmountColumn + "\":");
+            writer.write(appendAmount(text, expenses.getAmountInMinorUnits()));
+            writer.write(",\"" + CreatedColumn + "\":\"");
+            writer.write(appendDate(text, expenses.getYearCreated(), expenses.getMonthCreated(), expenses.getDayCreated()));
+            writer.write("\"}\n");
+            exported++;
+        }
+
+        return exported;
+    }
+
+    /**
+     * @return The date written as yyyy-mm-dd, the form ExpenseCsvImporter reads
+     */
+    static String appendDate(StringBuilder text, int year, int calendarMonth, int day) {
+        text.setLength(0);
+        text.append(year).append('-');
+        appendTwoDigits(text, calendarMonth + 1);
+        text.append('-');
+        appendTwoDigits(text, day);
+        return text.toString();
+    }
+
+    /**
+     * @return The exact amount in major units, e.g. -12.05, computed without going through a double
+     */
+    static String appendAmount(StringBuilder text, long minorUnits) {
+        text.setLength(0);
+        long majorUnits = minorUnits / Money.MINOR_UNITS_PER_MAJOR_UNIT;
+        int remainder = (int) (minorUnits % Money.MINOR_UNITS_PER_MAJOR_UNIT);
+        if (minorUnits < 0) {
+            text.append('-');
+            majorUnits = -majorUnits;
+            remainder = -remainder;
+        }
+        text.append(majorUnits).append('.');
+        appendTwoDigits(text, remainder);
+        return text.toString();
+    }
+
+    private static void appendTwoDigits(StringBuilder text, int value) {
+        if (value < 10) {
+            text.append('0');
+        }
+        text.append(value);
+    }
+
+    private static void writeJsonString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format(Locale.US, "\\u%04x", (int) c));
+                    }
+                    else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
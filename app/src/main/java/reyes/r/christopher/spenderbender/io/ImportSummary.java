@@ -0,0 +1,58 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.io;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * How far an import has got. Every row read is either imported or rejected once its batch is committed
+ */
+
+public final class ImportSummary {
+    private final int rowsRead;
+    private final int rowsImported;
+    private final int rowsRejected;
+
+    ImportSummary(int rowsRead, int rowsImported, int rowsRejected) {
+        this.rowsRead = rowsRead;
+        this.rowsImported = rowsImported;
+        this.rowsRejected = rowsRejected;
+    }
+
+    /**
+     * @return The number of rows read from the file so far, not counting the header
+     */
+    public int getRowsRead() {
+        return this.rowsRead;
+    }
+
+    /**
+     * @return The number of rows saved as expenses so far
+     */
+    public int getRowsImported() {
+        return this.rowsImported;
+    }
+
+    /**
+     * @return The number of rows written to the reject file so far
+     */
+    public int getRowsRejected() {
+        return this.rowsRejected;
+    }
+}
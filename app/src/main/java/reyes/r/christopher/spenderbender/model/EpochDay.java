@@ -0,0 +1,136 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.model;
+
+import java.util.Calendar;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Packs a calendar date into a single int: the number of days since January 1st, 1970.
+ * Consecutive dates are consecutive numbers, so date ranges become simple integer ranges.
+ * These are plain dates in the proleptic Gregorian calendar; no time zone is involved.
+ * Months follow the Calendar class: January is 0.
+ */
+
+public final class EpochDay {
+    private static final int DaysPer400Years = 146097;
+    private static final int DaysFromYearZeroTo1970 = 719468;
+
+    private EpochDay() {
+        // Only static methods
+    }
+
+    /**
+     * @param year          The year, e.g. 2016
+     * @param calendarMonth The month, where Calendar.JANUARY is 0
+     * @param dayOfMonth    The day of the month, starting at 1
+     * @return              The number of days between January 1st, 1970 and the date
+     */
+    public static int of(int year, int calendarMonth, int dayOfMonth) {
+        // Count years from March so that the leap day is the last day of the year
+        int month = calendarMonth + 1;
+        int marchBasedYear = month <= 2 ? year - 1 : year;
+        int era = (marchBasedYear >= 0 ? marchBasedYear : marchBasedYear - 399) / 400;
+        int yearOfEra = marchBasedYear - era * 400;
+        int marchBasedMonth = month > 2 ? month - 3 : month + 9;
+        int dayOfYear = (153 * marchBasedMonth + 2) / 5 + dayOfMonth - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DaysPer400Years + dayOfEra - DaysFromYearZeroTo1970;
+    }
+
+    /**
+     * @param date  A calendar set to the date to convert. Only its year, month and day are used
+     * @return      The number of days between January 1st, 1970 and the date
+     */
+    public static int of(Calendar date) {
+        return of(date.get(Calendar.YEAR), date.get(Calendar.MONTH), date.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * @return Today's date in the default time zone, as an epoch day
+     */
+    public static int today() {
+        return of(Calendar.getInstance());
+    }
+
+    // The getters below don't allocate, so they are cheap enough to call per expense
+
+    public static int getYear(int epochDay) {
+        int monthsSinceYearZero = getMonthsSinceYearZero(epochDay);
+        // Rounds towards negative infinity, so years before year zero come out right
+        return monthsSinceYearZero >= 0 ? monthsSinceYearZero / 12 : (monthsSinceYearZero - 11) / 12;
+    }
+
+    /**
+     * @return The month of the epoch day, where Calendar.JANUARY is 0
+     */
+    public static int getCalendarMonth(int epochDay) {
+        return getMonthsSinceYearZero(epochDay) - getYear(epochDay) * 12;
+    }
+
+    public static int getDayOfMonth(int epochDay) {
+        return epochDay - of(getYear(epochDay), getCalendarMonth(epochDay), 1) + 1;
+    }
+
+    /**
+     * Finds the month of an epoch day without allocating, for grouping many dates by month
+     * @param epochDay  The number of days since January 1st, 1970
+     * @return          year * 12 + Calendar month. Consecutive months are consecutive numbers
+     */
+    public static int getMonthsSinceYearZero(int epochDay) {
+        int daysFromYearZero = epochDay + DaysFromYearZeroTo1970;
+        int era = (daysFromYearZero >= 0 ? daysFromYearZero : daysFromYearZero - (DaysPer400Years - 1)) / DaysPer400Years;
+        int dayOfEra = daysFromYearZero - era * DaysPer400Years;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / (DaysPer400Years - 1)) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int marchBasedMonth = (5 * dayOfYear + 2) / 153;
+
+        // Counted from March of year 0, so shift back by the two months before it
+        return (yearOfEra + era * 400) * 12 + marchBasedMonth + 2;
+    }
+
+    /**
+     * @param epochDay  The number of days since January 1st, 1970
+     * @return          The day of the week, as in Calendar.DAY_OF_WEEK. Calendar.SUNDAY is 1
+     */
+    public static int getDayOfWeek(int epochDay) {
+        // January 1st, 1970 was a Thursday
+        int daysSinceSunday = (epochDay + Calendar.THURSDAY - Calendar.SUNDAY) % 7;
+        return (daysSinceSunday < 0 ? daysSinceSunday + 7 : daysSinceSunday) + Calendar.SUNDAY;
+    }
+
+    /**
+     * @param epochDay  The number of days since January 1st, 1970
+     * @return          The year, Calendar month, and day of month of the epoch day, in that order
+     */
+    public static int[] toFields(int epochDay) {
+        int daysFromYearZero = epochDay + DaysFromYearZeroTo1970;
+        int era = (daysFromYearZero >= 0 ? daysFromYearZero : daysFromYearZero - (DaysPer400Years - 1)) / DaysPer400Years;
+        int dayOfEra = daysFromYearZero - era * DaysPer400Years;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / (DaysPer400Years - 1)) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int marchBasedMonth = (5 * dayOfYear + 2) / 153;
+        int dayOfMonth = dayOfYear - (153 * marchBasedMonth + 2) / 5 + 1;
+        int month = marchBasedMonth < 10 ? marchBasedMonth + 3 : marchBasedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        return new int[] {year, month - 1, dayOfMonth};
+    }
+}
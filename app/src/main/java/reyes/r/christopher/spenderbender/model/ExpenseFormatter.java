@@ -0,0 +1,188 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.model;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+
+import java.math.RoundingMode;
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Formats amounts and dates for display in the default locale.
+ * The formatters are built once per locale, and the strings they produce are remembered, so
+ * binding a row of a long list usually costs one map lookup per field. Get the formatter through
+ * getInstance() each time it's needed, so a change of locale is picked up.
+ *
+ * Dates follow the user's date format setting once useSystemDateFormat() has been called, and the
+ * locale's short date format until then. That needs a Context, so it's done when an activity
+ * resumes rather than each time a row is bound.
+ */
+
+public final class ExpenseFormatter {
+    // A list mostly shows a few hundred distinct amounts and dates, so these are plenty
+    static final int MaxCachedAmounts = 512;
+    static final int MaxCachedDates = 512;
+
+    private static final Object sharedInstanceLock = new Object();
+    private static ExpenseFormatter sharedInstance;
+    // The user's date format setting, and the locale it was read in
+    private static DateFormat systemDateFormat;
+    private static Locale systemDateFormatLocale;
+
+    private final Locale locale;
+    private final DateFormat sourceDateFormat;
+    private final NumberFormat currencyFormat;
+    private final DateFormat dateFormat;
+    private final Calendar calendar;
+
+    private final Map<Long, String> amountsByMinorUnits = new LinkedHashMap<Long, String>(64, 0.75f, Boolean.TRUE) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return this.size() > MaxCachedAmounts;
+        }
+    };
+
+    private final Map<Integer, String> datesByEpochDay = new LinkedHashMap<Integer, String>(64, 0.75f, Boolean.TRUE) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return this.size() > MaxCachedDates;
+        }
+    };
+
+    ExpenseFormatter(Locale locale) {
+        this(locale, null);
+    }
+
+    /**
+     * @param dateFormat    How to format dates. It's copied rather than changed.
+     *                      The locale's short date format if null
+     */
+    ExpenseFormatter(Locale locale, @Nullable DateFormat dateFormat) {
+        this.locale = locale;
+        this.sourceDateFormat = dateFormat;
+
+        this.currencyFormat = NumberFormat.getCurrencyInstance(locale);
+        this.currencyFormat.setRoundingMode(RoundingMode.HALF_UP);
+
+        if (dateFormat == null) {
+            this.dateFormat = DateFormat.getDateInstance(DateFormat.SHORT, locale);
+        }
+        else {
+            this.dateFormat = (DateFormat) dateFormat.clone();
+        }
+        this.calendar = Calendar.getInstance(locale);
+        this.dateFormat.setTimeZone(this.calendar.getTimeZone());
+    }
+
+    /**
+     * @return The formatter for the default locale. A new one is only built when the locale or the
+     *         user's date format changes, such as after a configuration change
+     */
+    public static ExpenseFormatter getInstance() {
+        Locale locale = Locale.getDefault();
+        synchronized (sharedInstanceLock) {
+            // A date format read in another locale is out of date until it's read again
+            DateFormat dateFormat = locale.equals(systemDateFormatLocale) ? systemDateFormat : null;
+            if (sharedInstance == null || !sharedInstance.locale.equals(locale) || sharedInstance.sourceDateFormat != dateFormat) {
+                sharedInstance = new ExpenseFormatter(locale, dateFormat);
+            }
+            return sharedInstance;
+        }
+    }
+
+    /**
+     * Reads the user's date format setting, which can differ from the locale's. The setting can be
+     * changed while the app is in the background, so call this whenever an activity showing dates
+     * resumes
+     * @return true if dates will now be formatted differently, so anything showing them should be redrawn
+     */
+    public static boolean useSystemDateFormat(Context context) {
+        return useDateFormat(android.text.format.DateFormat.getDateFormat(context), Locale.getDefault());
+    }
+
+    /**
+     * @param dateFormat    The user's date format
+     * @param locale        The locale the format was read in
+     * @return              true if it differs from the format already in use
+     */
+    static boolean useDateFormat(DateFormat dateFormat, Locale locale) {
+        synchronized (sharedInstanceLock) {
+            if (locale.equals(systemDateFormatLocale) && dateFormat.equals(systemDateFormat)) {
+                return Boolean.FALSE;
+            }
+            systemDateFormat = dateFormat;
+            systemDateFormatLocale = locale;
+            return Boolean.TRUE;
+        }
+    }
+
+    public Locale getLocale() {
+        return this.locale;
+    }
+
+    /**
+     * @param minorUnits    An amount in minor units. See Money
+     * @return              The amount in the locale's currency format, e.g. $12.05
+     */
+    public synchronized String formatAmount(long minorUnits) {
+        String formatted = this.amountsByMinorUnits.get(minorUnits);
+        if (formatted == null) {
+            formatted = this.currencyFormat.format(Money.toDouble(minorUnits));
+            this.amountsByMinorUnits.put(minorUnits, formatted);
+        }
+        return formatted;
+    }
+
+    /**
+     * @param amount    An amount in major units
+     * @return          The amount in the locale's currency format. Amounts which can't be stored as
+     *                  Money are still formatted, but not remembered
+     */
+    public String formatAmount(double amount) {
+        if (Money.isRepresentable(amount)) {
+            return this.formatAmount(Money.toMinorUnits(amount));
+        }
+
+        synchronized (this) {
+            return this.currencyFormat.format(amount);
+        }
+    }
+
+    /**
+     * @param epochDay  A date. See EpochDay
+     * @return          The date in the user's date format, e.g. 8/19/16
+     */
+    public synchronized String formatDate(int epochDay) {
+        String formatted = this.datesByEpochDay.get(epochDay);
+        if (formatted == null) {
+            this.calendar.clear();
+            this.calendar.set(EpochDay.getYear(epochDay), EpochDay.getCalendarMonth(epochDay), EpochDay.getDayOfMonth(epochDay));
+            formatted = this.dateFormat.format(this.calendar.getTime());
+            this.datesByEpochDay.put(epochDay, formatted);
+        }
+        return formatted;
+    }
+}
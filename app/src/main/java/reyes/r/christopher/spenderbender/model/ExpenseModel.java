@@ -18,15 +18,7 @@
 
 package reyes.r.christopher.spenderbender.model;
 
-import android.content.Context;
-import android.text.format.DateFormat;
-
-import java.math.RoundingMode;
-import java.text.NumberFormat;
 import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 
 /**
  * Created by Christopher R Reyes on 8/17/16.
@@ -36,9 +28,14 @@ import java.util.TimeZone;
 
 public class ExpenseModel {
     public static final long UNSAVED_EXPENSE = -1;
+    // Kept as typed rather than as Money, since a model may hold an amount Money can't, such as
+    // infinity, for ExpenseValidator to reject. Storage and totals use getAmountInMinorUnits()
     private final double amount;
     private final String name;
     private long id;
+
+    // Each date is kept as its year, month and day. Unlike an epoch day, this keeps invalid dates
+    // exactly as given, so they can still be validated. A Calendar is only made when one is asked for
     private final int yearIncurred;
     private final int monthIncurred;
     private final int dayIncurred;
@@ -46,8 +43,6 @@ public class ExpenseModel {
     private final int monthCreated;
     private final int dayCreated;
 
-    private final Calendar dateIncurred;
-
     /**
      * Creates an ExpenseModel for a new expense, setting the created timestamp to the current timestamp
      * @param name          A Description of the expense
@@ -63,17 +58,10 @@ public class ExpenseModel {
         this.monthIncurred = monthIncurred;
         this.dayIncurred = dayIncurred;
 
-        this.dateIncurred = (Calendar) Calendar.getInstance(TimeZone.getDefault(), Locale.getDefault()).clone();
-        dateIncurred.set(
-                this.yearIncurred,
-                this.monthIncurred,
-                this.dayIncurred
-        );
-
-        Calendar today = Calendar.getInstance(TimeZone.getDefault(), Locale.getDefault());
-        this.yearCreated = today.get(Calendar.YEAR);
-        this.monthCreated = today.get(Calendar.MONTH);
-        this.dayCreated = today.get(Calendar.DAY_OF_MONTH);
+        int today = EpochDay.today();
+        this.yearCreated = EpochDay.getYear(today);
+        this.monthCreated = EpochDay.getCalendarMonth(today);
+        this.dayCreated = EpochDay.getDayOfMonth(today);
 
         this.id = UNSAVED_EXPENSE;
     }
@@ -97,31 +85,46 @@ public class ExpenseModel {
         this.yearIncurred = yearIncurred;
         this.monthIncurred = monthIncurred;
         this.dayIncurred = dayIncurred;
-
-        this.dateIncurred = (Calendar) Calendar.getInstance(TimeZone.getDefault(), Locale.getDefault()).clone();
-        dateIncurred.set(
-                this.yearIncurred,
-                this.monthIncurred,
-                this.dayIncurred
-        );
-
         this.yearCreated = yearCreated;
         this.monthCreated = monthCreated;
         this.dayCreated = dayCreated;
         this.id = id;
     }
 
+    /**
+     * Creates an ExpenseModel for an existing expense whose dates are stored as epoch days.
+     * A factory rather than a constructor, since its arguments would be mistaken for the
+     * new expense constructor's year, month and day
+     * @param name              A Description of the expense
+     * @param amount            The amount of the expense
+     * @param epochDayIncurred  The date the expense was incurred. See EpochDay
+     * @param epochDayCreated   The date the expense was first created in the system. See EpochDay
+     * @param id                The primary key which allows the expense to be uniquely identified
+     */
+    public static ExpenseModel fromEpochDays(String name, double amount, int epochDayIncurred, int epochDayCreated, long id) {
+        return new ExpenseModel(name, amount,
+                EpochDay.getYear(epochDayIncurred), EpochDay.getCalendarMonth(epochDayIncurred), EpochDay.getDayOfMonth(epochDayIncurred),
+                EpochDay.getYear(epochDayCreated), EpochDay.getCalendarMonth(epochDayCreated), EpochDay.getDayOfMonth(epochDayCreated),
+                id);
+    }
+
     public double getAmount() {
         return this.amount;
     }
 
     /**
-     * @return the amount of this expense, expressed as a string
+     * @return the amount of this expense as a whole number of minor units. See Money
+     * @throws ArithmeticException if the amount is too large to be stored as Money
+     */
+    public long getAmountInMinorUnits() throws ArithmeticException {
+        return Money.toMinorUnits(this.amount);
+    }
+
+    /**
+     * @return the amount of this expense, expressed as a string in the default locale. See ExpenseFormatter
      */
     public String getAmountAsString() {
-        NumberFormat formatter = NumberFormat.getCurrencyInstance(Locale.getDefault());
-        formatter.setRoundingMode(RoundingMode.HALF_UP);
-        return formatter.format(this.amount);
+        return ExpenseFormatter.getInstance().formatAmount(this.amount);
     }
 
     public String getName() {
@@ -141,10 +144,27 @@ public class ExpenseModel {
     }
 
     /**
-     * @return the date the expense was incurred, expressed as a short string in the default locale
+     * @return the date the expense was incurred, as the number of days since January 1st, 1970. See EpochDay
      */
-    public String getShortDateIncurred(Context context) {
-        return DateFormat.getDateFormat(context).format(new Date(this.dateIncurred.getTimeInMillis()));
+    public int getEpochDayIncurred() {
+        return EpochDay.of(this.getYearIncurred(), this.getMonthIncurred(), this.getDayIncurred());
+    }
+
+    /**
+     * @return a new Calendar set to the start of the day the expense was incurred, in the default time zone
+     */
+    public Calendar getDateIncurred() {
+        Calendar dateIncurred = Calendar.getInstance();
+        dateIncurred.clear();
+        dateIncurred.set(this.getYearIncurred(), this.getMonthIncurred(), this.getDayIncurred());
+        return dateIncurred;
+    }
+
+    /**
+     * @return the date the expense was incurred, expressed as a short string in the default locale. See ExpenseFormatter
+     */
+    public String getShortDateIncurred() {
+        return ExpenseFormatter.getInstance().formatDate(this.getEpochDayIncurred());
     }
 
     public int getYearCreated() {
@@ -159,6 +179,13 @@ public class ExpenseModel {
         return this.dayCreated;
     }
 
+    /**
+     * @return the date the expense was first created in the system. See EpochDay
+     */
+    public int getEpochDayCreated() {
+        return EpochDay.of(this.getYearCreated(), this.getMonthCreated(), this.getDayCreated());
+    }
+
     public long getId() {
         return this.id;
     }
@@ -0,0 +1,135 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.model;
+
+import java.util.GregorianCalendar;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * The rules an expense must meet before it can be saved. Shared by everything which creates
+ * expenses, so that an expense typed in by hand and one imported from a file are held to the same rules
+ */
+
+public final class ExpenseValidator {
+
+    private ExpenseValidator() {
+    }
+
+    /**
+     * @return true if every field is specified and the date exists
+     */
+    public static boolean isValidExpense(String name, double amount, int year, int month, int day) {
+        return (
+                isValidName(name) &&
+                        ! name.isEmpty() &&
+                        isValidAmount(amount) &&
+                        isValidYear(year) &&
+                        isValidMonth(month) &&
+                        isValidDay(day) &&
+                        isValidDate(year, month, day)
+        );
+    }
+
+    /**
+     * Checks whether or not the name is a valid String
+     * @param name
+     * @return true if the name is not null. An empty name is valid while it is being typed
+     */
+    public static boolean isValidName(String name) {
+        return ( name != null );
+    }
+
+    /**
+     * Validates that the amount of the transaction is valid
+     * Any finite amount that can be stored exactly as Money is valid
+     * @param amount
+     * @return true if the amount is valid
+     */
+    public static boolean isValidAmount(double amount) {
+        return Money.isRepresentable(amount);
+    }
+
+    /**
+     * Validates that the amount of the transaction is valid
+     * Also checks the conversion from String to double
+     * @param amount
+     * @return true if the amount is a number which is valid
+     */
+    public static boolean isValidAmount(String amount) {
+        double formattedAmount;
+        try {
+            formattedAmount = Double.valueOf(amount);
+        } catch (NumberFormatException | NullPointerException e) {
+            return Boolean.FALSE;
+        }
+        return isValidAmount(formattedAmount);
+    }
+
+    /**
+     * Determines if the specified year is a valid year for the transaction.
+     * Unfortunately, years before 1000 AD are not supported
+     * @param year
+     * @return true if year is valid for this transaction
+     */
+    public static boolean isValidYear(int year) {
+        // Require that years be at least 4 digits for the purpose of validating specific dates.
+        // Sorry, that means no ancient transactions for you!
+        return year >= 1000;
+    }
+
+    /**
+     * Checks whether the supplied month is valid or not
+     * @param month
+     * @return true if the month is one of the months defined in the Calendar class
+     */
+    public static boolean isValidMonth(int month) {
+        return ( month >= GregorianCalendar.JANUARY && month <= GregorianCalendar.DECEMBER );
+    }
+
+    /**
+     * Does a brief check to see if the day could be a valid day of the month
+     * @param day - The day to check
+     * @return true if the day could be a valid day for some month
+     */
+    public static boolean isValidDay(int day) {
+        // Do a gut-check that the day is valid.
+        // If we want to know if the day is actually valid for the given month, then use isValidDate
+        return (day >= 1 && day <= 31);
+    }
+
+    /**
+     * Validates that the specified date is a valid date
+     * @param year
+     * @param month
+     * @param day
+     * @return true if the date will ever exist or has already happened
+     */
+    public static boolean isValidDate(int year, int month, int day) {
+        GregorianCalendar testDate = new GregorianCalendar(year, month, day);
+        testDate.setLenient(Boolean.FALSE);
+        try {
+            testDate.getTime();
+        } catch (IllegalArgumentException e ) {
+            return Boolean.FALSE;
+        }
+
+        return Boolean.TRUE;
+    }
+}
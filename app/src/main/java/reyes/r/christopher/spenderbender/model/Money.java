@@ -0,0 +1,151 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * An exact amount of money, stored as a whole number of minor units (hundredths of the major unit).
+ * Adding and comparing amounts never loses precision, unlike adding doubles.
+ *
+ * The static methods work directly on minor units so hot loops (like summing a year of expenses)
+ * don't need to allocate a Money per value.
+ */
+
+public final class Money implements Comparable<Money> {
+    public static final int MINOR_UNITS_PER_MAJOR_UNIT = 100;
+    private static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    public Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * @param amount    An amount in major units, e.g. 12.34
+     * @return          The amount as Money, rounded half away from zero to the nearest minor unit
+     * @throws ArithmeticException if the amount is not finite or too large to represent
+     */
+    public static Money fromDouble(double amount) throws ArithmeticException {
+        return new Money(toMinorUnits(amount));
+    }
+
+    public long getMinorUnits() {
+        return this.minorUnits;
+    }
+
+    /**
+     * @return This amount in major units. Only use this for display or for legacy APIs
+     */
+    public double toDouble() {
+        return toDouble(this.minorUnits);
+    }
+
+    public Money plus(Money other) throws ArithmeticException {
+        return new Money(add(this.minorUnits, other.minorUnits));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return compare(this.minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money && ((Money) other).minorUnits == this.minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (this.minorUnits ^ (this.minorUnits >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return BigDecimal.valueOf(this.minorUnits, SCALE).toPlainString();
+    }
+
+    /**
+     * @param amount    An amount in major units, e.g. 12.34
+     * @return          The amount in minor units, rounded half away from zero
+     * @throws ArithmeticException if the amount is not finite or too large to represent
+     */
+    public static long toMinorUnits(double amount) throws ArithmeticException {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new ArithmeticException("Amount [" + amount + "] is not a finite number");
+        }
+
+        return BigDecimal.valueOf(amount)
+                .setScale(SCALE, RoundingMode.HALF_UP)
+                .movePointRight(SCALE)
+                .longValueExact();
+    }
+
+    /**
+     * @param amount    An amount in major units
+     * @return          true if the amount can be stored as Money without overflowing
+     */
+    public static boolean isRepresentable(double amount) {
+        try {
+            toMinorUnits(amount);
+        } catch (ArithmeticException e) {
+            return Boolean.FALSE;
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * @param minorUnits    An amount in minor units
+     * @return              The amount in major units
+     */
+    public static double toDouble(long minorUnits) {
+        return (double) minorUnits / MINOR_UNITS_PER_MAJOR_UNIT;
+    }
+
+    /**
+     * Adds two amounts in minor units without allocating
+     * @return The sum, in minor units
+     * @throws ArithmeticException if the sum overflows
+     */
+    public static long add(long minorUnits1, long minorUnits2) throws ArithmeticException {
+        long sum = minorUnits1 + minorUnits2;
+
+        // Overflow happened if both inputs have the same sign and the sum's sign differs from it
+        if (((minorUnits1 ^ sum) & (minorUnits2 ^ sum)) < 0) {
+            throw new ArithmeticException("Sum of money amounts overflows");
+        }
+
+        return sum;
+    }
+
+    /**
+     * Compares two amounts in minor units without allocating
+     * @return A negative number, zero, or a positive number as the first amount is less than,
+     *         equal to, or greater than the second
+     */
+    public static int compare(long minorUnits1, long minorUnits2) {
+        return minorUnits1 < minorUnits2 ? -1 : (minorUnits1 == minorUnits2 ? 0 : 1);
+    }
+}
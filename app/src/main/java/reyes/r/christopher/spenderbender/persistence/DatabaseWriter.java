@@ -0,0 +1,298 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Applies writes to the database on a single background thread.
+ * Writes are queued by any thread. The writer takes everything that has queued up since its last
+ * commit and applies it in one transaction, so a burst of writes shares a single journal sync and
+ * callers never wait on the database themselves.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class DatabaseWriter implements Runnable {
+    // Upper bound on the writes committed together, so one transaction can't grow without limit
+    static final int MaxBatchSize = 256;
+
+    /**
+     * A single change to the database
+     * @param <T> The type of result the change produces
+     */
+    abstract static class Write<T> {
+
+        /**
+         * Applies the change. Runs on the writer thread inside the batch's transaction
+         * @param db    The database to change
+         * @return      The result to hand to the caller once the batch has committed
+         */
+        abstract T apply(SQLiteDatabase db);
+
+        /**
+         * Called on the writer thread if the batch's transaction was rolled back after apply()
+         * succeeded, so the write can undo any changes it made outside of the database
+         */
+        void onRolledBack() {
+            // Nothing to undo by default
+        }
+    }
+
+    /**
+     * A queued write, which doubles as the Future handed back to the caller.
+     * The result is only published once the transaction holding the write has finished.
+     * A queued write is always applied, so it can't be cancelled
+     */
+    private static class PendingWrite<T> implements Future<T> {
+        private final Write<T> write;
+        private final WriteCallback<T> callback;
+
+        // Only touched on the writer thread until the write is done
+        private boolean isApplied = Boolean.FALSE;
+        private T result;
+        private Exception failure;
+
+        // Guarded by this
+        private boolean isDone = Boolean.FALSE;
+
+        PendingWrite(@Nullable Write<T> write, @Nullable WriteCallback<T> callback) {
+            this.write = write;
+            this.callback = callback;
+        }
+
+        /**
+         * Applies the write, remembering rather than throwing any failure so that the rest of the
+         * batch can still commit
+         */
+        void apply(SQLiteDatabase db) {
+            try {
+                this.result = this.write.apply(db);
+                this.isApplied = Boolean.TRUE;
+            } catch (RuntimeException e) {
+                this.failure = e;
+            }
+        }
+
+        void finish(@Nullable Exception transactionFailure) {
+            // The transaction may have failed before this write was even applied, such as when the
+            // database couldn't be opened. Either way nothing was committed
+            if (transactionFailure != null) {
+                if (this.isApplied) {
+                    this.write.onRolledBack();
+                }
+                this.failure = transactionFailure;
+            }
+
+            synchronized (this) {
+                this.isDone = Boolean.TRUE;
+                this.notifyAll();
+            }
+
+            if (this.callback != null) {
+                if (this.failure == null) {
+                    this.callback.onWritten(this.result);
+                }
+                else {
+                    this.callback.onFailed(this.failure);
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return Boolean.FALSE;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return Boolean.FALSE;
+        }
+
+        @Override
+        public synchronized boolean isDone() {
+            return this.isDone;
+        }
+
+        @Override
+        public synchronized T get() throws InterruptedException, ExecutionException {
+            while (! this.isDone) {
+                this.wait();
+            }
+            return this.getResult();
+        }
+
+        @Override
+        public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (! this.isDone) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException("Write was not committed in time");
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return this.getResult();
+        }
+
+        private T getResult() throws ExecutionException {
+            if (this.failure != null) {
+                throw new ExecutionException(this.failure);
+            }
+            return this.result;
+        }
+    }
+
+    // Queued after the last write to stop the writer
+    private final PendingWrite<Void> stopMarker = new PendingWrite<>(null, null);
+
+    private final LocalDatabaseHandler databaseHandler;
+    private final LinkedBlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+
+    private final Object stateLock = new Object();
+    private boolean isStopped = Boolean.FALSE;
+
+    /**
+     * Creates a writer and starts its thread
+     * @param databaseHandler   The handler whose writable database the writer changes
+     */
+    DatabaseWriter(LocalDatabaseHandler databaseHandler) {
+        this.databaseHandler = databaseHandler;
+
+        this.thread = new Thread(this, "SpenderBender database writer");
+        this.thread.start();
+    }
+
+    /**
+     * Queues a write to be committed with whatever else is queued when the writer gets to it
+     * @param write     The write to apply
+     * @param callback  Told of the outcome on the writer thread. Optional
+     * @return          A Future that completes once the write's transaction has finished
+     * @throws IllegalStateException if the writer has been stopped
+     */
+    <T> Future<T> submit(Write<T> write, @Nullable WriteCallback<T> callback) {
+        PendingWrite<T> pendingWrite = new PendingWrite<>(write, callback);
+
+        synchronized (this.stateLock) {
+            if (this.isStopped) {
+                throw new IllegalStateException("Cannot queue a write after the database writer has stopped");
+            }
+            this.queue.add(pendingWrite);
+        }
+
+        return pendingWrite;
+    }
+
+    /**
+     * Stops accepting writes and waits until everything already queued has been committed
+     */
+    void stop() {
+        synchronized (this.stateLock) {
+            if (this.isStopped) {
+                return;
+            }
+            this.isStopped = Boolean.TRUE;
+            this.queue.add(this.stopMarker);
+        }
+
+        // A callback closing the database can't wait for its own thread
+        if (Thread.currentThread() == this.thread) {
+            return;
+        }
+
+        boolean isInterrupted = Boolean.FALSE;
+        while (this.thread.isAlive()) {
+            try {
+                this.thread.join();
+            } catch (InterruptedException e) {
+                isInterrupted = Boolean.TRUE;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        List<PendingWrite<?>> batch = new ArrayList<>(MaxBatchSize);
+        boolean isStopping = Boolean.FALSE;
+
+        while (! isStopping) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException e) {
+                // Only stop() ends the writer, so that queued writes are never dropped
+                continue;
+            }
+            this.queue.drainTo(batch, MaxBatchSize - 1);
+
+            isStopping = batch.remove(this.stopMarker);
+
+            if (! batch.isEmpty()) {
+                commit(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Applies a batch of writes in a single transaction, then completes each of them
+     */
+    private void commit(List<PendingWrite<?>> batch) {
+        Exception transactionFailure = null;
+
+        try {
+            SQLiteDatabase db = this.databaseHandler.getWritableDatabase();
+
+            db.beginTransactionNonExclusive();
+            try {
+                for (PendingWrite<?> pendingWrite : batch) {
+                    pendingWrite.apply(db);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (RuntimeException e) {
+            // Every write in the batch is told about the failure through its Future and callback
+            transactionFailure = e;
+        }
+
+        for (PendingWrite<?> pendingWrite : batch) {
+            try {
+                pendingWrite.finish(transactionFailure);
+            } catch (RuntimeException e) {
+                // A misbehaving callback must not take the writer down with it. Its Future is
+                // already complete, so the caller still sees the outcome
+            }
+        }
+    }
+}
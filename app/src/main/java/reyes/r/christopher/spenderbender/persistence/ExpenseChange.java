@@ -0,0 +1,95 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * One entry in the change journal. See LocalDatabaseHandler.getChangesSince()
+ */
+
+public class ExpenseChange {
+
+    public enum Type {
+        ADDED(0),
+        UPDATED(1),
+        DELETED(2),
+        /**
+         * Any expense may have changed, as after restoring a snapshot, or changes were discarded
+         * before they were read. Consumers must reload everything
+         */
+        RESET(3);
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        /**
+         * @return The number stored in the database for this type
+         */
+        int getCode() {
+            return this.code;
+        }
+
+        static Type fromCode(int code) throws IllegalArgumentException {
+            for (Type type : Type.values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown change type [" + code + "]");
+        }
+    }
+
+    private final long sequence;
+    private final long expenseId;
+    private final Type type;
+
+    ExpenseChange(long sequence, long expenseId, Type type) {
+        this.sequence = sequence;
+        this.expenseId = expenseId;
+        this.type = type;
+    }
+
+    /**
+     * @return The change's place in the journal. Later changes always have larger sequence numbers
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * @return The Id of the changed expense, or ExpenseModel.UNSAVED_EXPENSE for a RESET
+     */
+    public long getExpenseId() {
+        return this.expenseId;
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    static ExpenseChange reset(long sequence) {
+        return new ExpenseChange(sequence, ExpenseModel.UNSAVED_EXPENSE, Type.RESET);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Holds the schema for the Expense Change Table: a journal with one row per change to an expense.
+ * Its auto-incrementing primary key is the change's sequence number, which only ever increases,
+ * even after old changes are discarded.
+ * The journal is written by triggers on the Transaction and Payee Tables, so every change is
+ * recorded in the same transaction as the change itself.
+ */
+
+class ExpenseChangeContract {
+    static final String TableName = "expensechange";
+
+    static final SQLiteColumnDefinition Sequence = SQLiteColumnDefinition.StandardPrimaryKey();
+    // Null for a change to every expense at once. See ExpenseChange.Type.RESET
+    static final SQLiteColumnDefinition ExpenseId = new SQLiteColumnDefinition(
+            "expenseid",                            // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.FALSE                           // isNotNull
+    );
+    // See ExpenseChange.Type
+    static final SQLiteColumnDefinition ChangeType = new SQLiteColumnDefinition(
+            "changetype",                           // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+
+    static ArrayList<SQLiteColumnDefinition> AllColumns;
+    static {
+        AllColumns = new ArrayList<>(3);
+        AllColumns.add(Sequence);
+        AllColumns.add(ExpenseId);
+        AllColumns.add(ChangeType);
+    }
+
+    // Changes are only ever read in sequence order, which the primary key already provides
+    static final SQLiteTableSchema schema = new SQLiteTableSchema( TableName, AllColumns );
+
+    /**
+     * @param expenseId - The SQL for the changed expense's Id, such as "NEW._id"
+     * @return A statement which records a change of the given type to one expense
+     */
+    private static String recordChangeStatement(String expenseId, ExpenseChange.Type type) {
+        return String.format(Locale.US,
+                "INSERT INTO %1$s ( %2$s, %3$s ) VALUES ( %4$s, %5$d )",
+                TableName, ExpenseId.getName(), ChangeType.getName(), expenseId, type.getCode()
+        );
+    }
+
+    static final SQLiteTriggerDefinition AfterInsertTrigger = new SQLiteTriggerDefinition(
+            "expensechange_after_insert",           // Trigger Name
+            TransactionContract.TableName,          // Table
+            SQLiteTriggerDefinition.Timing.AFTER,
+            SQLiteTriggerDefinition.Event.INSERT,
+            Collections.singletonList(recordChangeStatement("NEW." + TransactionContract.PrimaryKey.getName(), ExpenseChange.Type.ADDED))
+    );
+
+    static final SQLiteTriggerDefinition AfterUpdateTrigger = new SQLiteTriggerDefinition(
+            "expensechange_after_update",           // Trigger Name
+            TransactionContract.TableName,          // Table
+            SQLiteTriggerDefinition.Timing.AFTER,
+            SQLiteTriggerDefinition.Event.UPDATE,
+            Collections.singletonList(recordChangeStatement("NEW." + TransactionContract.PrimaryKey.getName(), ExpenseChange.Type.UPDATED))
+    );
+
+    static final SQLiteTriggerDefinition AfterDeleteTrigger = new SQLiteTriggerDefinition(
+            "expensechange_after_delete",           // Trigger Name
+            TransactionContract.TableName,          // Table
+            SQLiteTriggerDefinition.Timing.AFTER,
+            SQLiteTriggerDefinition.Event.DELETE,
+            Collections.singletonList(recordChangeStatement("OLD." + TransactionContract.PrimaryKey.getName(), ExpenseChange.Type.DELETED))
+    );
+
+    // Renaming a payee renames every one of its expenses
+    static final SQLiteTriggerDefinition AfterPayeeRenameTrigger = new SQLiteTriggerDefinition(
+            "expensechange_after_payee_rename",     // Trigger Name
+            PayeeContract.TableName,                // Table
+            SQLiteTriggerDefinition.Timing.AFTER,
+            SQLiteTriggerDefinition.Event.UPDATE,
+            Collections.singletonList(PayeeContract.CanonicalName),
+            Collections.singletonList(String.format(Locale.US,
+                    "INSERT INTO %1$s ( %2$s, %3$s ) SELECT %4$s, %5$d FROM %6$s WHERE %7$s = NEW.%8$s",
+                    TableName, ExpenseId.getName(), ChangeType.getName(),
+                    TransactionContract.PrimaryKey.getName(), ExpenseChange.Type.UPDATED.getCode(),
+                    TransactionContract.TableName, TransactionContract.PayeeId.getName(), PayeeContract.PrimaryKey.getName()
+            ))
+    );
+
+    static ArrayList<SQLiteTriggerDefinition> AllTriggers;
+    static {
+        AllTriggers = new ArrayList<>(4);
+        AllTriggers.add(AfterInsertTrigger);
+        AllTriggers.add(AfterUpdateTrigger);
+        AllTriggers.add(AfterDeleteTrigger);
+        AllTriggers.add(AfterPayeeRenameTrigger);
+    }
+
+    /**
+     * @return A statement which records that every expense may have changed at once
+     */
+    static String generateResetSQL() {
+        return recordChangeStatement("NULL", ExpenseChange.Type.RESET);
+    }
+}
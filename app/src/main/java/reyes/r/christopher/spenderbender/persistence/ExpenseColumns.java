@@ -0,0 +1,290 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Every expense held column by column in primitive arrays, in order of Id, for analytics and list
+ * rendering. Each row costs about 24 bytes, rather than the hundreds an ExpenseModel costs, and
+ * reading a row by its position doesn't create any objects. Each payee's name is held once.
+ *
+ * Load one with LocalDatabaseHandler.loadExpenseColumns(), and bring it up to date with
+ * LocalDatabaseHandler.refreshExpenseColumns(), which only reads the expenses that changed.
+ * New expenses have the largest Ids, so they are appended to the end.
+ *
+ * Rows are also grouped into blocks of BlockSize, with the range of dates each block covers, so
+ * work on a range of dates can skip the blocks outside it without reading their rows.
+ *
+ * Not thread safe. Don't read it while it is being refreshed.
+ */
+
+public final class ExpenseColumns {
+    /**
+     * The number of rows in each block. See getBlockCount()
+     */
+    public static final int BlockSize = 1024;
+
+    private static final int InitialCapacity = 16;
+
+    private long[] ids;
+    private long[] amountsInMinorUnits;
+    private int[] epochDaysIncurred;
+    private int[] payeeIds;
+    private int size = 0;
+
+    // Indexed by payee Id
+    private String[] payeeNames = new String[InitialCapacity];
+
+    // The last change in the journal that these columns reflect. See ExpenseChange
+    private long changeSequence;
+
+    // The earliest and latest date incurred in each block, worked out again after any change
+    private int[] blockFirstEpochDays = new int[0];
+    private int[] blockLastEpochDays = new int[0];
+    private boolean areBlockDaysCurrent = Boolean.FALSE;
+
+    ExpenseColumns(int capacity, long changeSequence) {
+        this.allocate(Math.max(capacity, InitialCapacity));
+        this.changeSequence = changeSequence;
+    }
+
+    /**
+     * @return The number of expenses
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public long getId(int index) {
+        return this.ids[index];
+    }
+
+    /**
+     * @return The amount of the expense at index, in minor units. See Money
+     */
+    public long getAmountInMinorUnits(int index) {
+        return this.amountsInMinorUnits[index];
+    }
+
+    /**
+     * @return The date the expense at index was incurred. See EpochDay
+     */
+    public int getEpochDayIncurred(int index) {
+        return this.epochDaysIncurred[index];
+    }
+
+    /**
+     * @return The Id of the payee of the expense at index. Expenses with the same payee have the same name
+     */
+    public int getPayeeId(int index) {
+        return this.payeeIds[index];
+    }
+
+    /**
+     * @return The name of the expense at index. The same String is returned for every expense of a payee
+     */
+    public String getName(int index) {
+        return this.payeeNames[this.payeeIds[index]];
+    }
+
+    /**
+     * @param payeeId   The Id of a payee of one of these expenses
+     * @return          The payee's name
+     */
+    public String getPayeeName(int payeeId) {
+        return this.payeeNames[payeeId];
+    }
+
+    /**
+     * @return The position of the expense with the given Id, or -1 if there is no such expense
+     */
+    public int indexOf(long id) {
+        int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Works out the range of dates each block covers, if the expenses have changed since it was
+     * last worked out. Ids roughly follow the order expenses were entered in, which mostly follows
+     * the order they were incurred in, so most blocks only cover a short range of dates.
+     * The block getters build the index themselves when they need to, but that changes the
+     * columns, so call this before they're read from other threads
+     */
+    public void ensureBlockIndex() {
+        if (!this.areBlockDaysCurrent) {
+            this.findBlockDays();
+        }
+    }
+
+    /**
+     * @return The number of blocks. Block n holds the rows from n * BlockSize up to the next block's
+     */
+    public int getBlockCount() {
+        this.ensureBlockIndex();
+        return this.blockFirstEpochDays.length;
+    }
+
+    /**
+     * @return The earliest date incurred of the expenses in a block. See getBlockCount() and EpochDay
+     */
+    public int getBlockFirstEpochDay(int block) {
+        this.ensureBlockIndex();
+        return this.blockFirstEpochDays[block];
+    }
+
+    /**
+     * @return The latest date incurred of the expenses in a block. See getBlockCount() and EpochDay
+     */
+    public int getBlockLastEpochDay(int block) {
+        this.ensureBlockIndex();
+        return this.blockLastEpochDays[block];
+    }
+
+    /**
+     * @return The sequence number of the last change these columns include. See ExpenseChange
+     */
+    public long getChangeSequence() {
+        return this.changeSequence;
+    }
+
+    void setChangeSequence(long changeSequence) {
+        this.changeSequence = changeSequence;
+    }
+
+    /**
+     * Adds an expense, or replaces the one with the same Id
+     * @param id                    The Id of the expense
+     * @param amountInMinorUnits    The amount of the expense. See Money
+     * @param epochDayIncurred      The date the expense was incurred. See EpochDay
+     * @param payeeId               The Id of the expense's payee
+     * @param name                  The payee's name
+     */
+    void put(long id, long amountInMinorUnits, int epochDayIncurred, int payeeId, String name) {
+        int index;
+        if (this.size == 0 || id > this.ids[this.size - 1]) {
+            // New expenses always have the largest Id, so this is the usual case
+            index = this.size;
+            this.openGap(index);
+        }
+        else {
+            index = Arrays.binarySearch(this.ids, 0, this.size, id);
+            if (index < 0) {
+                index = -(index + 1);
+                this.openGap(index);
+            }
+        }
+
+        this.ids[index] = id;
+        this.amountsInMinorUnits[index] = amountInMinorUnits;
+        this.epochDaysIncurred[index] = epochDayIncurred;
+        this.payeeIds[index] = payeeId;
+        this.putPayee(payeeId, name);
+        this.areBlockDaysCurrent = Boolean.FALSE;
+    }
+
+    /**
+     * Removes the expense with the given Id, if there is one
+     */
+    void remove(long id) {
+        int index = this.indexOf(id);
+        if (index < 0) {
+            return;
+        }
+
+        int moved = this.size - index - 1;
+        System.arraycopy(this.ids, index + 1, this.ids, index, moved);
+        System.arraycopy(this.amountsInMinorUnits, index + 1, this.amountsInMinorUnits, index, moved);
+        System.arraycopy(this.epochDaysIncurred, index + 1, this.epochDaysIncurred, index, moved);
+        System.arraycopy(this.payeeIds, index + 1, this.payeeIds, index, moved);
+        this.size--;
+        this.areBlockDaysCurrent = Boolean.FALSE;
+    }
+
+    /**
+     * Removes every expense
+     * @param capacity  The number of expenses about to be put, so the arrays are only allocated once
+     */
+    void clear(int capacity) {
+        this.size = 0;
+        this.areBlockDaysCurrent = Boolean.FALSE;
+        if (capacity > this.ids.length) {
+            this.allocate(capacity);
+        }
+    }
+
+    private void findBlockDays() {
+        int blocks = (this.size + BlockSize - 1) / BlockSize;
+        if (blocks != this.blockFirstEpochDays.length) {
+            this.blockFirstEpochDays = new int[blocks];
+            this.blockLastEpochDays = new int[blocks];
+        }
+
+        for (int block = 0; block < blocks; block++) {
+            int first = Integer.MAX_VALUE;
+            int last = Integer.MIN_VALUE;
+            int end = Math.min(this.size, (block + 1) * BlockSize);
+            for (int i = block * BlockSize; i < end; i++) {
+                first = Math.min(first, this.epochDaysIncurred[i]);
+                last = Math.max(last, this.epochDaysIncurred[i]);
+            }
+            this.blockFirstEpochDays[block] = first;
+            this.blockLastEpochDays[block] = last;
+        }
+        this.areBlockDaysCurrent = Boolean.TRUE;
+    }
+
+    private void allocate(int capacity) {
+        this.ids = new long[capacity];
+        this.amountsInMinorUnits = new long[capacity];
+        this.epochDaysIncurred = new int[capacity];
+        this.payeeIds = new int[capacity];
+    }
+
+    private void putPayee(int payeeId, String name) {
+        if (payeeId >= this.payeeNames.length) {
+            this.payeeNames = Arrays.copyOf(this.payeeNames, Math.max(payeeId + 1, this.payeeNames.length * 2));
+        }
+
+        // Equal names share one String, so each payee's name is only held once
+        String current = this.payeeNames[payeeId];
+        if (current == null || !current.equals(name)) {
+            this.payeeNames[payeeId] = name;
+        }
+    }
+
+    private void openGap(int index) {
+        if (this.size == this.ids.length) {
+            int newCapacity = this.ids.length * 2;
+            this.ids = Arrays.copyOf(this.ids, newCapacity);
+            this.amountsInMinorUnits = Arrays.copyOf(this.amountsInMinorUnits, newCapacity);
+            this.epochDaysIncurred = Arrays.copyOf(this.epochDaysIncurred, newCapacity);
+            this.payeeIds = Arrays.copyOf(this.payeeIds, newCapacity);
+        }
+
+        int moved = this.size - index;
+        System.arraycopy(this.ids, index, this.ids, index + 1, moved);
+        System.arraycopy(this.amountsInMinorUnits, index, this.amountsInMinorUnits, index + 1, moved);
+        System.arraycopy(this.epochDaysIncurred, index, this.epochDaysIncurred, index + 1, moved);
+        System.arraycopy(this.payeeIds, index, this.payeeIds, index + 1, moved);
+        this.size++;
+    }
+}
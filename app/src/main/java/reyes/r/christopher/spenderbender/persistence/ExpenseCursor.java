@@ -0,0 +1,131 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.database.Cursor;
+
+import java.io.Closeable;
+
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Streams expenses out of the database one row at a time.
+ * The getters always describe the current row, so a full pass over the table doesn't create an
+ * object per expense. Call toExpenseModel() only for the rows you need to keep.
+ * Must be closed when done.
+ */
+
+public class ExpenseCursor implements Closeable {
+    private final Cursor cursor;
+    private final ExpenseRowMapper rowMapper;
+
+    /**
+     * @param cursor    A cursor over full rows of the transaction table, positioned before the first row
+     */
+    ExpenseCursor(Cursor cursor) {
+        this.cursor = cursor;
+        this.rowMapper = new ExpenseRowMapper(cursor);
+    }
+
+    /**
+     * Advances to the next expense
+     * @return false once every expense has been visited
+     */
+    public boolean moveToNext() {
+        return this.cursor.moveToNext();
+    }
+
+    /**
+     * @return The number of expenses this cursor will visit in total
+     */
+    public int getCount() {
+        return this.cursor.getCount();
+    }
+
+    public long getId() {
+        return this.rowMapper.getId(this.cursor);
+    }
+
+    /**
+     * @return The Id of the current expense's payee. Expenses with the same payee have the same name
+     */
+    public long getPayeeId() {
+        return this.rowMapper.getPayeeId(this.cursor);
+    }
+
+    public String getName() {
+        return this.rowMapper.getName(this.cursor);
+    }
+
+    /**
+     * @return The amount of the current expense, exactly, in minor units. See Money
+     */
+    public long getAmountInMinorUnits() {
+        return this.rowMapper.getAmountInMinorUnits(this.cursor);
+    }
+
+    public double getAmount() {
+        return this.rowMapper.getAmount(this.cursor);
+    }
+
+    public int getYearIncurred() {
+        return this.rowMapper.getYearIncurred(this.cursor);
+    }
+
+    public int getMonthIncurred() {
+        return this.rowMapper.getMonthIncurred(this.cursor);
+    }
+
+    public int getDayIncurred() {
+        return this.rowMapper.getDayIncurred(this.cursor);
+    }
+
+    /**
+     * @return The date the current expense was incurred, as an epoch day. See EpochDay
+     */
+    public int getEpochDayIncurred() {
+        return this.rowMapper.getEpochDayIncurred(this.cursor);
+    }
+
+    public int getYearCreated() {
+        return this.rowMapper.getYearCreated(this.cursor);
+    }
+
+    public int getMonthCreated() {
+        return this.rowMapper.getMonthCreated(this.cursor);
+    }
+
+    public int getDayCreated() {
+        return this.rowMapper.getDayCreated(this.cursor);
+    }
+
+    /**
+     * @return A new ExpenseModel holding a copy of the current row
+     */
+    public ExpenseModel toExpenseModel() {
+        return this.rowMapper.toExpenseModel(this.cursor);
+    }
+
+    @Override
+    public void close() {
+        this.cursor.close();
+    }
+}
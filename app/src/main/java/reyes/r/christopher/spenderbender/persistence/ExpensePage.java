@@ -0,0 +1,119 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.support.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+import reyes.r.christopher.spenderbender.model.EpochDay;
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * One page of expenses, ordered by date incurred and then by Id, along with the key needed to
+ * fetch the page that follows it.
+ */
+
+public class ExpensePage {
+
+    /**
+     * Identifies a position in the expense ordering. A page fetched with a key only contains
+     * expenses which sort strictly after it.
+     */
+    public static class Key {
+        private final int yearIncurred;
+        private final int monthIncurred;
+        private final int dayIncurred;
+        private final int epochDayIncurred;
+        private final long id;
+
+        public Key(int yearIncurred, int monthIncurred, int dayIncurred, long id) {
+            this.yearIncurred = yearIncurred;
+            this.monthIncurred = monthIncurred;
+            this.dayIncurred = dayIncurred;
+            this.epochDayIncurred = EpochDay.of(yearIncurred, monthIncurred, dayIncurred);
+            this.id = id;
+        }
+
+        /**
+         * @param expense   A saved expense
+         * @return          The key which positions a page immediately after the given expense
+         */
+        public static Key after(ExpenseModel expense) {
+            return new Key(
+                    expense.getYearIncurred(),
+                    expense.getMonthIncurred(),
+                    expense.getDayIncurred(),
+                    expense.getId()
+            );
+        }
+
+        public int getYearIncurred() {
+            return this.yearIncurred;
+        }
+
+        public int getMonthIncurred() {
+            return this.monthIncurred;
+        }
+
+        public int getDayIncurred() {
+            return this.dayIncurred;
+        }
+
+        public int getEpochDayIncurred() {
+            return this.epochDayIncurred;
+        }
+
+        public long getId() {
+            return this.id;
+        }
+    }
+
+    private final List<ExpenseModel> expenses;
+    private final Key nextKey;
+
+    /**
+     * @param expenses  The expenses on this page, in order
+     * @param nextKey   The key of the following page, or null if this is the last page
+     */
+    ExpensePage(List<ExpenseModel> expenses, @Nullable Key nextKey) {
+        this.expenses = Collections.unmodifiableList(expenses);
+        this.nextKey = nextKey;
+    }
+
+    public List<ExpenseModel> getExpenses() {
+        return this.expenses;
+    }
+
+    /**
+     * @return The key to pass to LocalDatabaseHandler.getExpensePage() for the next page,
+     *         or null if there are no more expenses
+     */
+    @Nullable
+    public Key getNextKey() {
+        return this.nextKey;
+    }
+
+    public boolean hasNextPage() {
+        return this.nextKey != null;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.List;
+
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+import reyes.r.christopher.spenderbender.model.Money;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Converts between rows of the transaction table and ExpenseModels. Rows are read from
+ * TransactionContract.ExpenseView, which adds each expense's name, and written to the table itself.
+ * Column indices are looked up once when the mapper is created, so reading a row is just a
+ * series of indexed cursor reads.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class ExpenseRowMapper {
+    private final int idIndex;
+    private final int payeeIdIndex;
+    private final int nameIndex;
+    private final int amountIndex;
+    private final int yearIncurredIndex;
+    private final int monthIncurredIndex;
+    private final int dayIncurredIndex;
+    private final int epochDayIncurredIndex;
+    private final int yearCreatedIndex;
+    private final int monthCreatedIndex;
+    private final int dayCreatedIndex;
+
+    /**
+     * Resolves the position of every column in TransactionContract.AllViewColumns within the cursor
+     * @param cursor    A cursor over full rows of the expense view
+     * @throws IllegalArgumentException if the cursor is missing one of the columns
+     */
+    ExpenseRowMapper(Cursor cursor) throws IllegalArgumentException {
+        List<SQLiteColumnDefinition> columns = TransactionContract.AllViewColumns;
+
+        int[] cursorIndices = new int[columns.size()];
+        for (int i = 0; i < cursorIndices.length; i++) {
+            cursorIndices[i] = cursor.getColumnIndexOrThrow(columns.get(i).getName());
+        }
+
+        this.idIndex = cursorIndices[columns.indexOf(TransactionContract.PrimaryKey)];
+        this.payeeIdIndex = cursorIndices[columns.indexOf(TransactionContract.PayeeId)];
+        this.nameIndex = cursorIndices[columns.indexOf(TransactionContract.TransactionName)];
+        this.amountIndex = cursorIndices[columns.indexOf(TransactionContract.AmountInMinorUnits)];
+        this.yearIncurredIndex = cursorIndices[columns.indexOf(TransactionContract.YearIncurred)];
+        this.monthIncurredIndex = cursorIndices[columns.indexOf(TransactionContract.MonthIncurred)];
+        this.dayIncurredIndex = cursorIndices[columns.indexOf(TransactionContract.DayIncurred)];
+        this.epochDayIncurredIndex = cursorIndices[columns.indexOf(TransactionContract.EpochDayIncurred)];
+        this.yearCreatedIndex = cursorIndices[columns.indexOf(TransactionContract.YearCreated)];
+        this.monthCreatedIndex = cursorIndices[columns.indexOf(TransactionContract.MonthCreated)];
+        this.dayCreatedIndex = cursorIndices[columns.indexOf(TransactionContract.DayCreated)];
+    }
+
+    long getId(Cursor cursor) {
+        return cursor.getLong(this.idIndex);
+    }
+
+    long getPayeeId(Cursor cursor) {
+        return cursor.getLong(this.payeeIdIndex);
+    }
+
+    String getName(Cursor cursor) {
+        return cursor.getString(this.nameIndex);
+    }
+
+    long getAmountInMinorUnits(Cursor cursor) {
+        return cursor.getLong(this.amountIndex);
+    }
+
+    double getAmount(Cursor cursor) {
+        return Money.toDouble(getAmountInMinorUnits(cursor));
+    }
+
+    int getYearIncurred(Cursor cursor) {
+        return cursor.getInt(this.yearIncurredIndex);
+    }
+
+    int getMonthIncurred(Cursor cursor) {
+        return cursor.getInt(this.monthIncurredIndex);
+    }
+
+    int getDayIncurred(Cursor cursor) {
+        return cursor.getInt(this.dayIncurredIndex);
+    }
+
+    int getEpochDayIncurred(Cursor cursor) {
+        return cursor.getInt(this.epochDayIncurredIndex);
+    }
+
+    int getYearCreated(Cursor cursor) {
+        return cursor.getInt(this.yearCreatedIndex);
+    }
+
+    int getMonthCreated(Cursor cursor) {
+        return cursor.getInt(this.monthCreatedIndex);
+    }
+
+    int getDayCreated(Cursor cursor) {
+        return cursor.getInt(this.dayCreatedIndex);
+    }
+
+    /**
+     * @param cursor    The cursor this mapper was created for, positioned on a row
+     * @return          A new ExpenseModel holding the values of the current row
+     */
+    ExpenseModel toExpenseModel(Cursor cursor) {
+        return new ExpenseModel(
+                getName(cursor),
+                getAmount(cursor),
+                getYearIncurred(cursor),
+                getMonthIncurred(cursor),
+                getDayIncurred(cursor),
+                getYearCreated(cursor),
+                getMonthCreated(cursor),
+                getDayCreated(cursor),
+                getId(cursor)
+        );
+    }
+
+    /**
+     * Binds every insert column of the expense to the statement by index, without allocating
+     * @throws ArithmeticException if the expense's amount can't be stored as Money
+     * @param statement     A compiled TransactionContract.schema.getInsertStatement()
+     * @param expense       The expense to bind
+     * @param payeeId       The Id of the expense's payee. See PayeeDictionary
+     */
+    static void bindInsertArguments(SQLiteStatement statement, ExpenseModel expense, long payeeId) {
+        List<SQLiteColumnDefinition> insertColumns = TransactionContract.schema.getInsertColumns();
+
+        statement.clearBindings();
+        for (int i = 0; i < insertColumns.size(); i++) {
+            bindColumn(statement, i + 1, insertColumns.get(i), expense, payeeId);
+        }
+    }
+
+    /**
+     * Binds the value of a single column of the expense without boxing it
+     * @throws ArithmeticException if the expense's amount can't be stored as Money
+     * @param statement The statement to bind
+     * @param index     The 1-based parameter index
+     * @param column    The column whose value to bind
+     * @param expense   The expense holding the value
+     * @param payeeId   The Id of the expense's payee
+     */
+    private static void bindColumn(SQLiteStatement statement, int index, SQLiteColumnDefinition column, ExpenseModel expense, long payeeId) {
+        if (column == TransactionContract.PayeeId) {
+            statement.bindLong(index, payeeId);
+        }
+        else if (column == TransactionContract.AmountInMinorUnits) {
+            statement.bindLong(index, expense.getAmountInMinorUnits());
+        }
+        else if (column == TransactionContract.YearIncurred) {
+            statement.bindLong(index, expense.getYearIncurred());
+        }
+        else if (column == TransactionContract.MonthIncurred) {
+            statement.bindLong(index, expense.getMonthIncurred());
+        }
+        else if (column == TransactionContract.DayIncurred) {
+            statement.bindLong(index, expense.getDayIncurred());
+        }
+        else if (column == TransactionContract.EpochDayIncurred) {
+            statement.bindLong(index, expense.getEpochDayIncurred());
+        }
+        else if (column == TransactionContract.YearCreated) {
+            statement.bindLong(index, expense.getYearCreated());
+        }
+        else if (column == TransactionContract.MonthCreated) {
+            statement.bindLong(index, expense.getMonthCreated());
+        }
+        else if (column == TransactionContract.DayCreated) {
+            statement.bindLong(index, expense.getDayCreated());
+        }
+        else if (column == TransactionContract.PrimaryKey) {
+            statement.bindLong(index, expense.getId());
+        }
+        else {
+            throw new IllegalArgumentException("Column [" + column.getName() + "] is not part of an expense");
+        }
+    }
+}
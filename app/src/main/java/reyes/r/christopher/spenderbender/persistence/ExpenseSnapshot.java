@@ -0,0 +1,374 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import reyes.r.christopher.spenderbender.model.EpochDay;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * A compact binary copy of every payee and expense, for backups which can be restored in one pass.
+ * All numbers are big-endian. The layout is:
+ *
+ *   Header:   int magic, int format version, int payee count, int expense count
+ *   Payees:   for each payee, long Id, int name length in bytes, then the name in UTF-8
+ *   Expenses: for each expense, a fixed-width record of long Id, long payee Id,
+ *             long amount in minor units, int epoch day incurred, int epoch day created
+ *   Trailer:  int CRC32 of everything before it
+ *
+ * Payees are the snapshot's string table: each name is stored once, and expenses refer to it by Id.
+ * Everything else about an expense is derived from these fields, as it is in the database.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class ExpenseSnapshot {
+    static final int Magic = 0x53425350;    // "SBSP"
+    static final int FormatVersion = 1;
+
+    static final int HeaderSize = 16;
+    static final int ExpenseRecordSize = 32;
+    static final int TrailerSize = 4;
+
+    private static final String Encoding = "UTF-8";
+    private static final int BufferSize = 64 * 1024;
+
+    private final MappedByteBuffer buffer;
+    private final int payeeCount;
+    private final int expenseCount;
+
+    private ExpenseSnapshot(MappedByteBuffer buffer, int payeeCount, int expenseCount) {
+        this.buffer = buffer;
+        this.payeeCount = payeeCount;
+        this.expenseCount = expenseCount;
+    }
+
+    /**
+     * Every payee and expense, copied out of the database column by column, so the snapshot can be
+     * written to a file after the transaction it was read in has ended
+     */
+    static final class Contents {
+        private final long[] payeeIds;
+        private final String[] payeeNames;
+
+        private final long[] expenseIds;
+        private final long[] expensePayeeIds;
+        private final long[] amountsInMinorUnits;
+        private final int[] epochDaysIncurred;
+        private final int[] epochDaysCreated;
+
+        private Contents(int payeeCount, int expenseCount) {
+            this.payeeIds = new long[payeeCount];
+            this.payeeNames = new String[payeeCount];
+
+            this.expenseIds = new long[expenseCount];
+            this.expensePayeeIds = new long[expenseCount];
+            this.amountsInMinorUnits = new long[expenseCount];
+            this.epochDaysIncurred = new int[expenseCount];
+            this.epochDaysCreated = new int[expenseCount];
+        }
+
+        int getExpenseCount() {
+            return this.expenseIds.length;
+        }
+    }
+
+    /**
+     * Copies every payee and expense out of the database. Call inside a transaction, so that the
+     * copy can't catch the database part way through a change. Only the copy needs the transaction,
+     * so end it before writing the copy with write()
+     * @param db    The database to copy
+     * @return      The copy
+     */
+    static Contents read(SQLiteDatabase db) {
+        Cursor payees = db.query(
+                PayeeContract.TableName,
+                new String[] {PayeeContract.PrimaryKey.getName(), PayeeContract.CanonicalName.getName()},
+                null, null, null, null,
+                PayeeContract.PrimaryKey.getName()
+        );
+        Cursor expenses = db.query(
+                TransactionContract.TableName,
+                new String[] {
+                        TransactionContract.PrimaryKey.getName(),
+                        TransactionContract.PayeeId.getName(),
+                        TransactionContract.AmountInMinorUnits.getName(),
+                        TransactionContract.EpochDayIncurred.getName(),
+                        TransactionContract.YearCreated.getName(),
+                        TransactionContract.MonthCreated.getName(),
+                        TransactionContract.DayCreated.getName()
+                },
+                null, null, null, null,
+                TransactionContract.PrimaryKey.getName()
+        );
+        try {
+            Contents contents = new Contents(payees.getCount(), expenses.getCount());
+
+            for (int i = 0; payees.moveToNext(); i++) {
+                contents.payeeIds[i] = payees.getLong(0);
+                contents.payeeNames[i] = payees.getString(1);
+            }
+
+            for (int i = 0; expenses.moveToNext(); i++) {
+                contents.expenseIds[i] = expenses.getLong(0);
+                contents.expensePayeeIds[i] = expenses.getLong(1);
+                contents.amountsInMinorUnits[i] = expenses.getLong(2);
+                contents.epochDaysIncurred[i] = expenses.getInt(3);
+                contents.epochDaysCreated[i] = EpochDay.of(expenses.getInt(4), expenses.getInt(5), expenses.getInt(6));
+            }
+
+            return contents;
+        } finally {
+            payees.close();
+            expenses.close();
+        }
+    }
+
+    /**
+     * Writes a snapshot of a copy made by read(). Doesn't touch the database
+     * @param contents  The payees and expenses to write
+     * @param out       Where to write the snapshot. Flushed but not closed
+     * @return          The number of expenses written
+     * @throws IOException if the snapshot can't be written
+     */
+    static int write(Contents contents, OutputStream out) throws IOException {
+        int payeeCount = contents.payeeIds.length;
+        int expenseCount = contents.getExpenseCount();
+
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BufferSize);
+        CRC32 checksum = new CRC32();
+        DataOutputStream data = new DataOutputStream(new CheckedOutputStream(buffered, checksum));
+
+        data.writeInt(Magic);
+        data.writeInt(FormatVersion);
+        data.writeInt(payeeCount);
+        data.writeInt(expenseCount);
+
+        for (int i = 0; i < payeeCount; i++) {
+            byte[] name = contents.payeeNames[i].getBytes(Encoding);
+            data.writeLong(contents.payeeIds[i]);
+            data.writeInt(name.length);
+            data.write(name);
+        }
+
+        for (int i = 0; i < expenseCount; i++) {
+            data.writeLong(contents.expenseIds[i]);
+            data.writeLong(contents.expensePayeeIds[i]);
+            data.writeLong(contents.amountsInMinorUnits[i]);
+            data.writeInt(contents.epochDaysIncurred[i]);
+            data.writeInt(contents.epochDaysCreated[i]);
+        }
+
+        // The trailer goes around the checksum, so it isn't part of what it checks
+        data.flush();
+        new DataOutputStream(buffered).writeInt((int) checksum.getValue());
+        buffered.flush();
+
+        return expenseCount;
+    }
+
+    /**
+     * Maps a snapshot file into memory and checks it is whole, without touching the database
+     * @param file  A file written by write()
+     * @return      The snapshot, ready to load()
+     * @throws IOException if the file can't be read, isn't a snapshot, or is damaged
+     */
+    static ExpenseSnapshot open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            if (channel.size() < HeaderSize + TrailerSize) {
+                throw new IOException("Snapshot [" + file + "] is too short to be a snapshot");
+            }
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot [" + file + "] is too large to restore");
+            }
+            // The mapping stays valid once the file is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            input.close();
+        }
+
+        if (buffer.getInt(0) != Magic) {
+            throw new IOException("[" + file + "] is not a snapshot");
+        }
+        if (buffer.getInt(4) != FormatVersion) {
+            throw new IOException("Snapshot [" + file + "] has unsupported format version [" + buffer.getInt(4) + "]");
+        }
+
+        int checkedLength = buffer.capacity() - TrailerSize;
+        if (buffer.getInt(checkedLength) != (int) checksum(buffer, checkedLength)) {
+            throw new IOException("Snapshot [" + file + "] is damaged: its checksum does not match");
+        }
+
+        int payeeCount = buffer.getInt(8);
+        int expenseCount = buffer.getInt(12);
+        if (payeeCount < 0 || expenseCount < 0 || (long) expenseCount * ExpenseRecordSize > checkedLength - HeaderSize) {
+            throw new IOException("Snapshot [" + file + "] is damaged: its counts don't fit the file");
+        }
+
+        return new ExpenseSnapshot(buffer, payeeCount, expenseCount);
+    }
+
+    int getPayeeCount() {
+        return this.payeeCount;
+    }
+
+    int getExpenseCount() {
+        return this.expenseCount;
+    }
+
+    /**
+     * Inserts every payee and expense in the snapshot, keeping their Ids.
+     * The tables must be empty, and derived tables and triggers are left to the caller.
+     * Call inside a transaction, so that a snapshot which fails part way leaves nothing behind
+     * @param db    The database to restore into
+     * @return      The number of expenses inserted
+     * @throws IOException if the snapshot's contents don't match its header
+     */
+    int load(SQLiteDatabase db) throws IOException {
+        ByteBuffer input = this.buffer.duplicate();
+        input.position(HeaderSize);
+        input.limit(input.capacity() - TrailerSize);
+
+        try {
+            this.loadPayees(db, input);
+            this.loadExpenses(db, input);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot is damaged: it ends before its last record");
+        }
+
+        if (input.hasRemaining()) {
+            throw new IOException("Snapshot is damaged: it has data after its last record");
+        }
+
+        return this.expenseCount;
+    }
+
+    private void loadPayees(SQLiteDatabase db, ByteBuffer input) throws IOException {
+        SQLiteStatement insert = db.compileStatement(PayeeContract.schema.getInsertWithKeyStatement());
+        try {
+            int idIndex = bindIndexOf(PayeeContract.AllColumns, PayeeContract.PrimaryKey);
+            int nameIndex = bindIndexOf(PayeeContract.AllColumns, PayeeContract.CanonicalName);
+            int keyIndex = bindIndexOf(PayeeContract.AllColumns, PayeeContract.NormalizedKey);
+
+            byte[] nameBytes = new byte[256];
+            for (int i = 0; i < this.payeeCount; i++) {
+                long id = input.getLong();
+                int length = input.getInt();
+                if (length < 0 || length > input.remaining()) {
+                    throw new IOException("Snapshot is damaged: payee [" + id + "] has an impossible name length");
+                }
+                if (length > nameBytes.length) {
+                    nameBytes = new byte[Math.max(length, nameBytes.length * 2)];
+                }
+                input.get(nameBytes, 0, length);
+                String name = new String(nameBytes, 0, length, Encoding);
+
+                insert.bindLong(idIndex, id);
+                insert.bindString(nameIndex, name);
+                insert.bindString(keyIndex, PayeeDictionary.normalize(name));
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    private void loadExpenses(SQLiteDatabase db, ByteBuffer input) {
+        SQLiteStatement insert = db.compileStatement(TransactionContract.schema.getInsertWithKeyStatement());
+        try {
+            int idIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.PrimaryKey);
+            int payeeIdIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.PayeeId);
+            int amountIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.AmountInMinorUnits);
+            int yearIncurredIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.YearIncurred);
+            int monthIncurredIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.MonthIncurred);
+            int dayIncurredIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.DayIncurred);
+            int epochDayIncurredIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.EpochDayIncurred);
+            int yearCreatedIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.YearCreated);
+            int monthCreatedIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.MonthCreated);
+            int dayCreatedIndex = bindIndexOf(TransactionContract.AllColumns, TransactionContract.DayCreated);
+
+            for (int i = 0; i < this.expenseCount; i++) {
+                long id = input.getLong();
+                long payeeId = input.getLong();
+                long amountInMinorUnits = input.getLong();
+                int epochDayIncurred = input.getInt();
+                int epochDayCreated = input.getInt();
+
+                insert.bindLong(idIndex, id);
+                insert.bindLong(payeeIdIndex, payeeId);
+                insert.bindLong(amountIndex, amountInMinorUnits);
+                insert.bindLong(yearIncurredIndex, EpochDay.getYear(epochDayIncurred));
+                insert.bindLong(monthIncurredIndex, EpochDay.getCalendarMonth(epochDayIncurred));
+                insert.bindLong(dayIncurredIndex, EpochDay.getDayOfMonth(epochDayIncurred));
+                insert.bindLong(epochDayIncurredIndex, epochDayIncurred);
+                insert.bindLong(yearCreatedIndex, EpochDay.getYear(epochDayCreated));
+                insert.bindLong(monthCreatedIndex, EpochDay.getCalendarMonth(epochDayCreated));
+                insert.bindLong(dayCreatedIndex, EpochDay.getDayOfMonth(epochDayCreated));
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    /**
+     * @return The 1-based parameter index of the column in a statement which binds every column in order
+     */
+    private static int bindIndexOf(List<SQLiteColumnDefinition> columns, SQLiteColumnDefinition column) {
+        return columns.indexOf(column) + 1;
+    }
+
+    /**
+     * Checksums the start of the buffer, copying it out a block at a time
+     */
+    private static long checksum(ByteBuffer buffer, int length) {
+        ByteBuffer input = buffer.duplicate();
+        input.position(0);
+        input.limit(length);
+
+        CRC32 checksum = new CRC32();
+        byte[] block = new byte[BufferSize];
+        while (input.hasRemaining()) {
+            int blockLength = Math.min(block.length, input.remaining());
+            input.get(block, 0, blockLength);
+            checksum.update(block, 0, blockLength);
+        }
+        return checksum.getValue();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Saves and reads expenses, without saying where they are kept.
+ * LocalDatabaseHandler keeps them in SQLite. InMemoryExpenseStore keeps them in memory and needs
+ * nothing from Android, so code written against this interface can be tested and profiled on a
+ * plain JVM.
+ */
+
+public interface ExpenseStore {
+
+    /**
+     * Saves a new expense without making the caller wait for it to be written.
+     * Sets the expense's Id once it has been saved!
+     * @param expense   The expense to save. Will be modified!
+     * @return          Completes with the new Id of the expense once it has been saved
+     * @throws IllegalArgumentException if the expense has already been saved
+     */
+    Future<Long> queueExpense(ExpenseModel expense) throws IllegalArgumentException;
+
+    /**
+     * Saves a new expense without making the caller wait for it to be written.
+     * Sets the expense's Id once it has been saved!
+     * @param expense   The expense to save. Will be modified!
+     * @param callback  Told the new Id, or why the expense couldn't be saved, on whichever thread
+     *                  did the saving. Optional
+     * @return          Completes with the new Id of the expense once it has been saved
+     * @throws IllegalArgumentException if the expense has already been saved
+     */
+    Future<Long> queueExpense(ExpenseModel expense, WriteCallback<Long> callback) throws IllegalArgumentException;
+
+    /**
+     * Saves a new expense. Sets the expense's Id field!
+     * @param expense   The expense to save. Will be modified!
+     * @return          The new Id of the expense, or ExpenseModel.UNSAVED_EXPENSE if it couldn't be saved
+     * @throws IllegalArgumentException if the expense has already been saved
+     */
+    Long saveExpense(ExpenseModel expense) throws IllegalArgumentException;
+
+    /**
+     * Saves a batch of new expenses
+     * @param expenses  The expenses to save. Each successfully saved expense will have its Id set!
+     * @return          The expenses which could not be saved, in the order they were given.
+     *                  Expenses which already have an Id are never saved and are always returned here.
+     */
+    List<ExpenseModel> saveExpenses(Collection<ExpenseModel> expenses);
+
+    /**
+     * Saves changes to an expense which has already been saved, waiting until they've been written.
+     * A name which only differs from an existing payee's in case or spacing keeps that payee's
+     * spelling. The date created never changes.
+     * @param expense   The expense as it should now be, with the Id it was saved under
+     * @return          true if the expense exists and was changed
+     * @throws IllegalArgumentException if the expense hasn't been saved
+     */
+    boolean updateExpense(ExpenseModel expense) throws IllegalArgumentException;
+
+    /**
+     * Saves changes to an expense which has already been saved, without making the caller wait for
+     * them to be written. Names are matched to payees as in updateExpense(ExpenseModel).
+     * The date created never changes.
+     * @param expense   The expense as it should now be, with the Id it was saved under
+     * @param callback  Told whether the expense existed and was changed, or why it couldn't be,
+     *                  on whichever thread did the writing. Optional
+     * @return          Completes with true if the expense existed and was changed
+     * @throws IllegalArgumentException if the expense hasn't been saved
+     */
+    Future<Boolean> queueUpdateExpense(ExpenseModel expense, WriteCallback<Boolean> callback) throws IllegalArgumentException;
+
+    /**
+     * Deletes an expense, waiting until it's been deleted
+     * @param id    The Id of the expense to delete
+     * @return      true if the expense existed and was deleted
+     */
+    boolean deleteExpense(long id);
+
+    /**
+     * Deletes an expense without making the caller wait for it to be deleted
+     * @param id        The Id of the expense to delete
+     * @param callback  Told whether the expense existed and was deleted, or why it couldn't be,
+     *                  on whichever thread did the deleting. Optional
+     * @return          Completes with true if the expense existed and was deleted
+     */
+    Future<Boolean> queueDeleteExpense(long id, WriteCallback<Boolean> callback);
+
+    List<ExpenseModel> getAllExpenses();
+
+    /**
+     * Gets the expenses incurred within a date range, ordered by date incurred and then by Id
+     * @param startEpochDay The first day of the range, inclusive. See EpochDay
+     * @param endEpochDay   The last day of the range, inclusive. See EpochDay
+     * @return              The expenses in the range
+     */
+    List<ExpenseModel> getExpensesBetween(int startEpochDay, int endEpochDay);
+
+    /**
+     * @param year  The year incurred
+     * @param month The month incurred, numbered the same way as ExpenseModel
+     * @return      The month's totals, or ExpenseTotal.NONE if nothing was incurred that month
+     */
+    ExpenseTotal getMonthlyTotal(int year, int month);
+
+    /**
+     * @param year  The year incurred
+     * @return      The year's totals, or ExpenseTotal.NONE if nothing was incurred that year
+     */
+    ExpenseTotal getYearlyTotal(int year);
+
+    /**
+     * Loads every expense into columns of primitive arrays, for analytics and list rendering
+     * @return  The expenses, ordered by Id
+     */
+    ExpenseColumns loadExpenseColumns();
+
+    /**
+     * Brings columns loaded by loadExpenseColumns() up to date with any changes since
+     * @param columns   The columns to update
+     */
+    void refreshExpenseColumns(ExpenseColumns columns);
+}
@@ -0,0 +1,74 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import reyes.r.christopher.spenderbender.model.Money;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Summarizes a group of expenses, such as every expense incurred in one month.
+ * Amounts are in minor units. See Money
+ */
+
+public class ExpenseTotal {
+    public static final ExpenseTotal NONE = new ExpenseTotal(0, 0, 0, 0);
+
+    private final long expenseCount;
+    private final long totalInMinorUnits;
+    private final long minimumInMinorUnits;
+    private final long maximumInMinorUnits;
+
+    public ExpenseTotal(long expenseCount, long totalInMinorUnits, long minimumInMinorUnits, long maximumInMinorUnits) {
+        this.expenseCount = expenseCount;
+        this.totalInMinorUnits = totalInMinorUnits;
+        this.minimumInMinorUnits = minimumInMinorUnits;
+        this.maximumInMinorUnits = maximumInMinorUnits;
+    }
+
+    public long getExpenseCount() {
+        return this.expenseCount;
+    }
+
+    public long getTotalInMinorUnits() {
+        return this.totalInMinorUnits;
+    }
+
+    /**
+     * @return The smallest amount in the group, or 0 if the group is empty
+     */
+    public long getMinimumInMinorUnits() {
+        return this.minimumInMinorUnits;
+    }
+
+    /**
+     * @return The largest amount in the group, or 0 if the group is empty
+     */
+    public long getMaximumInMinorUnits() {
+        return this.maximumInMinorUnits;
+    }
+
+    public Money getTotal() {
+        return new Money(this.totalInMinorUnits);
+    }
+
+    public boolean isEmpty() {
+        return this.expenseCount == 0;
+    }
+}
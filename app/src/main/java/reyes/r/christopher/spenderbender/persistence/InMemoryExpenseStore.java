@@ -0,0 +1,537 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import reyes.r.christopher.spenderbender.model.EpochDay;
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+import reyes.r.christopher.spenderbender.model.Money;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Keeps expenses in memory, for unit tests and for profiling on a plain JVM.
+ * Each field is held in its own primitive array, and the arrays are kept sorted by date incurred
+ * and then by Id, so a million expenses take a few tens of megabytes and a date range is found
+ * with a binary search and read as one contiguous run. Names are interned as payees, matched the
+ * same way as PayeeDictionary, so each distinct name is only held once.
+ *
+ * Nothing is persisted. Every method is synchronized, so a store can be shared between threads.
+ */
+
+public class InMemoryExpenseStore implements ExpenseStore {
+    private static final int InitialCapacity = 16;
+
+    // Marks an Id in epochDayById which isn't (or is no longer) saved
+    private static final int NotSaved = Integer.MIN_VALUE;
+
+    // One slot per expense, sorted by epochDayIncurred and then by Id
+    private long[] ids = new long[InitialCapacity];
+    private int[] epochDaysIncurred = new int[InitialCapacity];
+    private long[] amountsInMinorUnits = new long[InitialCapacity];
+    private int[] payeeIds = new int[InitialCapacity];
+    private int[] epochDaysCreated = new int[InitialCapacity];
+    private int size = 0;
+
+    // The day each Id was incurred, indexed by Id, so an expense is found by binary search
+    private int[] epochDayById = new int[InitialCapacity];
+    private long nextId = 1;
+
+    private final List<String> payeeNames = new ArrayList<>();
+    private final Map<String, Integer> payeeIdsByKey = new HashMap<>();
+
+    /**
+     * Saves the expense immediately, so the returned Future is already complete
+     */
+    @Override
+    public Future<Long> queueExpense(ExpenseModel expense) throws IllegalArgumentException {
+        return this.queueExpense(expense, null);
+    }
+
+    /**
+     * Saves the expense immediately, so the returned Future is already complete and the callback
+     * has already been told the outcome, on the calling thread
+     */
+    @Override
+    public synchronized Future<Long> queueExpense(final ExpenseModel expense, WriteCallback<Long> callback) throws IllegalArgumentException {
+        checkUnsaved(expense);
+
+        return runNow(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                long newId = InMemoryExpenseStore.this.insert(expense);
+                expense.setId(newId);
+                return newId;
+            }
+        }, callback);
+    }
+
+    @Override
+    public synchronized Long saveExpense(ExpenseModel expense) throws IllegalArgumentException {
+        checkUnsaved(expense);
+
+        long newId;
+        try {
+            newId = this.insert(expense);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            newId = ExpenseModel.UNSAVED_EXPENSE;
+        }
+
+        expense.setId(newId);
+        return newId;
+    }
+
+    /**
+     * The batch is appended and then merged into place, so it costs one sort of the batch and one
+     * pass over the store, rather than shifting the store once for every expense
+     */
+    @Override
+    public synchronized List<ExpenseModel> saveExpenses(Collection<ExpenseModel> expenses) {
+        List<ExpenseModel> failedExpenses = new ArrayList<>();
+
+        int firstAppended = this.size;
+        this.ensureCapacity(this.size + expenses.size());
+
+        for (ExpenseModel expense : expenses) {
+            if (expense.getId() != ExpenseModel.UNSAVED_EXPENSE || expense.getName() == null) {
+                failedExpenses.add(expense);
+                continue;
+            }
+
+            long amountInMinorUnits;
+            try {
+                amountInMinorUnits = expense.getAmountInMinorUnits();
+            } catch (ArithmeticException e) {
+                failedExpenses.add(expense);
+                continue;
+            }
+
+            long id = this.issueId(expense.getEpochDayIncurred());
+            this.set(this.size, id, expense.getEpochDayIncurred(), amountInMinorUnits,
+                    this.internPayee(expense.getName()), expense.getEpochDayCreated());
+            this.size++;
+            expense.setId(id);
+        }
+
+        this.mergeAppended(firstAppended);
+        return failedExpenses;
+    }
+
+    @Override
+    public synchronized boolean updateExpense(ExpenseModel expense) throws IllegalArgumentException {
+        if (expense.getId() == ExpenseModel.UNSAVED_EXPENSE) {
+            throw new IllegalArgumentException("Expense has not been saved yet. Use saveExpense() to save it");
+        }
+
+        int index = this.indexOf(expense.getId());
+        if (index < 0 || expense.getName() == null) {
+            return Boolean.FALSE;
+        }
+
+        long amountInMinorUnits;
+        try {
+            amountInMinorUnits = expense.getAmountInMinorUnits();
+        } catch (ArithmeticException e) {
+            return Boolean.FALSE;
+        }
+
+        int payeeId = this.internPayee(expense.getName());
+        int epochDayIncurred = expense.getEpochDayIncurred();
+
+        if (epochDayIncurred == this.epochDaysIncurred[index]) {
+            this.amountsInMinorUnits[index] = amountInMinorUnits;
+            this.payeeIds[index] = payeeId;
+            return Boolean.TRUE;
+        }
+
+        // A new date moves the expense, keeping the date it was created
+        int epochDayCreated = this.epochDaysCreated[index];
+        this.closeGap(index);
+        int newIndex = -(this.search(epochDayIncurred, expense.getId()) + 1);
+        this.openGap(newIndex);
+        this.set(newIndex, expense.getId(), epochDayIncurred, amountInMinorUnits, payeeId, epochDayCreated);
+        this.epochDayById[(int) expense.getId()] = epochDayIncurred;
+        return Boolean.TRUE;
+    }
+
+    @Override
+    public synchronized boolean deleteExpense(long id) {
+        int index = this.indexOf(id);
+        if (index < 0) {
+            return Boolean.FALSE;
+        }
+
+        this.closeGap(index);
+        this.epochDayById[(int) id] = NotSaved;
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Changes the expense immediately, so the returned Future is already complete and the callback
+     * has already been told the outcome, on the calling thread
+     */
+    @Override
+    public synchronized Future<Boolean> queueUpdateExpense(final ExpenseModel expense, WriteCallback<Boolean> callback) throws IllegalArgumentException {
+        if (expense.getId() == ExpenseModel.UNSAVED_EXPENSE) {
+            throw new IllegalArgumentException("Expense has not been saved yet. Use saveExpense() to save it");
+        }
+
+        return runNow(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return InMemoryExpenseStore.this.updateExpense(expense);
+            }
+        }, callback);
+    }
+
+    /**
+     * Deletes the expense immediately, so the returned Future is already complete and the callback
+     * has already been told the outcome, on the calling thread
+     */
+    @Override
+    public synchronized Future<Boolean> queueDeleteExpense(final long id, WriteCallback<Boolean> callback) {
+        return runNow(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return InMemoryExpenseStore.this.deleteExpense(id);
+            }
+        }, callback);
+    }
+
+    /**
+     * @return Every expense, ordered by date incurred and then by Id
+     */
+    @Override
+    public synchronized List<ExpenseModel> getAllExpenses() {
+        return this.toExpenseModels(0, this.size);
+    }
+
+    @Override
+    public synchronized List<ExpenseModel> getExpensesBetween(int startEpochDay, int endEpochDay) {
+        int start = this.firstIndexFrom(startEpochDay);
+        int end = Math.max(start, this.firstIndexFrom(endEpochDay + 1));
+        return this.toExpenseModels(start, end);
+    }
+
+    @Override
+    public synchronized ExpenseTotal getMonthlyTotal(int year, int month) {
+        int startEpochDay = EpochDay.of(year, month, 1);
+        int nextMonthEpochDay = month == Calendar.DECEMBER
+                ? EpochDay.of(year + 1, Calendar.JANUARY, 1)
+                : EpochDay.of(year, month + 1, 1);
+        return this.total(startEpochDay, nextMonthEpochDay);
+    }
+
+    @Override
+    public synchronized ExpenseTotal getYearlyTotal(int year) {
+        return this.total(EpochDay.of(year, Calendar.JANUARY, 1), EpochDay.of(year + 1, Calendar.JANUARY, 1));
+    }
+
+    @Override
+    public synchronized ExpenseColumns loadExpenseColumns() {
+        ExpenseColumns columns = new ExpenseColumns(this.size, 0);
+        this.refreshExpenseColumns(columns);
+        return columns;
+    }
+
+    /**
+     * There is no change journal, so the columns are always reloaded
+     */
+    @Override
+    public synchronized void refreshExpenseColumns(ExpenseColumns columns) {
+        // Columns are in order of Id, so sort by Id and append, rather than inserting each in place
+        long[] order = new long[this.size];
+        for (int i = 0; i < this.size; i++) {
+            order[i] = (this.ids[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        columns.clear(this.size);
+        for (long idAndIndex : order) {
+            int index = (int) idAndIndex;
+            columns.put(this.ids[index], this.amountsInMinorUnits[index], this.epochDaysIncurred[index],
+                    this.payeeIds[index], this.payeeNames.get(this.payeeIds[index]));
+        }
+    }
+
+    /**
+     * @return The number of expenses in the store
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * @return The totals of the expenses incurred from startEpochDay up to but not including endEpochDay
+     */
+    private ExpenseTotal total(int startEpochDay, int endEpochDay) {
+        int start = this.firstIndexFrom(startEpochDay);
+        int end = this.firstIndexFrom(endEpochDay);
+        if (start >= end) {
+            return ExpenseTotal.NONE;
+        }
+
+        long totalInMinorUnits = 0;
+        long minimumInMinorUnits = Long.MAX_VALUE;
+        long maximumInMinorUnits = Long.MIN_VALUE;
+        for (int i = start; i < end; i++) {
+            long amountInMinorUnits = this.amountsInMinorUnits[i];
+            totalInMinorUnits = Money.add(totalInMinorUnits, amountInMinorUnits);
+            minimumInMinorUnits = Math.min(minimumInMinorUnits, amountInMinorUnits);
+            maximumInMinorUnits = Math.max(maximumInMinorUnits, amountInMinorUnits);
+        }
+
+        return new ExpenseTotal(end - start, totalInMinorUnits, minimumInMinorUnits, maximumInMinorUnits);
+    }
+
+    /**
+     * Adds one expense at its place in the order
+     * @return The new Id of the expense
+     * @throws IllegalArgumentException if the expense has no name
+     * @throws ArithmeticException if the amount is too large to be stored as Money
+     */
+    private long insert(ExpenseModel expense) throws IllegalArgumentException, ArithmeticException {
+        if (expense.getName() == null) {
+            throw new IllegalArgumentException("Expense name must not be null");
+        }
+
+        // Everything that can fail is done before the store is changed
+        long amountInMinorUnits = expense.getAmountInMinorUnits();
+        int epochDayIncurred = expense.getEpochDayIncurred();
+        int payeeId = this.internPayee(expense.getName());
+
+        long id = this.issueId(epochDayIncurred);
+
+        this.ensureCapacity(this.size + 1);
+        int index = -(this.search(epochDayIncurred, id) + 1);
+        this.openGap(index);
+        this.set(index, id, epochDayIncurred, amountInMinorUnits, payeeId, expense.getEpochDayCreated());
+        return id;
+    }
+
+    private long issueId(int epochDayIncurred) {
+        long id = this.nextId++;
+        if (id >= this.epochDayById.length) {
+            this.epochDayById = Arrays.copyOf(this.epochDayById, (int) Math.min(Integer.MAX_VALUE, id * 2));
+        }
+        this.epochDayById[(int) id] = epochDayIncurred;
+        return id;
+    }
+
+    private int internPayee(String name) {
+        String key = PayeeDictionary.normalize(name);
+        Integer payeeId = this.payeeIdsByKey.get(key);
+        if (payeeId == null) {
+            payeeId = this.payeeNames.size();
+            this.payeeNames.add(name);
+            this.payeeIdsByKey.put(key, payeeId);
+        }
+        return payeeId;
+    }
+
+    /**
+     * @return The position of the expense with the given Id, or -1 if it isn't saved
+     */
+    private int indexOf(long id) {
+        if (id <= 0 || id >= this.nextId || this.epochDayById[(int) id] == NotSaved) {
+            return -1;
+        }
+        return Math.max(-1, this.search(this.epochDayById[(int) id], id));
+    }
+
+    /**
+     * @return The position of the first expense incurred on or after the given day
+     */
+    private int firstIndexFrom(int epochDay) {
+        // No expense has an Id of 0, so this is never found and gives the insertion point instead
+        return -(this.search(epochDay, 0) + 1);
+    }
+
+    /**
+     * Binary search on the order of the store, as in Arrays.binarySearch()
+     * @return  The position of the expense, if it is saved, otherwise (-(insertion point) - 1)
+     */
+    private int search(int epochDayIncurred, long id) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int dayComparison = compare(this.epochDaysIncurred[middle], epochDayIncurred);
+            int comparison = dayComparison != 0 ? dayComparison : compare(this.ids[middle], id);
+            if (comparison < 0) {
+                low = middle + 1;
+            }
+            else if (comparison > 0) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Sorts the expenses appended from firstAppended onwards, then merges them into the rest.
+     * Appended expenses have the largest Ids, so they follow the others on the same day
+     */
+    private void mergeAppended(int firstAppended) {
+        int appended = this.size - firstAppended;
+        if (appended == 0) {
+            return;
+        }
+
+        // Sort by day, keeping the order appended (and so of Id) within a day
+        long[] order = new long[appended];
+        for (int i = 0; i < appended; i++) {
+            order[i] = ((long) this.epochDaysIncurred[firstAppended + i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        long[] sortedIds = new long[appended];
+        int[] sortedEpochDaysIncurred = new int[appended];
+        long[] sortedAmounts = new long[appended];
+        int[] sortedPayeeIds = new int[appended];
+        int[] sortedEpochDaysCreated = new int[appended];
+        for (int i = 0; i < appended; i++) {
+            int from = firstAppended + (int) order[i];
+            sortedIds[i] = this.ids[from];
+            sortedEpochDaysIncurred[i] = this.epochDaysIncurred[from];
+            sortedAmounts[i] = this.amountsInMinorUnits[from];
+            sortedPayeeIds[i] = this.payeeIds[from];
+            sortedEpochDaysCreated[i] = this.epochDaysCreated[from];
+        }
+
+        // Merge from the back, so nothing is overwritten before it has been moved
+        int existing = firstAppended - 1;
+        int next = appended - 1;
+        for (int to = this.size - 1; next >= 0; to--) {
+            if (existing >= 0 && this.epochDaysIncurred[existing] > sortedEpochDaysIncurred[next]) {
+                this.set(to, this.ids[existing], this.epochDaysIncurred[existing], this.amountsInMinorUnits[existing],
+                        this.payeeIds[existing], this.epochDaysCreated[existing]);
+                existing--;
+            }
+            else {
+                this.set(to, sortedIds[next], sortedEpochDaysIncurred[next], sortedAmounts[next],
+                        sortedPayeeIds[next], sortedEpochDaysCreated[next]);
+                next--;
+            }
+        }
+    }
+
+    private void set(int index, long id, int epochDayIncurred, long amountInMinorUnits, int payeeId, int epochDayCreated) {
+        this.ids[index] = id;
+        this.epochDaysIncurred[index] = epochDayIncurred;
+        this.amountsInMinorUnits[index] = amountInMinorUnits;
+        this.payeeIds[index] = payeeId;
+        this.epochDaysCreated[index] = epochDayCreated;
+    }
+
+    /**
+     * Moves everything from index onwards up by one. Capacity must already have been ensured
+     */
+    private void openGap(int index) {
+        int moved = this.size - index;
+        System.arraycopy(this.ids, index, this.ids, index + 1, moved);
+        System.arraycopy(this.epochDaysIncurred, index, this.epochDaysIncurred, index + 1, moved);
+        System.arraycopy(this.amountsInMinorUnits, index, this.amountsInMinorUnits, index + 1, moved);
+        System.arraycopy(this.payeeIds, index, this.payeeIds, index + 1, moved);
+        System.arraycopy(this.epochDaysCreated, index, this.epochDaysCreated, index + 1, moved);
+        this.size++;
+    }
+
+    private void closeGap(int index) {
+        int moved = this.size - index - 1;
+        System.arraycopy(this.ids, index + 1, this.ids, index, moved);
+        System.arraycopy(this.epochDaysIncurred, index + 1, this.epochDaysIncurred, index, moved);
+        System.arraycopy(this.amountsInMinorUnits, index + 1, this.amountsInMinorUnits, index, moved);
+        System.arraycopy(this.payeeIds, index + 1, this.payeeIds, index, moved);
+        System.arraycopy(this.epochDaysCreated, index + 1, this.epochDaysCreated, index, moved);
+        this.size--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= this.ids.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, this.ids.length * 2);
+        this.ids = Arrays.copyOf(this.ids, newCapacity);
+        this.epochDaysIncurred = Arrays.copyOf(this.epochDaysIncurred, newCapacity);
+        this.amountsInMinorUnits = Arrays.copyOf(this.amountsInMinorUnits, newCapacity);
+        this.payeeIds = Arrays.copyOf(this.payeeIds, newCapacity);
+        this.epochDaysCreated = Arrays.copyOf(this.epochDaysCreated, newCapacity);
+    }
+
+    private List<ExpenseModel> toExpenseModels(int start, int end) {
+        List<ExpenseModel> expenses = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            expenses.add(ExpenseModel.fromEpochDays(
+                    this.payeeNames.get(this.payeeIds[i]),
+                    Money.toDouble(this.amountsInMinorUnits[i]),
+                    this.epochDaysIncurred[i],
+                    this.epochDaysCreated[i],
+                    this.ids[i]
+            ));
+        }
+        return expenses;
+    }
+
+    /**
+     * Runs a write on the calling thread, then tells the callback how it went
+     * @return A Future which is already complete
+     */
+    private static <T> Future<T> runNow(Callable<T> write, WriteCallback<T> callback) {
+        FutureTask<T> written = new FutureTask<>(write);
+        written.run();
+
+        if (callback != null) {
+            try {
+                callback.onWritten(written.get());
+            } catch (ExecutionException e) {
+                callback.onFailed((Exception) e.getCause());
+            } catch (InterruptedException e) {
+                // Can't happen, since the write has already run
+                Thread.currentThread().interrupt();
+            }
+        }
+        return written;
+    }
+
+    private static void checkUnsaved(ExpenseModel expense) throws IllegalArgumentException {
+        if (expense.getId() != ExpenseModel.UNSAVED_EXPENSE) {
+            throw new IllegalArgumentException("Expense [" + expense.getId() + "] is already saved. Use updateExpense() to change it");
+        }
+    }
+
+    private static int compare(long x, long y) {
+        return x < y ? -1 : (x == y ? 0 : 1);
+    }
+}
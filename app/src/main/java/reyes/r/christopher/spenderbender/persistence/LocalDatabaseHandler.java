@@ -18,14 +18,30 @@
 
 package reyes.r.christopher.spenderbender.persistence;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.text.TextUtils;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import reyes.r.christopher.spenderbender.model.ExpenseModel;
 
@@ -33,91 +49,1292 @@ import reyes.r.christopher.spenderbender.model.ExpenseModel;
  * Created by Christopher R Reyes on 8/11/16.
  *
  * Manages the local database(s) on the device
+ *
+ * The app shares one handler (see acquire()) whose connection stays open between operations.
+ * The database runs in write-ahead logging mode, so reads are never blocked by a write in progress.
+ * Writes from the UI should go through queueExpense(), which commits them on a background writer.
+ * Expense names are stored once each in the payee table, and expenses are read back through a view
+ * which joins them in. Monthly totals and the payee search index are kept up to date by triggers.
  */
 
-public class LocalDatabaseHandler extends SQLiteOpenHelper {
+public class LocalDatabaseHandler extends SQLiteOpenHelper implements ExpenseStore {
 
     static final String DatabaseName = "SpenderBenderSQLiteDB";
-    private static final int DatabaseVersion = 1;
+    static final int DatabaseVersion = 8;
+
+    // Stays well under SQLite's limit of 999 arguments per statement
+    static final int MaxArgumentsPerQuery = 500;
+    static final int ChangesPerRead = 1000;
+
+    private static final Object sharedInstanceLock = new Object();
+    private static LocalDatabaseHandler sharedInstance;
+    private static int sharedReferenceCount = 0;
+    private static boolean isShutdownRequested = Boolean.FALSE;
+
+    private final boolean isShared;
+    private boolean isClosingShared = Boolean.FALSE;
+
+    private final PayeeDictionary payees = new PayeeDictionary();
+    private final SQLiteStatementCache statements = new SQLiteStatementCache();
+
+    private final Object writerLock = new Object();
+    private DatabaseWriter writer;
 
+    /**
+     * Creates a stand-alone handler which is not shared with the rest of the app.
+     * Most callers should use acquire() instead.
+     * @param context   The context used to open the database
+     */
     public LocalDatabaseHandler(Context context) {
+        this(context, Boolean.FALSE);
+    }
+
+    private LocalDatabaseHandler(Context context, boolean isShared) {
         super(context, DatabaseName, null, DatabaseVersion);
+        this.isShared = isShared;
+
+        // Older versions turn on write-ahead logging in onOpen() instead
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            this.setWriteAheadLoggingEnabled(Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Gets the process-wide handler, creating it if necessary.
+     * The handler keeps its connection open across operations; every call to acquire() must be
+     * balanced by a call to release().
+     * @param context   Any context. Only its application context is retained
+     * @return          The shared handler
+     */
+    public static LocalDatabaseHandler acquire(Context context) {
+        synchronized (sharedInstanceLock) {
+            if (sharedInstance == null) {
+                sharedInstance = new LocalDatabaseHandler(context.getApplicationContext(), Boolean.TRUE);
+            }
+            isShutdownRequested = Boolean.FALSE;
+            sharedReferenceCount++;
+            return sharedInstance;
+        }
+    }
+
+    /**
+     * Gives up a reference obtained through acquire(). Releasing does not close the connection
+     * unless shutdown() has already been requested and this was the last reference.
+     */
+    public void release() {
+        if (!this.isShared) {
+            return;
+        }
+
+        synchronized (sharedInstanceLock) {
+            if (this != sharedInstance || sharedReferenceCount == 0) {
+                throw new IllegalStateException("Released a shared database handler more times than it was acquired");
+            }
+            sharedReferenceCount--;
+            closeSharedInstanceIfUnused();
+        }
+    }
+
+    /**
+     * Closes the shared connection. If callers still hold references from acquire(), the
+     * connection is closed once the last of them calls release().
+     */
+    public static void shutdown() {
+        synchronized (sharedInstanceLock) {
+            isShutdownRequested = Boolean.TRUE;
+            closeSharedInstanceIfUnused();
+        }
+    }
+
+    /**
+     * Must be called while holding sharedInstanceLock
+     */
+    private static void closeSharedInstanceIfUnused() {
+        if (sharedInstance != null && isShutdownRequested && sharedReferenceCount == 0) {
+            sharedInstance.isClosingShared = Boolean.TRUE;
+            sharedInstance.close();
+            sharedInstance = null;
+            isShutdownRequested = Boolean.FALSE;
+        }
+    }
+
+    /**
+     * The shared handler can only be closed through shutdown(), so that one caller can't close the
+     * connection while others are still using it.
+     */
+    @Override
+    public void close() {
+        if (this.isShared && !this.isClosingShared) {
+            return;
+        }
+
+        // Let queued writes commit before the connection goes away. This must happen before taking
+        // this handler's lock, since the writer needs that lock to get the database
+        synchronized (this.writerLock) {
+            if (this.writer != null) {
+                this.writer.stop();
+                this.writer = null;
+            }
+        }
+
+        synchronized (this) {
+            this.statements.clear();
+            super.close();
+        }
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN && ! db.isReadOnly()) {
+            db.enableWriteAheadLogging();
+        }
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        String createStatement =  TransactionContract.schema.toString();
+        for (SQLiteTableSchema schema : getAllSchemas()) {
+            db.execSQL(schema.toString());
+        }
 
-        db.execSQL(createStatement);
+        createFullTextTables(db);
+        createIndexes(db);
+        createTriggers(db);
+        createViews(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Database Version 1. Nothing to do on update because there is no prior version yet.
+        // Views and triggers hold no data of their own. Dropping them first means the steps below
+        // can rebuild tables without them firing or following renamed tables
+        dropViewsAndTriggers(db);
+
+        // Versions 2 and 8 only added indexes, tables and triggers, which are brought up to date below
+        if (oldVersion < 3) {
+            TransactionTableMigrator.migrateAmountsToMinorUnits(db);
+        }
+        if (oldVersion < 4) {
+            TransactionTableMigrator.addEpochDayIncurred(db);
+        }
+        if (oldVersion < 7) {
+            TransactionTableMigrator.moveNamesToPayees(db);
+        }
+
+        TransactionTableMigrator.dropObsoleteTables(db);
+        TransactionTableMigrator.dropObsoleteIndexes(db);
+
+        // Every statement in onCreate() skips what already exists, so this only adds what's new
+        onCreate(db);
+
+        // New derived tables are filled in once everything they're derived from is up to date
+        if (oldVersion < 5) {
+            rebuildMonthlyRollup(db);
+        }
+        if (oldVersion < 7) {
+            rebuildFullTextTable(db, PayeeContract.NameSearch);
+        }
+    }
+
+    /**
+     * @return Every table in the database, in the order they're created
+     */
+    private static List<SQLiteTableSchema> getAllSchemas() {
+        List<SQLiteTableSchema> allSchemas = new ArrayList<>(4);
+        allSchemas.add(PayeeContract.schema);
+        allSchemas.add(TransactionContract.schema);
+        allSchemas.add(MonthlyRollupContract.schema);
+        allSchemas.add(ExpenseChangeContract.schema);
+        return allSchemas;
+    }
+
+    /**
+     * @return Every trigger in the database
+     */
+    private static List<SQLiteTriggerDefinition> getAllTriggers() {
+        List<SQLiteTriggerDefinition> allTriggers = new ArrayList<>(MonthlyRollupContract.AllTriggers);
+        allTriggers.addAll(PayeeContract.NameSearch.getTriggers());
+        allTriggers.addAll(ExpenseChangeContract.AllTriggers);
+        return allTriggers;
+    }
+
+    /**
+     * Creates every full-text table that doesn't exist yet.
+     * Older SQLite can't skip existing virtual tables by itself, so check for each one first
+     * @param db    The database to which to add the tables
+     */
+    private static void createFullTextTables(SQLiteDatabase db) {
+        SQLiteFullTextTableSchema schema = PayeeContract.NameSearch;
+
+        long existingTables = DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?;",
+                new String[] {schema.getName()}
+        );
+        if (existingTables == 0) {
+            db.execSQL(schema.toString());
+        }
+    }
+
+    /**
+     * Creates every index in the database's schemas that doesn't exist yet
+     * @param db    The database to which to add the indexes
+     */
+    private static void createIndexes(SQLiteDatabase db) {
+        for (SQLiteTableSchema schema : getAllSchemas()) {
+            for (String createIndexStatement : schema.getCreateIndexStatements()) {
+                db.execSQL(createIndexStatement);
+            }
+        }
+    }
+
+    /**
+     * Creates every trigger that doesn't exist yet
+     * @param db    The database to which to add the triggers
+     */
+    private static void createTriggers(SQLiteDatabase db) {
+        for (SQLiteTriggerDefinition trigger : getAllTriggers()) {
+            db.execSQL(trigger.toString());
+        }
+    }
+
+    /**
+     * Creates every view that doesn't exist yet. Views are created last, since they read from tables
+     * @param db    The database to which to add the views
+     */
+    private static void createViews(SQLiteDatabase db) {
+        db.execSQL(TransactionContract.ExpenseView.toString());
+    }
+
+    /**
+     * Drops every view and trigger, current or obsolete, so that onCreate() can recreate them
+     * @param db    The database being upgraded
+     */
+    private static void dropViewsAndTriggers(SQLiteDatabase db) {
+        db.execSQL(TransactionContract.ExpenseView.getDropStatement());
+
+        for (SQLiteTriggerDefinition trigger : getAllTriggers()) {
+            db.execSQL(trigger.getDropStatement());
+        }
+        TransactionTableMigrator.dropObsoleteTriggers(db);
+    }
+
+    /**
+     * Refills a full-text table from scratch from the table it shadows
+     */
+    private static void rebuildFullTextTable(SQLiteDatabase db, SQLiteFullTextTableSchema schema) {
+        db.beginTransaction();
+        try {
+            db.delete(schema.getName(), null, null);
+            db.execSQL(schema.getPopulateStatement());
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Recomputes the monthly rollup from scratch.
+     * The rollup is kept up to date as expenses change, so this is only needed to repair it
+     */
+    public void rebuildMonthlyRollup() {
+        rebuildMonthlyRollup(this.getWritableDatabase());
+    }
+
+    private static void rebuildMonthlyRollup(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            db.delete(MonthlyRollupContract.TableName, null, null);
+            db.execSQL(MonthlyRollupContract.generateRebuildSQL());
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Reads one month's totals from the monthly rollup, without scanning that month's expenses
+     * @param year  The year incurred
+     * @param month The month incurred, numbered the same way as ExpenseModel
+     * @return      The month's totals, or ExpenseTotal.NONE if nothing was incurred that month
+     */
+    @Override
+    public ExpenseTotal getMonthlyTotal(int year, int month) {
+        return this.queryRollup(
+                String.format(Locale.US, "%s = ? AND %s = ?",
+                        MonthlyRollupContract.Year.getName(),
+                        MonthlyRollupContract.Month.getName()
+                ),
+                new String[] {String.valueOf(year), String.valueOf(month)}
+        );
+    }
+
+    /**
+     * Reads one year's totals by combining at most twelve rows of the monthly rollup
+     * @param year  The year incurred
+     * @return      The year's totals, or ExpenseTotal.NONE if nothing was incurred that year
+     */
+    @Override
+    public ExpenseTotal getYearlyTotal(int year) {
+        return this.queryRollup(
+                MonthlyRollupContract.Year.getName() + " = ?",
+                new String[] {String.valueOf(year)}
+        );
+    }
+
+    private ExpenseTotal queryRollup(String selection, String[] selectionArgs) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor totals = db.query(
+                MonthlyRollupContract.TableName,
+                new String[] {
+                        "SUM(" + MonthlyRollupContract.ExpenseCount.getName() + ")",
+                        "SUM(" + MonthlyRollupContract.TotalInMinorUnits.getName() + ")",
+                        "MIN(" + MonthlyRollupContract.MinimumInMinorUnits.getName() + ")",
+                        "MAX(" + MonthlyRollupContract.MaximumInMinorUnits.getName() + ")"
+                },
+                selection,
+                selectionArgs,
+                null,
+                null,
+                null
+        );
+
+        ExpenseTotal total = ExpenseTotal.NONE;
+        if (totals.moveToFirst() && ! totals.isNull(0)) {
+            total = new ExpenseTotal(totals.getLong(0), totals.getLong(1), totals.getLong(2), totals.getLong(3));
+        }
+
+        totals.close();
+        return total;
+    }
+
+    /**
+     * @return The writer for this handler, started on first use
+     */
+    private DatabaseWriter getWriter() {
+        synchronized (this.writerLock) {
+            if (this.writer == null) {
+                this.writer = new DatabaseWriter(this);
+            }
+            return this.writer;
+        }
+    }
+
+    /**
+     * Queues a new expense to be saved on the background writer. Expenses queued close together are
+     * committed in one transaction. Sets the expense's Id once it has been written!
+     * @param expense   The expense to save. Will be modified!
+     * @return          Completes with the new Id of the expense once it has been committed
+     */
+    @Override
+    public Future<Long> queueExpense(ExpenseModel expense) {
+        return this.queueExpense(expense, null);
+    }
+
+    /**
+     * Queues a new expense to be saved on the background writer. Expenses queued close together are
+     * committed in one transaction. Sets the expense's Id once it has been written!
+     * @param expense   The expense to save. Will be modified!
+     * @param callback  Told the new Id, or why the expense couldn't be saved, on the writer thread
+     * @return          Completes with the new Id of the expense once it has been committed
+     */
+    @Override
+    public Future<Long> queueExpense(final ExpenseModel expense, @Nullable WriteCallback<Long> callback) {
+        if(expense.getId() != ExpenseModel.UNSAVED_EXPENSE) {
+            throw new IllegalArgumentException("Expense [" + expense.getId() + "] is already saved. Use updateExpense() to change it");
+        }
+
+        return this.getWriter().submit(new DatabaseWriter.Write<Long>() {
+            @Override
+            Long apply(SQLiteDatabase db) {
+                Long newId = LocalDatabaseHandler.this.saveExpense(expense, db);
+                if (newId == ExpenseModel.UNSAVED_EXPENSE) {
+                    throw new SQLException("Could not save expense [" + expense.getName() + "]");
+                }
+                return newId;
+            }
+
+            @Override
+            void onRolledBack() {
+                expense.setId(ExpenseModel.UNSAVED_EXPENSE);
+                LocalDatabaseHandler.this.payees.forget();
+            }
+        }, callback);
     }
 
+    @Override
     public Long saveExpense(ExpenseModel expense) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        Long result = this.saveExpense(expense, db);
-        db.close();
-        return result;
+        return this.saveExpense(expense, this.getWritableDatabase());
     }
 
     /**
      * Saves an expense to the given database. Modifies expense by setting its Id field!
+     * The expense's name is stored as a payee, which is added if the name hasn't been seen before.
+     * If this is called inside a transaction that is then rolled back, call forgetPayees() afterwards
      * @param expense   The expense to save. Will be modified!
      * @param db        The SQLite database into which to save the expense
-     * @return          The new ID of the expense
+     * @return          The new ID of the expense, or ExpenseModel.UNSAVED_EXPENSE if it couldn't be saved
      */
     public Long saveExpense(ExpenseModel expense, SQLiteDatabase db) {
         if(expense.getId() != ExpenseModel.UNSAVED_EXPENSE) {
-            throw new IllegalArgumentException("Updating existed expenses is not yet supported!");
+            throw new IllegalArgumentException("Expense [" + expense.getId() + "] is already saved. Use updateExpense() to change it");
+        }
+
+        // Cached statements are only used inside a transaction. Join the caller's if there is one
+        boolean ownsTransaction = !db.inTransaction();
+        if (ownsTransaction) {
+            db.beginTransactionNonExclusive();
         }
 
-        ContentValues formattedExpense = new ContentValues();
+        long newId = ExpenseModel.UNSAVED_EXPENSE;
+        try {
+            // The insert is compiled once and reused, and binds each value straight into SQLite
+            SQLiteStatement insert = this.statements.get(db, TransactionContract.schema.getInsertStatement());
+
+            synchronized (insert) {
+                // Checked before the payee is added, so a rejected amount leaves nothing behind
+                expense.getAmountInMinorUnits();
+                long payeeId = this.payees.intern(db, expense.getName());
+                ExpenseRowMapper.bindInsertArguments(insert, expense, payeeId);
+                newId = insert.executeInsert();
+            }
 
-        formattedExpense.put(TransactionContract.TransactionName.getName(), expense.getName());
-        formattedExpense.put(TransactionContract.Amount.getName(), expense.getAmount());
-        formattedExpense.put(TransactionContract.YearIncurred.getName(), expense.getYearIncurred());
-        formattedExpense.put(TransactionContract.MonthIncurred.getName(), expense.getMonthIncurred());
-        formattedExpense.put(TransactionContract.DayIncurred.getName(), expense.getDayIncurred());
-        formattedExpense.put(TransactionContract.YearCreated.getName(), expense.getYearCreated());
-        formattedExpense.put(TransactionContract.MonthCreated.getName(), expense.getMonthCreated());
-        formattedExpense.put(TransactionContract.DayCreated.getName(), expense.getDayCreated());
+            if (ownsTransaction) {
+                db.setTransactionSuccessful();
+            }
+        } catch (SQLException | ArithmeticException e) {
+            // Rejected the same way as in saveExpenses(), including amounts too large for Money
+            newId = ExpenseModel.UNSAVED_EXPENSE;
+        } finally {
+            if (ownsTransaction) {
+                db.endTransaction();
 
-        long newId = db.insert(TransactionContract.TableName, null, formattedExpense);
+                // Nothing was written, so a payee added above no longer exists
+                if (newId == ExpenseModel.UNSAVED_EXPENSE) {
+                    this.payees.forget();
+                }
+            }
+        }
 
         expense.setId(newId);
 
         return newId;
     }
 
+    /**
+     * Saves a batch of new expenses in a single transaction
+     * @param expenses  The expenses to save. Each successfully saved expense will have its Id set!
+     * @return          The expenses which could not be saved. Empty if the whole batch was saved
+     */
+    @Override
+    public List<ExpenseModel> saveExpenses(Collection<ExpenseModel> expenses) {
+        return this.saveExpenses(expenses, this.getWritableDatabase());
+    }
+
+    /**
+     * Saves a batch of new expenses to the given database inside a single transaction, reusing the
+     * cached insert statement for every row. A row that fails to insert does not abort the batch.
+     * @param expenses  The expenses to save. Each successfully saved expense will have its Id set!
+     * @param db        The SQLite database into which to save the expenses
+     * @return          The expenses which could not be saved, in the order they were given.
+     *                  Expenses which already have an Id are never saved and are always returned here.
+     */
+    public List<ExpenseModel> saveExpenses(Collection<ExpenseModel> expenses, SQLiteDatabase db) {
+        List<ExpenseModel> failedExpenses = new ArrayList<>();
+
+        if (expenses.isEmpty()) {
+            return failedExpenses;
+        }
+
+        boolean isCommitted = Boolean.FALSE;
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = this.statements.get(db, TransactionContract.schema.getInsertStatement());
+
+            // Held for the whole batch, so no other thread can rebind the shared insert part way through
+            synchronized (insert) {
+                for (ExpenseModel expense : expenses) {
+                    if (expense.getId() != ExpenseModel.UNSAVED_EXPENSE) {
+                        failedExpenses.add(expense);
+                        continue;
+                    }
+
+                    long newId;
+                    try {
+                        // Checked before the payee is added, so a rejected amount leaves nothing behind
+                        expense.getAmountInMinorUnits();
+                        long payeeId = this.payees.intern(db, expense.getName());
+                        ExpenseRowMapper.bindInsertArguments(insert, expense, payeeId);
+                        newId = insert.executeInsert();
+                    } catch (SQLException | ArithmeticException e) {
+                        newId = ExpenseModel.UNSAVED_EXPENSE;
+                    }
+
+                    if (newId == ExpenseModel.UNSAVED_EXPENSE) {
+                        failedExpenses.add(expense);
+                    }
+                    else {
+                        expense.setId(newId);
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+            isCommitted = Boolean.TRUE;
+        } finally {
+            db.endTransaction();
+
+            if (!isCommitted) {
+                this.payees.forget();
+            }
+        }
+
+        return failedExpenses;
+    }
+
+    /**
+     * Saves changes to an expense on the background writer, then waits until they have been
+     * committed, so they're ordered with every other queued write.
+     * Blocks, so don't call this on the main thread or from a WriteCallback
+     * @param expense   The expense as it should now be, with the Id it was saved under
+     * @return          true if the expense exists and was changed
+     */
+    @Override
+    @WorkerThread
+    public boolean updateExpense(ExpenseModel expense) {
+        return waitForWrite(this.queueUpdateExpense(expense, null));
+    }
+
+    /**
+     * Queues changes to an expense to be saved on the background writer, along with any other
+     * queued writes. See updateExpense(ExpenseModel, SQLiteDatabase)
+     * @param expense   The expense as it should now be, with the Id it was saved under
+     * @param callback  Told whether the expense existed and was changed, on the writer thread
+     * @return          Completes with true if the expense existed and was changed
+     */
+    @Override
+    public Future<Boolean> queueUpdateExpense(final ExpenseModel expense, @Nullable WriteCallback<Boolean> callback) {
+        if (expense.getId() == ExpenseModel.UNSAVED_EXPENSE) {
+            throw new IllegalArgumentException("Expense has not been saved yet. Use saveExpense() to save it");
+        }
+
+        return this.getWriter().submit(new DatabaseWriter.Write<Boolean>() {
+            @Override
+            Boolean apply(SQLiteDatabase db) {
+                return LocalDatabaseHandler.this.updateExpense(expense, db);
+            }
+
+            @Override
+            void onRolledBack() {
+                LocalDatabaseHandler.this.payees.forget();
+            }
+        }, callback);
+    }
+
+    /**
+     * Saves changes to an expense which has already been saved.
+     * Only the columns whose values have changed are written, so the triggers which follow
+     * changes only do work for what changed, and an unchanged expense isn't written at all.
+     * A changed name moves the expense to that name's payee, leaving other expenses alone.
+     * Names are matched to payees ignoring case and spacing, so a name which only differs from an
+     * existing payee's that way keeps that payee's spelling. Changing "Sushi" to "SUSHI" doesn't
+     * rename it, since that would rename every other expense with the same payee.
+     * The date created never changes.
+     * @param expense   The expense as it should now be, with the Id it was saved under
+     * @param db        The SQLite database holding the expense
+     * @return          true if the expense exists and was changed, false if it doesn't exist or
+     *                  couldn't be changed
+     */
+    public boolean updateExpense(ExpenseModel expense, SQLiteDatabase db) {
+        if (expense.getId() == ExpenseModel.UNSAVED_EXPENSE) {
+            throw new IllegalArgumentException("Expense has not been saved yet. Use saveExpense() to save it");
+        }
+
+        // Cached statements are only used inside a transaction. Join the caller's if there is one
+        boolean ownsTransaction = !db.inTransaction();
+        if (ownsTransaction) {
+            db.beginTransactionNonExclusive();
+        }
+
+        boolean isUpdated = Boolean.FALSE;
+        try {
+            Cursor current = db.query(
+                    TransactionContract.TableName,
+                    new String[] {
+                            TransactionContract.PayeeId.getName(),
+                            TransactionContract.AmountInMinorUnits.getName(),
+                            TransactionContract.YearIncurred.getName(),
+                            TransactionContract.MonthIncurred.getName(),
+                            TransactionContract.DayIncurred.getName()
+                    },
+                    TransactionContract.PrimaryKey.getName() + " = ?",
+                    new String[] {String.valueOf(expense.getId())},
+                    null, null, null
+            );
+
+            List<SQLiteColumnDefinition> dirtyColumns = new ArrayList<>(TransactionContract.AllColumns.size());
+            List<Long> dirtyValues = new ArrayList<>(TransactionContract.AllColumns.size());
+            try {
+                if (!current.moveToFirst()) {
+                    return Boolean.FALSE;
+                }
+
+                // Checked before the payee is added, so a rejected amount leaves nothing behind
+                long amountInMinorUnits = expense.getAmountInMinorUnits();
+
+                // Names which only differ in case or spacing already share a payee
+                long payeeId = this.payees.intern(db, expense.getName());
+                addIfChanged(dirtyColumns, dirtyValues, TransactionContract.PayeeId, current.getLong(0), payeeId);
+                addIfChanged(dirtyColumns, dirtyValues, TransactionContract.AmountInMinorUnits, current.getLong(1), amountInMinorUnits);
+                addIfChanged(dirtyColumns, dirtyValues, TransactionContract.YearIncurred, current.getLong(2), expense.getYearIncurred());
+                addIfChanged(dirtyColumns, dirtyValues, TransactionContract.MonthIncurred, current.getLong(3), expense.getMonthIncurred());
+                addIfChanged(dirtyColumns, dirtyValues, TransactionContract.DayIncurred, current.getLong(4), expense.getDayIncurred());
+            } finally {
+                current.close();
+            }
+
+            if (!dirtyColumns.isEmpty()) {
+                // The epoch day is derived from the other date columns
+                if (dirtyColumns.contains(TransactionContract.YearIncurred)
+                        || dirtyColumns.contains(TransactionContract.MonthIncurred)
+                        || dirtyColumns.contains(TransactionContract.DayIncurred)) {
+                    dirtyColumns.add(TransactionContract.EpochDayIncurred);
+                    dirtyValues.add((long) expense.getEpochDayIncurred());
+                }
+
+                // There are only a few combinations of columns, so each is compiled once and cached
+                SQLiteStatement update = this.statements.get(db, TransactionContract.schema.getUpdateStatement(dirtyColumns));
+                synchronized (update) {
+                    for (int i = 0; i < dirtyValues.size(); i++) {
+                        update.bindLong(i + 1, dirtyValues.get(i));
+                    }
+                    update.bindLong(dirtyValues.size() + 1, expense.getId());
+                    update.executeUpdateDelete();
+                }
+            }
+
+            if (ownsTransaction) {
+                db.setTransactionSuccessful();
+            }
+            isUpdated = Boolean.TRUE;
+        } catch (SQLException | ArithmeticException e) {
+            isUpdated = Boolean.FALSE;
+        } finally {
+            if (ownsTransaction) {
+                db.endTransaction();
+
+                // Nothing was written, so a payee added above no longer exists
+                if (!isUpdated) {
+                    this.payees.forget();
+                }
+            }
+        }
+
+        return isUpdated;
+    }
+
+    private static void addIfChanged(List<SQLiteColumnDefinition> dirtyColumns, List<Long> dirtyValues,
+                                     SQLiteColumnDefinition column, long currentValue, long newValue) {
+        if (currentValue != newValue) {
+            dirtyColumns.add(column);
+            dirtyValues.add(newValue);
+        }
+    }
+
+    /**
+     * Deletes an expense on the background writer, then waits until it has been committed, so it's
+     * ordered with every other queued write.
+     * Blocks, so don't call this on the main thread or from a WriteCallback
+     * @param id    The Id of the expense to delete
+     * @return      true if the expense existed and was deleted
+     */
+    @Override
+    @WorkerThread
+    public boolean deleteExpense(long id) {
+        return waitForWrite(this.queueDeleteExpense(id, null));
+    }
+
+    /**
+     * Queues an expense to be deleted on the background writer, along with any other queued writes
+     * @param id        The Id of the expense to delete
+     * @param callback  Told whether the expense existed and was deleted, on the writer thread
+     * @return          Completes with true if the expense existed and was deleted
+     */
+    @Override
+    public Future<Boolean> queueDeleteExpense(final long id, @Nullable WriteCallback<Boolean> callback) {
+        return this.getWriter().submit(new DatabaseWriter.Write<Boolean>() {
+            @Override
+            Boolean apply(SQLiteDatabase db) {
+                return LocalDatabaseHandler.this.deleteExpense(id, db);
+            }
+        }, callback);
+    }
+
+    /**
+     * Waits for a queued write, even if interrupted, since the write is committed either way
+     * @return The write's result, or false if it failed
+     */
+    private static boolean waitForWrite(Future<Boolean> write) {
+        boolean isInterrupted = Boolean.FALSE;
+        try {
+            while (true) {
+                try {
+                    return write.get();
+                } catch (InterruptedException e) {
+                    isInterrupted = Boolean.TRUE;
+                } catch (ExecutionException e) {
+                    return Boolean.FALSE;
+                }
+            }
+        } finally {
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Deletes a saved expense. Its payee is kept, so the name is matched again if it's reused
+     * @param id    The Id of the expense to delete
+     * @param db    The SQLite database holding the expense
+     * @return      true if the expense existed and was deleted
+     */
+    public boolean deleteExpense(long id, SQLiteDatabase db) {
+        // Cached statements are only used inside a transaction. Join the caller's if there is one
+        boolean ownsTransaction = !db.inTransaction();
+        if (ownsTransaction) {
+            db.beginTransactionNonExclusive();
+        }
+
+        try {
+            SQLiteStatement delete = this.statements.get(db, TransactionContract.schema.getDeleteStatement());
+
+            int deletedRows;
+            synchronized (delete) {
+                delete.bindLong(1, id);
+                deletedRows = delete.executeUpdateDelete();
+            }
+
+            if (ownsTransaction) {
+                db.setTransactionSuccessful();
+            }
+            return deletedRows > 0;
+        } finally {
+            if (ownsTransaction) {
+                db.endTransaction();
+            }
+        }
+    }
+
+    /**
+     * Clears the cache of payee Ids. Only needed after rolling back a transaction in which expenses
+     * were saved through saveExpense(ExpenseModel, SQLiteDatabase)
+     */
+    public void forgetPayees() {
+        this.payees.forget();
+    }
+
+    /**
+     * Writes a binary snapshot of every expense, for restoring later with restoreSnapshot().
+     * The expenses are copied out in a single transaction, so the snapshot is always consistent.
+     * Writes are only held off while they're copied, not while the file is written
+     * @param file  The file to write. Replaced if it already exists
+     * @return      The number of expenses in the snapshot
+     * @throws IOException if the file can't be written
+     */
+    public int writeSnapshot(File file) throws IOException {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        ExpenseSnapshot.Contents contents;
+        db.beginTransactionNonExclusive();
+        try {
+            // Nothing is changed, so the transaction is only ever rolled back
+            contents = ExpenseSnapshot.read(db);
+        } finally {
+            db.endTransaction();
+        }
+
+        OutputStream out = new FileOutputStream(file);
+        try {
+            return ExpenseSnapshot.write(contents, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Replaces every expense with those in a snapshot written by writeSnapshot().
+     * The snapshot is checked before anything is changed, and the restore is a single transaction,
+     * so a damaged snapshot leaves the current expenses untouched
+     * @param file  The snapshot to restore
+     * @return      The number of expenses restored
+     * @throws IOException if the snapshot can't be read or is damaged
+     */
+    public int restoreSnapshot(File file) throws IOException {
+        ExpenseSnapshot snapshot = ExpenseSnapshot.open(file);
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            // Triggers would update the derived tables once per row. They're rebuilt once at the end instead
+            for (SQLiteTriggerDefinition trigger : getAllTriggers()) {
+                db.execSQL(trigger.getDropStatement());
+            }
+
+            db.delete(TransactionContract.TableName, null, null);
+            db.delete(PayeeContract.TableName, null, null);
+            int restored = snapshot.load(db);
+
+            rebuildMonthlyRollup(db);
+            rebuildFullTextTable(db, PayeeContract.NameSearch);
+            createTriggers(db);
+
+            // The journal can't say what changed, only that anything may have
+            db.execSQL(ExpenseChangeContract.generateResetSQL());
+
+            db.setTransactionSuccessful();
+            return restored;
+        } finally {
+            db.endTransaction();
+
+            // Payee Ids may now belong to different names
+            this.payees.forget();
+        }
+    }
+
+    @Override
     public List<ExpenseModel> getAllExpenses() {
         List<ExpenseModel> allExpenses = new ArrayList<>();
 
         SQLiteDatabase db = this.getReadableDatabase();
 
-        Cursor expenses = db.query(TransactionContract.TableName, null, null, null, null, null, null);
+        Cursor expenses = db.query(TransactionContract.ExpenseView.getName(), null, null, null, null, null, null);
+
+        ExpenseRowMapper rowMapper = new ExpenseRowMapper(expenses);
 
         expenses.moveToFirst();
         while (! expenses.isAfterLast()) {
-            ExpenseModel next = new ExpenseModel(
-                    expenses.getString( expenses.getColumnIndexOrThrow(TransactionContract.TransactionName.getName())),
-                    expenses.getDouble( expenses.getColumnIndexOrThrow(TransactionContract.Amount.getName())),
-                    expenses.getInt( expenses.getColumnIndexOrThrow(TransactionContract.YearIncurred.getName())),
-                    expenses.getInt( expenses.getColumnIndexOrThrow(TransactionContract.MonthIncurred.getName())),
-                    expenses.getInt( expenses.getColumnIndexOrThrow(TransactionContract.DayIncurred.getName())),
-                    expenses.getInt( expenses.getColumnIndexOrThrow(TransactionContract.YearCreated.getName())),
-                    expenses.getInt( expenses.getColumnIndexOrThrow(TransactionContract.MonthCreated.getName())),
-                    expenses.getInt( expenses.getColumnIndexOrThrow(TransactionContract.DayCreated.getName())),
-                    expenses.getLong( expenses.getColumnIndexOrThrow(TransactionContract.PrimaryKey.getName()))
-            );
-            allExpenses.add(next);
+            allExpenses.add(rowMapper.toExpenseModel(expenses));
             expenses.moveToNext();
         }
 
         expenses.close();
-        db.close();
         return allExpenses;
     }
+
+    /**
+     * Gets one page of expenses ordered by date incurred and then by Id.
+     * Pages are found by seeking past the last row of the previous page rather than by offset,
+     * so every page costs the same no matter how deep into the history it is.
+     * @param after     The key returned by the previous page, or null for the first page
+     * @param pageSize  The maximum number of expenses to return. Must be positive
+     * @return          The page of expenses
+     */
+    public ExpensePage getExpensePage(@Nullable ExpensePage.Key after, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+
+        String selection = null;
+        String[] selectionArgs = null;
+
+        if (after != null) {
+            // (epochday, id) > (?, ?), spelled out since older SQLite has no row values
+            selection = String.format(Locale.US, "%1$s > ? OR ( %1$s = ? AND %2$s > ? )",
+                    TransactionContract.EpochDayIncurred.getName(),
+                    TransactionContract.PrimaryKey.getName()
+            );
+
+            String afterEpochDay = String.valueOf(after.getEpochDayIncurred());
+
+            selectionArgs = new String[] {
+                    afterEpochDay,
+                    afterEpochDay,
+                    String.valueOf(after.getId())
+            };
+        }
+
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        // Ask for one extra row so we know whether another page follows without a separate count
+        Cursor expenses = db.query(
+                TransactionContract.ExpenseView.getName(),
+                null,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                getPageOrder(),
+                String.valueOf(pageSize + 1)
+        );
+
+        ExpenseRowMapper rowMapper = new ExpenseRowMapper(expenses);
+        List<ExpenseModel> pageExpenses = new ArrayList<>(Math.min(pageSize, expenses.getCount()));
+
+        expenses.moveToFirst();
+        while (! expenses.isAfterLast() && pageExpenses.size() < pageSize) {
+            pageExpenses.add(rowMapper.toExpenseModel(expenses));
+            expenses.moveToNext();
+        }
+
+        boolean hasNextPage = ! expenses.isAfterLast();
+        expenses.close();
+
+        ExpensePage.Key nextKey = null;
+        if (hasNextPage) {
+            nextKey = ExpensePage.Key.after(pageExpenses.get(pageExpenses.size() - 1));
+        }
+
+        return new ExpensePage(pageExpenses, nextKey);
+    }
+
+    /**
+     * Opens a stream over every expense, ordered by date incurred and then by Id.
+     * Rows are read from the database as the caller advances, so memory use doesn't grow with the
+     * number of expenses. The caller must close the returned cursor.
+     * @return  A cursor positioned before the first expense
+     */
+    public ExpenseCursor openExpenseCursor() {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor expenses = db.query(TransactionContract.ExpenseView.getName(), null, null, null, null, null, getPageOrder());
+
+        return new ExpenseCursor(expenses);
+    }
+
+    /**
+     * Opens a stream over the expenses incurred within a date range, ordered by date incurred and
+     * then by Id. The range is read with a single scan of the date index.
+     * The caller must close the returned cursor.
+     * @param startEpochDay The first day of the range, inclusive. See EpochDay
+     * @param endEpochDay   The last day of the range, inclusive. See EpochDay
+     * @return              A cursor positioned before the first expense in the range
+     */
+    public ExpenseCursor openExpenseCursor(int startEpochDay, int endEpochDay) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor expenses = db.query(
+                TransactionContract.ExpenseView.getName(),
+                null,
+                TransactionContract.EpochDayIncurred.getName() + " BETWEEN ? AND ?",
+                new String[] {String.valueOf(startEpochDay), String.valueOf(endEpochDay)},
+                null,
+                null,
+                getPageOrder()
+        );
+
+        return new ExpenseCursor(expenses);
+    }
+
+    /**
+     * Gets the expenses incurred within a date range, ordered by date incurred and then by Id.
+     * For example, the last 90 days are getExpensesBetween(EpochDay.today() - 89, EpochDay.today())
+     * @param startEpochDay The first day of the range, inclusive. See EpochDay
+     * @param endEpochDay   The last day of the range, inclusive. See EpochDay
+     * @return              The expenses in the range
+     */
+    @Override
+    public List<ExpenseModel> getExpensesBetween(int startEpochDay, int endEpochDay) {
+        ExpenseCursor expenses = this.openExpenseCursor(startEpochDay, endEpochDay);
+
+        List<ExpenseModel> expensesInRange = new ArrayList<>(expenses.getCount());
+        while (expenses.moveToNext()) {
+            expensesInRange.add(expenses.toExpenseModel());
+        }
+
+        expenses.close();
+        return expensesInRange;
+    }
+
+    /**
+     * Loads every expense into columns of primitive arrays, in a single pass over the table
+     * @return  The expenses, ordered by Id. Keep them up to date with refreshExpenseColumns()
+     */
+    @Override
+    public ExpenseColumns loadExpenseColumns() {
+        ExpenseColumns columns = new ExpenseColumns(0, 0);
+        this.reloadExpenseColumns(columns);
+        return columns;
+    }
+
+    /**
+     * Brings columns loaded by loadExpenseColumns() up to date. Only the expenses changed since
+     * they were loaded or last refreshed are read, using the change journal (see getChangesSince())
+     * @param columns   The columns to update
+     */
+    @Override
+    public void refreshExpenseColumns(ExpenseColumns columns) {
+        long sequence = columns.getChangeSequence();
+        long[] changedIds = new long[16];
+        int changedCount = 0;
+
+        List<ExpenseChange> changes;
+        do {
+            changes = this.getChangesSince(sequence, ChangesPerRead);
+            for (ExpenseChange change : changes) {
+                if (change.getType() == ExpenseChange.Type.RESET) {
+                    this.reloadExpenseColumns(columns);
+                    return;
+                }
+
+                if (changedCount == changedIds.length) {
+                    changedIds = Arrays.copyOf(changedIds, changedCount * 2);
+                }
+                changedIds[changedCount++] = change.getExpenseId();
+                sequence = change.getSequence();
+            }
+        } while (changes.size() == ChangesPerRead);
+
+        // Whatever happened to an expense, its row as it is now is all that matters
+        Arrays.sort(changedIds, 0, changedCount);
+        int uniqueCount = 0;
+        for (int i = 0; i < changedCount; i++) {
+            if (uniqueCount == 0 || changedIds[i] != changedIds[uniqueCount - 1]) {
+                changedIds[uniqueCount++] = changedIds[i];
+            }
+        }
+
+        for (int start = 0; start < uniqueCount; start += MaxArgumentsPerQuery) {
+            this.refreshExpenseColumns(columns, changedIds, start, Math.min(uniqueCount, start + MaxArgumentsPerQuery));
+        }
+        columns.setChangeSequence(sequence);
+    }
+
+    /**
+     * Reads the rows of a sorted run of changed Ids, putting those which exist and removing the rest
+     */
+    private void refreshExpenseColumns(ExpenseColumns columns, long[] changedIds, int start, int end) {
+        String[] selectionArgs = new String[end - start];
+        for (int i = start; i < end; i++) {
+            selectionArgs[i - start] = String.valueOf(changedIds[i]);
+        }
+        String selection = String.format(Locale.US, "%s IN ( %s )",
+                TransactionContract.PrimaryKey.getName(),
+                TextUtils.join(", ", Collections.nCopies(selectionArgs.length, "?"))
+        );
+
+        ExpenseCursor expenses = this.openExpenseCursorById(selection, selectionArgs);
+        try {
+            int next = start;
+            while (expenses.moveToNext()) {
+                // Both are in order of Id, so every Id skipped over has been deleted
+                long id = expenses.getId();
+                while (changedIds[next] < id) {
+                    columns.remove(changedIds[next++]);
+                }
+                putExpense(columns, expenses);
+                next++;
+            }
+            while (next < end) {
+                columns.remove(changedIds[next++]);
+            }
+        } finally {
+            expenses.close();
+        }
+    }
+
+    private void reloadExpenseColumns(ExpenseColumns columns) {
+        // Read the journal's position first, so changes made during the pass are read again by the
+        // next refresh rather than missed
+        long changeSequence = this.getLatestChangeSequence();
+
+        ExpenseCursor expenses = this.openExpenseCursorById(null, null);
+        try {
+            columns.clear(expenses.getCount());
+            while (expenses.moveToNext()) {
+                putExpense(columns, expenses);
+            }
+            columns.setChangeSequence(changeSequence);
+        } finally {
+            expenses.close();
+        }
+    }
+
+    private ExpenseCursor openExpenseCursorById(@Nullable String selection, @Nullable String[] selectionArgs) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor expenses = db.query(
+                TransactionContract.ExpenseView.getName(),
+                null,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                TransactionContract.PrimaryKey.getName()
+        );
+
+        return new ExpenseCursor(expenses);
+    }
+
+    private static void putExpense(ExpenseColumns columns, ExpenseCursor expense) {
+        columns.put(
+                expense.getId(),
+                expense.getAmountInMinorUnits(),
+                expense.getEpochDayIncurred(),
+                (int) expense.getPayeeId(),
+                expense.getName()
+        );
+    }
+
+    /**
+     * @return The sequence number of the latest change to any expense, or 0 if nothing has changed yet.
+     *         A consumer which has just loaded every expense can read changes since this
+     */
+    public long getLatestChangeSequence() {
+        return DatabaseUtils.longForQuery(this.getReadableDatabase(),
+                "SELECT IFNULL(( SELECT seq FROM sqlite_sequence WHERE name = ? ), 0);",
+                new String[] {ExpenseChangeContract.TableName}
+        );
+    }
+
+    /**
+     * Reads the changes made to expenses after a given change, oldest first.
+     * If changes after the given one have been discarded, a single RESET change is returned instead,
+     * and the consumer must reload everything and carry on from the RESET's sequence number
+     * @param sequence  The sequence number of the last change the consumer has seen, or 0 for none
+     * @param limit     The most changes to return. Call again from the last one returned to read more
+     * @return          The changes, which may include a RESET. Empty if nothing has changed since
+     */
+    public List<ExpenseChange> getChangesSince(long sequence, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        List<ExpenseChange> changes = new ArrayList<>();
+        Cursor journal = db.query(
+                ExpenseChangeContract.TableName,
+                new String[] {
+                        ExpenseChangeContract.Sequence.getName(),
+                        ExpenseChangeContract.ExpenseId.getName(),
+                        ExpenseChangeContract.ChangeType.getName()
+                },
+                ExpenseChangeContract.Sequence.getName() + " > ?",
+                new String[] {String.valueOf(sequence)},
+                null,
+                null,
+                ExpenseChangeContract.Sequence.getName(),
+                String.valueOf(limit)
+        );
+        try {
+            while (journal.moveToNext()) {
+                long expenseId = journal.isNull(1) ? ExpenseModel.UNSAVED_EXPENSE : journal.getLong(1);
+                changes.add(new ExpenseChange(journal.getLong(0), expenseId, ExpenseChange.Type.fromCode(journal.getInt(2))));
+            }
+        } finally {
+            journal.close();
+        }
+
+        // Changes are only discarded from the start of the journal. Checking for that after reading
+        // means a discard part way through can only cause an unnecessary reload, never a missed change
+        long oldestKeptSequence = DatabaseUtils.longForQuery(db,
+                String.format(Locale.US,
+                        "SELECT IFNULL(MIN(%1$s), IFNULL(( SELECT seq FROM sqlite_sequence WHERE name = '%2$s' ), 0) + 1) FROM %2$s;",
+                        ExpenseChangeContract.Sequence.getName(), ExpenseChangeContract.TableName),
+                null
+        );
+        if (sequence + 1 < oldestKeptSequence) {
+            changes.clear();
+            changes.add(ExpenseChange.reset(oldestKeptSequence - 1));
+        }
+
+        return changes;
+    }
+
+    /**
+     * Discards old changes once every consumer has read them, so the journal doesn't grow forever.
+     * Consumers which haven't read them yet will be told to reload everything
+     * @param sequence  The sequence number of the last change to discard
+     */
+    public void discardChangesThrough(long sequence) {
+        this.getWritableDatabase().delete(
+                ExpenseChangeContract.TableName,
+                ExpenseChangeContract.Sequence.getName() + " <= ?",
+                new String[] {String.valueOf(sequence)}
+        );
+    }
+
+    /**
+     * Finds expenses whose names contain words starting with each word of the query. The payees are
+     * found through the full-text index, then their expenses through the payee index, so no
+     * expenses are scanned. Suitable for search-as-you-type.
+     * Expenses matching the query more often come first, then those with shorter names, since those
+     * match more closely, then the most recently incurred.
+     * @param query The words to search for. Punctuation is ignored
+     * @param limit The maximum number of expenses to return. Must be positive
+     * @return      The matching expenses, best match first. Empty if the query has no words
+     */
+    public List<ExpenseModel> searchExpenses(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+
+        List<ExpenseModel> matches = new ArrayList<>();
+
+        String matchExpression = toPrefixMatchExpression(query);
+        if (matchExpression.isEmpty()) {
+            return matches;
+        }
+
+        // offsets() lists four numbers per matching term, so the number of spaces in it ranks how often the name matched
+        String searchSQL = String.format(Locale.US,
+                "SELECT %1$s.* FROM %1$s JOIN ( SELECT docid, offsets(%2$s) AS hits FROM %2$s WHERE %2$s MATCH ? ) AS search "
+                        + "ON %1$s.%3$s = search.docid "
+                        + "ORDER BY LENGTH(search.hits) - LENGTH(REPLACE(search.hits, ' ', '')) DESC, LENGTH(%1$s.%4$s), %1$s.%5$s DESC "
+                        + "LIMIT %6$d;",
+                TransactionContract.ExpenseView.getName(),
+                PayeeContract.NameSearch.getName(),
+                TransactionContract.PayeeId.getName(),
+                TransactionContract.TransactionName.getName(),
+                TransactionContract.EpochDayIncurred.getName(),
+                limit
+        );
+
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        Cursor expenses = db.rawQuery(searchSQL, new String[] {matchExpression});
+
+        ExpenseRowMapper rowMapper = new ExpenseRowMapper(expenses);
+        while (expenses.moveToNext()) {
+            matches.add(rowMapper.toExpenseModel(expenses));
+        }
+
+        expenses.close();
+        return matches;
+    }
+
+    /**
+     * Turns free text into a full-text query which requires every word, each as a prefix.
+     * Anything that isn't a letter or digit separates words, the same as the index's tokenizer,
+     * which also keeps quotes and operators in the text from being read as query syntax.
+     * @param query Free text, such as what the user has typed so far
+     * @return      The match expression, or an empty String if the text has no words
+     */
+    static String toPrefixMatchExpression(String query) {
+        StringBuilder matchExpression = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? query.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            }
+            else if (word.length() > 0) {
+                if (matchExpression.length() > 0) {
+                    matchExpression.append(' ');
+                }
+                // Quoting keeps words like OR and NEAR from being read as operators
+                matchExpression.append('"').append(word).append("*\"");
+                word.setLength(0);
+            }
+        }
+
+        return matchExpression.toString();
+    }
+
+    /**
+     * @return The ORDER BY clause shared by pages and cursors: date incurred and then Id
+     */
+    private static String getPageOrder() {
+        return String.format(Locale.US, "%s, %s",
+                TransactionContract.EpochDayIncurred.getName(),
+                TransactionContract.PrimaryKey.getName()
+        );
+    }
 }
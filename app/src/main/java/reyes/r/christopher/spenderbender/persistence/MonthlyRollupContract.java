@@ -0,0 +1,227 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Holds the schema for the Monthly Rollup Table: one row per month with expenses, holding the
+ * count, total, smallest and largest amount of that month's expenses.
+ * The table is kept up to date by triggers on the Transaction Table, so it changes in the same
+ * transaction as the expenses it summarizes.
+ */
+
+class MonthlyRollupContract {
+    static final String TableName = "monthlyrollup";
+
+    static final SQLiteColumnDefinition Year = new SQLiteColumnDefinition(
+            "year",                                 // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+    static final SQLiteColumnDefinition Month = new SQLiteColumnDefinition(
+            "month",                                // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+    static final SQLiteColumnDefinition ExpenseCount = new SQLiteColumnDefinition(
+            "expensecount",                         // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+    static final SQLiteColumnDefinition TotalInMinorUnits = new SQLiteColumnDefinition(
+            "totalminorunits",                      // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+    static final SQLiteColumnDefinition MinimumInMinorUnits = new SQLiteColumnDefinition(
+            "minimumminorunits",                    // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+    static final SQLiteColumnDefinition MaximumInMinorUnits = new SQLiteColumnDefinition(
+            "maximumminorunits",                    // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+
+    static ArrayList<SQLiteColumnDefinition> AllColumns;
+    static {
+        AllColumns = new ArrayList<>(6);
+        AllColumns.add(Year);
+        AllColumns.add(Month);
+        AllColumns.add(ExpenseCount);
+        AllColumns.add(TotalInMinorUnits);
+        AllColumns.add(MinimumInMinorUnits);
+        AllColumns.add(MaximumInMinorUnits);
+    }
+
+    // Each month has at most one row, and it is always looked up by year and month
+    static final SQLiteIndexDefinition MonthIndex = new SQLiteIndexDefinition(
+            "monthlyrollup_month_idx",              // Index Name
+            TableName,                              // Table
+            SQLiteIndexDefinition.columnTerms(Year, Month),
+            Boolean.TRUE,                           // isUnique
+            null                                    // whereClause
+    );
+
+    static ArrayList<SQLiteIndexDefinition> AllIndexes;
+    static {
+        AllIndexes = new ArrayList<>(1);
+        AllIndexes.add(MonthIndex);
+    }
+
+    static final SQLiteTableSchema schema = new SQLiteTableSchema( TableName, AllColumns, AllIndexes );
+
+    /**
+     * @param row - "NEW" or "OLD"
+     * @return Statements which add the given row of the Transaction Table to its month
+     */
+    private static ArrayList<String> addExpenseStatements(String row) {
+        ArrayList<String> statements = new ArrayList<>(2);
+        statements.add(String.format(Locale.US,
+                "INSERT OR IGNORE INTO %1$s ( %2$s, %3$s, %4$s, %5$s, %6$s, %7$s ) VALUES ( %8$s.%9$s, %8$s.%10$s, 0, 0, %8$s.%11$s, %8$s.%11$s )",
+                TableName, Year.getName(), Month.getName(), ExpenseCount.getName(), TotalInMinorUnits.getName(),
+                MinimumInMinorUnits.getName(), MaximumInMinorUnits.getName(),
+                row, TransactionContract.YearIncurred.getName(), TransactionContract.MonthIncurred.getName(),
+                TransactionContract.AmountInMinorUnits.getName()
+        ));
+        statements.add(String.format(Locale.US,
+                "UPDATE %1$s SET %4$s = %4$s + 1, %5$s = %5$s + %8$s.%11$s, %6$s = MIN(%6$s, %8$s.%11$s), %7$s = MAX(%7$s, %8$s.%11$s) "
+                        + "WHERE %2$s = %8$s.%9$s AND %3$s = %8$s.%10$s",
+                TableName, Year.getName(), Month.getName(), ExpenseCount.getName(), TotalInMinorUnits.getName(),
+                MinimumInMinorUnits.getName(), MaximumInMinorUnits.getName(),
+                row, TransactionContract.YearIncurred.getName(), TransactionContract.MonthIncurred.getName(),
+                TransactionContract.AmountInMinorUnits.getName()
+        ));
+        return statements;
+    }
+
+    /**
+     * The smallest and largest amounts can't be updated incrementally when a row leaves a month, so
+     * they are recomputed from the Transaction Table, but only when the row held the extreme value.
+     * That lookup is answered by the monthly amount index.
+     * @param row - "NEW" or "OLD"
+     * @return Statements which remove the given row of the Transaction Table from its month
+     */
+    private static ArrayList<String> removeExpenseStatements(String row) {
+        String monthOfRow = String.format(Locale.US, "%1$s = %2$s.%3$s AND %4$s = %2$s.%5$s",
+                TransactionContract.YearIncurred.getName(), row, TransactionContract.YearIncurred.getName(),
+                TransactionContract.MonthIncurred.getName(), TransactionContract.MonthIncurred.getName());
+
+        ArrayList<String> statements = new ArrayList<>(2);
+        statements.add(String.format(Locale.US,
+                "UPDATE %1$s SET %4$s = %4$s - 1, %5$s = %5$s - %8$s.%11$s, "
+                        + "%6$s = CASE WHEN %8$s.%11$s > %6$s THEN %6$s ELSE IFNULL(( SELECT MIN(%11$s) FROM %12$s WHERE %13$s ), 0) END, "
+                        + "%7$s = CASE WHEN %8$s.%11$s < %7$s THEN %7$s ELSE IFNULL(( SELECT MAX(%11$s) FROM %12$s WHERE %13$s ), 0) END "
+                        + "WHERE %2$s = %8$s.%9$s AND %3$s = %8$s.%10$s",
+                TableName, Year.getName(), Month.getName(), ExpenseCount.getName(), TotalInMinorUnits.getName(),
+                MinimumInMinorUnits.getName(), MaximumInMinorUnits.getName(),
+                row, TransactionContract.YearIncurred.getName(), TransactionContract.MonthIncurred.getName(),
+                TransactionContract.AmountInMinorUnits.getName(), TransactionContract.TableName, monthOfRow
+        ));
+        statements.add(String.format(Locale.US,
+                "DELETE FROM %1$s WHERE %2$s = %5$s.%6$s AND %3$s = %5$s.%7$s AND %4$s <= 0",
+                TableName, Year.getName(), Month.getName(), ExpenseCount.getName(),
+                row, TransactionContract.YearIncurred.getName(), TransactionContract.MonthIncurred.getName()
+        ));
+        return statements;
+    }
+
+    static final SQLiteTriggerDefinition AfterInsertTrigger = new SQLiteTriggerDefinition(
+            "monthlyrollup_after_insert",           // Trigger Name
+            TransactionContract.TableName,          // Table
+            SQLiteTriggerDefinition.Timing.AFTER,
+            SQLiteTriggerDefinition.Event.INSERT,
+            addExpenseStatements("NEW")
+    );
+
+    static final SQLiteTriggerDefinition AfterDeleteTrigger = new SQLiteTriggerDefinition(
+            "monthlyrollup_after_delete",           // Trigger Name
+            TransactionContract.TableName,          // Table
+            SQLiteTriggerDefinition.Timing.AFTER,
+            SQLiteTriggerDefinition.Event.DELETE,
+            removeExpenseStatements("OLD")
+    );
+
+    static final SQLiteTriggerDefinition AfterUpdateTrigger;
+    static {
+        // Renaming an expense, for example, doesn't touch the rollup
+        ArrayList<SQLiteColumnDefinition> rolledUpColumns = new ArrayList<>(3);
+        rolledUpColumns.add(TransactionContract.AmountInMinorUnits);
+        rolledUpColumns.add(TransactionContract.YearIncurred);
+        rolledUpColumns.add(TransactionContract.MonthIncurred);
+
+        ArrayList<String> moveExpense = removeExpenseStatements("OLD");
+        moveExpense.addAll(addExpenseStatements("NEW"));
+
+        AfterUpdateTrigger = new SQLiteTriggerDefinition(
+                "monthlyrollup_after_update",       // Trigger Name
+                TransactionContract.TableName,      // Table
+                SQLiteTriggerDefinition.Timing.AFTER,
+                SQLiteTriggerDefinition.Event.UPDATE,
+                rolledUpColumns,
+                moveExpense
+        );
+    }
+
+    static ArrayList<SQLiteTriggerDefinition> AllTriggers;
+    static {
+        AllTriggers = new ArrayList<>(3);
+        AllTriggers.add(AfterInsertTrigger);
+        AllTriggers.add(AfterDeleteTrigger);
+        AllTriggers.add(AfterUpdateTrigger);
+    }
+
+    /**
+     * @return A statement which recomputes every row of the rollup from the Transaction Table.
+     *         The rollup must be emptied first
+     */
+    static String generateRebuildSQL() {
+        return String.format(Locale.US,
+                "INSERT INTO %1$s ( %2$s, %3$s, %4$s, %5$s, %6$s, %7$s ) "
+                        + "SELECT %8$s, %9$s, COUNT(*), SUM(%10$s), MIN(%10$s), MAX(%10$s) FROM %11$s GROUP BY %8$s, %9$s",
+                TableName, Year.getName(), Month.getName(), ExpenseCount.getName(), TotalInMinorUnits.getName(),
+                MinimumInMinorUnits.getName(), MaximumInMinorUnits.getName(),
+                TransactionContract.YearIncurred.getName(), TransactionContract.MonthIncurred.getName(),
+                TransactionContract.AmountInMinorUnits.getName(), TransactionContract.TableName
+        );
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Holds the schema for the Payee Table: one row per distinct expense name, which expenses refer
+ * to by Id. Names that differ only in case or spacing share a payee, found by its normalized key.
+ * See PayeeDictionary
+ */
+
+class PayeeContract {
+    static final String TableName = "payee";
+
+    static final SQLiteColumnDefinition PrimaryKey = SQLiteColumnDefinition.StandardPrimaryKey();
+    // The spelling of the name as it was first entered
+    static final SQLiteColumnDefinition CanonicalName = new SQLiteColumnDefinition(
+            "name",                                 // Column Name
+            SQLiteColumnDefinition.DataType.TEXT,   // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+    static final SQLiteColumnDefinition NormalizedKey = new SQLiteColumnDefinition(
+            "normalizedkey",                        // Column Name
+            SQLiteColumnDefinition.DataType.TEXT,   // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+
+    static ArrayList<SQLiteColumnDefinition> AllColumns;
+    static {
+        AllColumns = new ArrayList<>(3);
+        AllColumns.add(PrimaryKey);
+        AllColumns.add(CanonicalName);
+        AllColumns.add(NormalizedKey);
+    }
+
+    // Finds the payee for a newly entered name
+    static final SQLiteIndexDefinition NormalizedKeyIndex = new SQLiteIndexDefinition(
+            "payee_normalizedkey_idx",              // Index Name
+            TableName,                              // Table
+            SQLiteIndexDefinition.columnTerms(NormalizedKey),
+            Boolean.TRUE,                           // isUnique
+            null                                    // whereClause
+    );
+
+    static ArrayList<SQLiteIndexDefinition> AllIndexes;
+    static {
+        AllIndexes = new ArrayList<>(1);
+        AllIndexes.add(NormalizedKeyIndex);
+    }
+
+    static final SQLiteTableSchema schema = new SQLiteTableSchema( TableName, AllColumns, AllIndexes );
+
+    // Finds payees by words in their names. Expenses are then found through their payee Id
+    static final SQLiteFullTextTableSchema NameSearch = new SQLiteFullTextTableSchema(
+            "payee_search",                         // Table Name
+            TableName,                              // Shadowed Table
+            PrimaryKey,                             // docid
+            Collections.singletonList(CanonicalName)
+    );
+}
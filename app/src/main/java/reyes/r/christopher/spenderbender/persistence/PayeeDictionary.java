@@ -0,0 +1,121 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Interns expense names as payee Ids, adding a payee the first time a name is seen.
+ * Recently used payees are cached in memory, so saving an expense for a familiar payee doesn't
+ * have to look it up in the database.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class PayeeDictionary {
+    // Most people have a few dozen regular payees, so this is plenty while staying small
+    static final int MaxCachedPayees = 512;
+
+    private final Map<String, Long> payeeIdsByKey = new LinkedHashMap<String, Long>(64, 0.75f, Boolean.TRUE) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return this.size() > MaxCachedPayees;
+        }
+    };
+
+    /**
+     * Finds the payee for a name, adding it if it's new. Must be called on a writable database
+     * @param db    The database holding the payee table
+     * @param name  The name as entered
+     * @return      The Id of the payee
+     * @throws SQLiteConstraintException if the name is null, or the payee can't be added
+     */
+    synchronized long intern(SQLiteDatabase db, String name) throws SQLiteConstraintException {
+        if (name == null) {
+            throw new SQLiteConstraintException("Payee name must not be null");
+        }
+
+        String key = normalize(name);
+
+        Long payeeId = this.payeeIdsByKey.get(key);
+        if (payeeId == null) {
+            payeeId = find(db, key);
+        }
+        if (payeeId == null) {
+            payeeId = add(db, name.trim(), key);
+        }
+
+        this.payeeIdsByKey.put(key, payeeId);
+        return payeeId;
+    }
+
+    /**
+     * Empties the cache. Must be called whenever a transaction that may have added payees is rolled
+     * back, since the cache could otherwise hand out the Id of a payee that no longer exists
+     */
+    synchronized void forget() {
+        this.payeeIdsByKey.clear();
+    }
+
+    private static Long find(SQLiteDatabase db, String key) {
+        Cursor payee = db.query(
+                PayeeContract.TableName,
+                new String[] {PayeeContract.PrimaryKey.getName()},
+                PayeeContract.NormalizedKey.getName() + " = ?",
+                new String[] {key},
+                null,
+                null,
+                null
+        );
+
+        Long payeeId = null;
+        if (payee.moveToFirst()) {
+            payeeId = payee.getLong(0);
+        }
+
+        payee.close();
+        return payeeId;
+    }
+
+    private static long add(SQLiteDatabase db, String canonicalName, String key) {
+        ContentValues payee = new ContentValues();
+        payee.put(PayeeContract.CanonicalName.getName(), canonicalName);
+        payee.put(PayeeContract.NormalizedKey.getName(), key);
+
+        return db.insertOrThrow(PayeeContract.TableName, null, payee);
+    }
+
+    /**
+     * Names are matched ignoring case, surrounding whitespace, and how much whitespace separates
+     * their words, so "Coffee  Shop " and "coffee shop" are the same payee
+     * @param name  A name as entered
+     * @return      The payee key for the name
+     */
+    static String normalize(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.US);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Defines an immutable FTS4 full-text table which shadows some text columns of another table.
+ * Each row of the full-text table has the same rowid (its "docid") as the row it shadows, and
+ * triggers on the shadowed table keep the two in step.
+ * The full-text table keeps its own copy of the text. External content tables would avoid that,
+ * but need a newer SQLite than the oldest devices we support.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class SQLiteFullTextTableSchema {
+    private final String name;
+    private final String contentTableName;
+    private final SQLiteColumnDefinition contentRowId;
+    private final List<SQLiteColumnDefinition> columns;
+    private final List<SQLiteTriggerDefinition> triggers;
+
+    private final String SQLCreateStatement;
+
+    /**
+     * Creates a new Full Text Table Schema
+     * @param name - The name of the full-text table
+     * @param contentTableName - The name of the table being shadowed
+     * @param contentRowId - The shadowed table's INTEGER PRIMARY KEY, used as each row's docid
+     * @param columns - The text columns of the shadowed table to make searchable. Must not be empty
+     */
+    SQLiteFullTextTableSchema(String name, String contentTableName, SQLiteColumnDefinition contentRowId, List<SQLiteColumnDefinition> columns) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("Full text table [" + name + "] must index at least one column");
+        }
+        if (!contentRowId.getIsPrimaryKey()) {
+            throw new IllegalArgumentException("Full text table [" + name + "] must use the primary key of [" + contentTableName + "] as its docid");
+        }
+
+        this.name = name;
+        this.contentTableName = contentTableName;
+        this.contentRowId = contentRowId;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+
+        this.SQLCreateStatement = generateCreateSQL();
+        this.triggers = Collections.unmodifiableList(generateTriggers());
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    String getContentTableName() {
+        return this.contentTableName;
+    }
+
+    List<SQLiteColumnDefinition> getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * @return The triggers on the shadowed table which keep the full-text table in step with it
+     */
+    List<SQLiteTriggerDefinition> getTriggers() {
+        return this.triggers;
+    }
+
+    /**
+     * @return A SQLite statement which copies every row of the shadowed table into the full-text
+     *         table. The full-text table must be empty first
+     */
+    String getPopulateStatement() {
+        return String.format(Locale.US, "INSERT INTO %s ( docid, %s ) SELECT %s, %s FROM %s;",
+                this.name,
+                joinColumnNames(""),
+                this.contentRowId.getName(),
+                joinColumnNames(""),
+                this.contentTableName
+        );
+    }
+
+    /**
+     * @return The Full Text Table Schema represented as a SQLite statement to create the table.
+     *         Older SQLite has no IF NOT EXISTS for virtual tables, so check before creating it
+     */
+    @Override
+    public String toString() {
+        return this.SQLCreateStatement;
+    }
+
+    private String generateCreateSQL() {
+        return String.format(Locale.US, "CREATE VIRTUAL TABLE %s USING fts4( %s );", this.name, joinColumnNames(""));
+    }
+
+    /**
+     * @param prefix - Prepended to every column name, such as "NEW."
+     * @return The names of the indexed columns separated by commas
+     */
+    private String joinColumnNames(String prefix) {
+        StringBuilder columnNames = new StringBuilder();
+        for (SQLiteColumnDefinition column : this.columns) {
+            if (columnNames.length() > 0) {
+                columnNames.append(", ");
+            }
+            columnNames.append(prefix).append(column.getName());
+        }
+        return columnNames.toString();
+    }
+
+    private List<SQLiteTriggerDefinition> generateTriggers() {
+        String insertNew = String.format(Locale.US, "INSERT INTO %s ( docid, %s ) VALUES ( NEW.%s, %s )",
+                this.name, joinColumnNames(""), this.contentRowId.getName(), joinColumnNames("NEW."));
+        String deleteOld = String.format(Locale.US, "DELETE FROM %s WHERE docid = OLD.%s",
+                this.name, this.contentRowId.getName());
+
+        // Only changes to the indexed text, or to the row's identity, touch the full-text table
+        List<SQLiteColumnDefinition> updateOfColumns = new ArrayList<>(this.columns);
+        updateOfColumns.add(this.contentRowId);
+
+        List<SQLiteTriggerDefinition> fullTextTriggers = new ArrayList<>(3);
+        fullTextTriggers.add(new SQLiteTriggerDefinition(
+                this.name + "_after_insert",
+                this.contentTableName,
+                SQLiteTriggerDefinition.Timing.AFTER,
+                SQLiteTriggerDefinition.Event.INSERT,
+                Collections.singletonList(insertNew)
+        ));
+        fullTextTriggers.add(new SQLiteTriggerDefinition(
+                this.name + "_after_delete",
+                this.contentTableName,
+                SQLiteTriggerDefinition.Timing.AFTER,
+                SQLiteTriggerDefinition.Event.DELETE,
+                Collections.singletonList(deleteOld)
+        ));
+
+        List<String> replaceOld = new ArrayList<>(2);
+        replaceOld.add(deleteOld);
+        replaceOld.add(insertNew);
+        fullTextTriggers.add(new SQLiteTriggerDefinition(
+                this.name + "_after_update",
+                this.contentTableName,
+                SQLiteTriggerDefinition.Timing.AFTER,
+                SQLiteTriggerDefinition.Event.UPDATE,
+                updateOfColumns,
+                replaceOld
+        ));
+        return fullTextTriggers;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Defines a single immutable index on a SQLite table.
+ * An index can be built over several columns (composite), can carry extra trailing columns so a
+ * query can be answered from the index alone (covering), can be restricted to the rows matching a
+ * WHERE clause (partial), and can index expressions instead of plain columns.
+ * Note that partial indexes need SQLite 3.8.0 and expression indexes need SQLite 3.9.0.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class SQLiteIndexDefinition {
+    private final String name;
+    private final String tableName;
+    private final List<String> terms;
+    private final Boolean isUnique;
+    private final String whereClause;
+
+    private final String toSQLText;
+
+    /**
+     * Generates a new immutable SQLiteIndexDefinition
+     *
+     * @param name - The name of the index. Must be unique within the database
+     * @param tableName - The name of the table to index
+     * @param terms - The indexed column names or expressions, most significant first. Must not be empty
+     * @param isUnique - Should the index enforce that no two rows share the same terms?
+     * @param whereClause - If given, only rows matching this condition are indexed
+     */
+    SQLiteIndexDefinition(String name, String tableName, List<String> terms, @Nullable Boolean isUnique, @Nullable String whereClause) {
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Index [" + name + "] must index at least one column or expression");
+        }
+
+        this.name = name;
+        this.tableName = tableName;
+        this.terms = Collections.unmodifiableList(new ArrayList<>(terms));
+
+        if (isUnique != null) {
+            this.isUnique = isUnique;
+        }
+        else {
+            this.isUnique = Boolean.FALSE;
+        }
+
+        if (whereClause != null && !whereClause.trim().isEmpty()) {
+            this.whereClause = whereClause.trim();
+        }
+        else {
+            this.whereClause = null;
+        }
+
+        this.toSQLText = generateCreateSQL();
+    }
+
+    /**
+     * Generates a new immutable, non-unique SQLiteIndexDefinition over every row of the table
+     *
+     * @param name - The name of the index. Must be unique within the database
+     * @param tableName - The name of the table to index
+     * @param terms - The indexed column names or expressions, most significant first. Must not be empty
+     */
+    SQLiteIndexDefinition(String name, String tableName, List<String> terms) {
+        this(name, tableName, terms, null, null);
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    String getTableName() {
+        return this.tableName;
+    }
+
+    List<String> getTerms() {
+        return this.terms;
+    }
+
+    Boolean getIsUnique() {
+        return this.isUnique;
+    }
+
+    /**
+     * @return The condition restricting which rows are indexed, or null if every row is indexed
+     */
+    @Nullable
+    String getWhereClause() {
+        return this.whereClause;
+    }
+
+    /**
+     * @return A valid SQLite statement for creating the index
+     */
+    private String generateCreateSQL() {
+        StringBuilder termList = new StringBuilder();
+        for (String term : this.terms) {
+            if (termList.length() > 0) {
+                termList.append(", ");
+            }
+            termList.append(term);
+        }
+
+        String sqlText = String.format(Locale.US, "CREATE %sINDEX IF NOT EXISTS %s ON %s ( %s )",
+                this.isUnique ? "UNIQUE " : "",
+                this.name,
+                this.tableName,
+                termList
+        );
+
+        if (this.whereClause != null) {
+            sqlText = sqlText + " WHERE " + this.whereClause;
+        }
+
+        return sqlText + ";";
+    }
+
+    /**
+     * @return The index represented as a SQLite statement to create it.
+     */
+    @Override
+    public String toString() {
+        return this.toSQLText;
+    }
+
+    /**
+     * Builds the terms of a composite or covering index from column definitions
+     * @param columns   The columns, most significant first. For a covering index, list the
+     *                  columns being searched first and the columns only being read last
+     * @return          The column names, for use as index terms
+     */
+    static List<String> columnTerms(SQLiteColumnDefinition... columns) {
+        List<String> terms = new ArrayList<>(columns.length);
+        for (SQLiteColumnDefinition column : columns) {
+            terms.add(column.getName());
+        }
+        return terms;
+    }
+}
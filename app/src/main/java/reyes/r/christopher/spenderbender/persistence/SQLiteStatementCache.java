@@ -0,0 +1,73 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Keeps compiled statements for reuse, so frequently run SQL is only parsed once per connection.
+ * A cached statement is shared between threads, so it must only be used inside a transaction,
+ * which gives the calling thread the database's only writable connection, and callers should
+ * hold the statement's lock from the first bind until they have finished executing it.
+ * Taking the lock before the transaction could deadlock against another thread's transaction.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class SQLiteStatementCache {
+    private final Map<String, SQLiteStatement> statementsBySQL = new HashMap<>();
+    private SQLiteDatabase database;
+
+    /**
+     * @param db    The database to run the statement against
+     * @param sql   The SQL of the statement. Should be one of a fixed set of strings, such as those
+     *              generated by SQLiteTableSchema, rather than SQL with values written into it
+     * @return      The compiled statement, compiling it on first use
+     */
+    synchronized SQLiteStatement get(SQLiteDatabase db, String sql) {
+        // Statements belong to the database they were compiled for
+        if (db != this.database) {
+            this.clear();
+            this.database = db;
+        }
+
+        SQLiteStatement statement = this.statementsBySQL.get(sql);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            this.statementsBySQL.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Closes every cached statement. Must be called before the database is closed
+     */
+    synchronized void clear() {
+        for (SQLiteStatement statement : this.statementsBySQL.values()) {
+            statement.close();
+        }
+        this.statementsBySQL.clear();
+        this.database = null;
+    }
+}
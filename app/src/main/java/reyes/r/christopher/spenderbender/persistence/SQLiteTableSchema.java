@@ -18,8 +18,9 @@
 
 package reyes.r.christopher.spenderbender.persistence;
 
-import android.text.TextUtils;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -32,26 +33,137 @@ import java.util.Locale;
 
 class SQLiteTableSchema {
     private final List<SQLiteColumnDefinition> columns;
+    private final List<SQLiteIndexDefinition> indexes;
     private final String name;
+    private final List<SQLiteColumnDefinition> insertColumns;
+    private final SQLiteColumnDefinition primaryKey;
 
     private final String SQLCreateStatement;
+    private final String SQLInsertStatement;
+    private final String SQLInsertWithKeyStatement;
+    private final String SQLDeleteStatement;
 
     /**
      * Creates a new Table Schema
      * @param name - The name of the table
      * @param columns - A list of column definitions. Can be empty
+     * @param indexes - A list of index definitions on this table. Can be empty
      */
-    SQLiteTableSchema(String name, List<SQLiteColumnDefinition> columns) {
+    SQLiteTableSchema(String name, List<SQLiteColumnDefinition> columns, List<SQLiteIndexDefinition> indexes) {
+        for (SQLiteIndexDefinition index : indexes) {
+            if (!name.equals(index.getTableName())) {
+                throw new IllegalArgumentException("Index [" + index.getName() + "] does not belong to table [" + name + "]");
+            }
+        }
+
+        SQLiteColumnDefinition primaryKey = null;
+        List<SQLiteColumnDefinition> insertColumns = new ArrayList<>(columns.size());
+        for (SQLiteColumnDefinition column : columns) {
+            if (column.getIsPrimaryKey()) {
+                primaryKey = column;
+            }
+            if (!column.getDoesAutoIncrement()) {
+                insertColumns.add(column);
+            }
+        }
+
         this.name = name;
         this.columns = columns;
+        this.indexes = Collections.unmodifiableList(new ArrayList<>(indexes));
+        this.insertColumns = Collections.unmodifiableList(insertColumns);
+        this.primaryKey = primaryKey;
 
         this.SQLCreateStatement = generateCreateSQL();
+        this.SQLInsertStatement = generateInsertSQL(this.insertColumns);
+        this.SQLInsertWithKeyStatement = generateInsertSQL(this.columns);
+        this.SQLDeleteStatement = generateDeleteSQL();
+    }
+
+    /**
+     * Creates a new Table Schema without any indexes
+     * @param name - The name of the table
+     * @param columns - A list of column definitions. Can be empty
+     */
+    SQLiteTableSchema(String name, List<SQLiteColumnDefinition> columns) {
+        this(name, columns, new ArrayList<SQLiteIndexDefinition>());
     }
 
     String getName() {
         return name;
     }
 
+    List<SQLiteIndexDefinition> getIndexes() {
+        return this.indexes;
+    }
+
+    /**
+     * @return The columns an INSERT supplies, in the order of its parameters. Auto-incrementing
+     *         columns are left for SQLite to fill in
+     */
+    List<SQLiteColumnDefinition> getInsertColumns() {
+        return this.insertColumns;
+    }
+
+    /**
+     * @return A parameterized INSERT of one row, binding getInsertColumns() in order
+     */
+    String getInsertStatement() {
+        return this.SQLInsertStatement;
+    }
+
+    /**
+     * @return A parameterized INSERT of one row which supplies every column, including the primary key,
+     *         binding the columns in table order. Used to restore rows with the Ids they had before
+     */
+    String getInsertWithKeyStatement() {
+        return this.SQLInsertWithKeyStatement;
+    }
+
+    /**
+     * @param updateColumns The columns to change, none of which may be the primary key
+     * @return A parameterized UPDATE of only the given columns of one row by primary key. Binds the
+     *         columns in the order given, then the primary key
+     * @throws IllegalStateException if the table has no primary key
+     * @throws IllegalArgumentException if there are no columns, or a column is not an updatable column of this table
+     */
+    String getUpdateStatement(List<SQLiteColumnDefinition> updateColumns) throws IllegalStateException, IllegalArgumentException {
+        if (this.primaryKey == null) {
+            throw new IllegalStateException("Table [" + this.name + "] has no primary key to update by");
+        }
+        if (updateColumns.isEmpty()) {
+            throw new IllegalArgumentException("An update of table [" + this.name + "] must change at least one column");
+        }
+        for (SQLiteColumnDefinition column : updateColumns) {
+            if (column == this.primaryKey || !this.columns.contains(column)) {
+                throw new IllegalArgumentException("Column [" + column.getName() + "] can't be updated in table [" + this.name + "]");
+            }
+        }
+
+        return generateUpdateSQL(updateColumns);
+    }
+
+    /**
+     * @return A parameterized DELETE of one row, binding its primary key
+     * @throws IllegalStateException if the table has no primary key
+     */
+    String getDeleteStatement() throws IllegalStateException {
+        if (this.SQLDeleteStatement == null) {
+            throw new IllegalStateException("Table [" + this.name + "] has no primary key to delete by");
+        }
+        return this.SQLDeleteStatement;
+    }
+
+    /**
+     * @return One SQLite statement per index, each creating the index if it doesn't exist yet
+     */
+    List<String> getCreateIndexStatements() {
+        List<String> statements = new ArrayList<>(this.indexes.size());
+        for (SQLiteIndexDefinition index : this.indexes) {
+            statements.add(index.toString());
+        }
+        return statements;
+    }
+
     /**
      * @return The Table Schema represented as a SQLite statement to create the table.
      */
@@ -67,11 +179,64 @@ class SQLiteTableSchema {
         String createStatement = String.format(Locale.getDefault(), "CREATE TABLE IF NOT EXISTS %s", this.name);
 
         if ( !this.columns.isEmpty() ) {
-            String columnDefinition = TextUtils.join(", ", this.columns);
+            String columnDefinition = join(this.columns);
 
             createStatement = String.format(Locale.getDefault(), "%s ( %s );", createStatement, columnDefinition);
         }
 
         return createStatement;
     }
+
+    private String generateInsertSQL(List<SQLiteColumnDefinition> insertColumns) {
+        String[] columnNames = new String[insertColumns.size()];
+        String[] parameters = new String[insertColumns.size()];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = insertColumns.get(i).getName();
+            parameters[i] = "?";
+        }
+
+        return String.format(Locale.US, "INSERT INTO %s ( %s ) VALUES ( %s );",
+                this.name,
+                join(Arrays.asList(columnNames)),
+                join(Arrays.asList(parameters))
+        );
+    }
+
+    private String generateUpdateSQL(List<SQLiteColumnDefinition> updateColumns) {
+        List<String> assignments = new ArrayList<>(updateColumns.size());
+        for (SQLiteColumnDefinition column : updateColumns) {
+            assignments.add(column.getName() + " = ?");
+        }
+
+        return String.format(Locale.US, "UPDATE %s SET %s WHERE %s = ?;",
+                this.name,
+                join(assignments),
+                this.primaryKey.getName()
+        );
+    }
+
+    /**
+     * @return The DELETE statement, or null if the table has no primary key
+     */
+    private String generateDeleteSQL() {
+        if (this.primaryKey == null) {
+            return null;
+        }
+
+        return String.format(Locale.US, "DELETE FROM %s WHERE %s = ?;", this.name, this.primaryKey.getName());
+    }
+
+    /**
+     * @return The items' SQL text, separated by commas
+     */
+    private static String join(List<?> items) {
+        StringBuilder joined = new StringBuilder();
+        for (Object item : items) {
+            if (joined.length() > 0) {
+                joined.append(", ");
+            }
+            joined.append(item);
+        }
+        return joined.toString();
+    }
 }
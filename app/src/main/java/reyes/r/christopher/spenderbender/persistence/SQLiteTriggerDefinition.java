@@ -0,0 +1,163 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Defines a single immutable trigger on a SQLite table.
+ * The trigger's statements run inside the same transaction as the change that fired it, which
+ * makes triggers a good way to keep derived tables in sync with the table they're derived from.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class SQLiteTriggerDefinition {
+
+    enum Timing {
+        BEFORE, AFTER
+    }
+
+    enum Event {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final String name;
+    private final String tableName;
+    private final Timing timing;
+    private final Event event;
+    private final List<String> updateOfColumns;
+    private final List<String> statements;
+
+    private final String toSQLText;
+
+    /**
+     * Generates a new immutable SQLiteTriggerDefinition which runs once for each changed row
+     *
+     * @param name - The name of the trigger. Must be unique within the database
+     * @param tableName - The name of the table whose changes fire the trigger
+     * @param timing - Whether the trigger runs before or after the change
+     * @param event - The kind of change which fires the trigger
+     * @param updateOfColumns - For UPDATE triggers, the columns whose changes fire the trigger.
+     *                          Null or empty means a change to any column fires it
+     * @param statements - The SQL statements to run, without trailing semicolons. They can refer to
+     *                     the changed row through NEW and OLD. Must not be empty
+     */
+    SQLiteTriggerDefinition(String name, String tableName, Timing timing, Event event,
+                            @Nullable List<SQLiteColumnDefinition> updateOfColumns, List<String> statements) {
+        if (statements.isEmpty()) {
+            throw new IllegalArgumentException("Trigger [" + name + "] must run at least one statement");
+        }
+        if (updateOfColumns != null && ! updateOfColumns.isEmpty() && event != Event.UPDATE) {
+            throw new IllegalArgumentException("Only UPDATE trigger [" + name + "] can be limited to some columns");
+        }
+
+        List<String> columnNames = new ArrayList<>();
+        if (updateOfColumns != null) {
+            for (SQLiteColumnDefinition column : updateOfColumns) {
+                columnNames.add(column.getName());
+            }
+        }
+
+        this.name = name;
+        this.tableName = tableName;
+        this.timing = timing;
+        this.event = event;
+        this.updateOfColumns = Collections.unmodifiableList(columnNames);
+        this.statements = Collections.unmodifiableList(new ArrayList<>(statements));
+
+        this.toSQLText = generateCreateSQL();
+    }
+
+    /**
+     * Generates a new immutable SQLiteTriggerDefinition which runs once for each changed row, no
+     * matter which columns changed
+     */
+    SQLiteTriggerDefinition(String name, String tableName, Timing timing, Event event, List<String> statements) {
+        this(name, tableName, timing, event, null, statements);
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    String getTableName() {
+        return this.tableName;
+    }
+
+    Timing getTiming() {
+        return this.timing;
+    }
+
+    Event getEvent() {
+        return this.event;
+    }
+
+    List<String> getUpdateOfColumns() {
+        return this.updateOfColumns;
+    }
+
+    List<String> getStatements() {
+        return this.statements;
+    }
+
+    /**
+     * @return A SQLite statement for dropping the trigger if it exists
+     */
+    String getDropStatement() {
+        return String.format(Locale.US, "DROP TRIGGER IF EXISTS %s;", this.name);
+    }
+
+    /**
+     * @return A valid SQLite statement for creating the trigger
+     */
+    private String generateCreateSQL() {
+        StringBuilder event = new StringBuilder(this.event.name());
+        for (int i = 0; i < this.updateOfColumns.size(); i++) {
+            event.append(i == 0 ? " OF " : ", ").append(this.updateOfColumns.get(i));
+        }
+
+        StringBuilder body = new StringBuilder();
+        for (String statement : this.statements) {
+            body.append(statement).append("; ");
+        }
+
+        return String.format(Locale.US, "CREATE TRIGGER IF NOT EXISTS %s %s %s ON %s FOR EACH ROW BEGIN %sEND;",
+                this.name,
+                this.timing.name(),
+                event,
+                this.tableName,
+                body
+        );
+    }
+
+    /**
+     * @return The trigger represented as a SQLite statement to create it.
+     */
+    @Override
+    public String toString() {
+        return this.toSQLText;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import java.util.Locale;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Defines a single immutable SQLite view.
+ * A view stores no rows of its own, so it can always be dropped and created again.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class SQLiteViewDefinition {
+    private final String name;
+    private final String selectStatement;
+
+    private final String toSQLText;
+
+    /**
+     * Generates a new immutable SQLiteViewDefinition
+     * @param name - The name of the view
+     * @param selectStatement - The SELECT statement whose results the view presents, without a trailing semicolon
+     */
+    SQLiteViewDefinition(String name, String selectStatement) {
+        String trimmedSelect = selectStatement.trim();
+        if (trimmedSelect.isEmpty()) {
+            throw new IllegalArgumentException("View [" + name + "] must select something");
+        }
+
+        this.name = name;
+        this.selectStatement = trimmedSelect;
+
+        this.toSQLText = String.format(Locale.US, "CREATE VIEW IF NOT EXISTS %s AS %s;", this.name, this.selectStatement);
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    String getSelectStatement() {
+        return this.selectStatement;
+    }
+
+    /**
+     * @return A SQLite statement for dropping the view if it exists
+     */
+    String getDropStatement() {
+        return String.format(Locale.US, "DROP VIEW IF EXISTS %s;", this.name);
+    }
+
+    /**
+     * @return The view represented as a SQLite statement to create it.
+     */
+    @Override
+    public String toString() {
+        return this.toSQLText;
+    }
+}
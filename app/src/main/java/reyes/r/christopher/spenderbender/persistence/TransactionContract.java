@@ -24,23 +24,27 @@ import java.util.ArrayList;
  * Created by Christopher R Reyes on 8/13/16.
  *
  * Holds the schema for the Transaction Table.
+ * Expenses refer to their name through a payee Id. Reads go through ExpenseView, which joins the
+ * payee's name back in.
  */
 
 class TransactionContract {
     static final String TableName = "financialtransaction";
 
     static final SQLiteColumnDefinition PrimaryKey = SQLiteColumnDefinition.StandardPrimaryKey();
-    static final SQLiteColumnDefinition TransactionName = new SQLiteColumnDefinition(
-            "name",                                 // Column Name
-            SQLiteColumnDefinition.DataType.TEXT,   // Type
+    // See PayeeContract
+    static final SQLiteColumnDefinition PayeeId = new SQLiteColumnDefinition(
+            "payeeid",                              // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
             Boolean.FALSE,                          // isPrimaryKey
             Boolean.FALSE,                          // doesAutoIncrement
             Boolean.FALSE,                          // isUnique
             Boolean.TRUE                            // isNotNull
     );
-    static final SQLiteColumnDefinition Amount = new SQLiteColumnDefinition(
-            "amount",                               // Column Name
-            SQLiteColumnDefinition.DataType.REAL,   // Type
+    // Stored as a whole number of minor units (see Money) so that sums are exact
+    static final SQLiteColumnDefinition AmountInMinorUnits = new SQLiteColumnDefinition(
+            "amountminorunits",                     // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
             Boolean.FALSE,                          // isPrimaryKey
             Boolean.FALSE,                          // doesAutoIncrement
             Boolean.FALSE,                          // isUnique
@@ -70,6 +74,15 @@ class TransactionContract {
             Boolean.FALSE,                          // isUnique
             Boolean.TRUE                            // isNotNull
     );
+    // The incurred date packed into a single number (see EpochDay), so date ranges are simple integer ranges
+    static final SQLiteColumnDefinition EpochDayIncurred = new SQLiteColumnDefinition(
+            "incurredepochday",                     // Column Name
+            SQLiteColumnDefinition.DataType.INT,    // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
     static final SQLiteColumnDefinition YearCreated = new SQLiteColumnDefinition(
             "createdyear",                          // Column Name
             SQLiteColumnDefinition.DataType.INT,    // Type
@@ -99,16 +112,86 @@ class TransactionContract {
     static {
         AllColumns = new ArrayList<>(4);
         AllColumns.add(PrimaryKey);
-        AllColumns.add(TransactionName);
-        AllColumns.add(Amount);
+        AllColumns.add(PayeeId);
+        AllColumns.add(AmountInMinorUnits);
         AllColumns.add(YearIncurred);
         AllColumns.add(MonthIncurred);
         AllColumns.add(DayIncurred);
+        AllColumns.add(EpochDayIncurred);
         AllColumns.add(YearCreated);
         AllColumns.add(MonthCreated);
         AllColumns.add(DayCreated);
     }
 
-    static final SQLiteTableSchema schema = new SQLiteTableSchema( TableName, AllColumns );
+    // Serves date-ordered and date-ranged reads, including keyset paging (the Id is implicitly part of every index)
+    static final SQLiteIndexDefinition DateIncurredIndex = new SQLiteIndexDefinition(
+            "financialtransaction_incurredepochday_idx", // Index Name
+            TableName,                              // Table
+            SQLiteIndexDefinition.columnTerms(EpochDayIncurred)
+    );
+
+    // Covers per-month totals so they can be computed without reading the table itself
+    static final SQLiteIndexDefinition MonthlyAmountIndex = new SQLiteIndexDefinition(
+            "financialtransaction_month_amount_idx", // Index Name
+            TableName,                              // Table
+            SQLiteIndexDefinition.columnTerms(YearIncurred, MonthIncurred, AmountInMinorUnits)
+    );
+
+    // Finds a payee's expenses, and lets per-payee totals group by an integer
+    static final SQLiteIndexDefinition PayeeIndex = new SQLiteIndexDefinition(
+            "financialtransaction_payee_idx",       // Index Name
+            TableName,                              // Table
+            SQLiteIndexDefinition.columnTerms(PayeeId)
+    );
+
+    static ArrayList<SQLiteIndexDefinition> AllIndexes;
+    static {
+        AllIndexes = new ArrayList<>(3);
+        AllIndexes.add(DateIncurredIndex);
+        AllIndexes.add(MonthlyAmountIndex);
+        AllIndexes.add(PayeeIndex);
+    }
+
+    static final SQLiteTableSchema schema = new SQLiteTableSchema( TableName, AllColumns, AllIndexes );
+
+    // The payee's name, as it appears in ExpenseView
+    static final SQLiteColumnDefinition TransactionName = new SQLiteColumnDefinition(
+            "name",                                 // Column Name
+            SQLiteColumnDefinition.DataType.TEXT,   // Type
+            Boolean.FALSE,                          // isPrimaryKey
+            Boolean.FALSE,                          // doesAutoIncrement
+            Boolean.FALSE,                          // isUnique
+            Boolean.TRUE                            // isNotNull
+    );
+
+    // Every column of ExpenseView: the table's columns followed by the payee's name
+    static ArrayList<SQLiteColumnDefinition> AllViewColumns;
+    static {
+        AllViewColumns = new ArrayList<>(AllColumns);
+        AllViewColumns.add(TransactionName);
+    }
+
+    static final SQLiteViewDefinition ExpenseView = new SQLiteViewDefinition(
+            "expense",                              // View Name
+            generateExpenseViewSelect()
+    );
+
+    /**
+     * Column names are kept unqualified so that queries against the view read like queries
+     * against the table
+     * @return The SELECT statement behind ExpenseView
+     */
+    private static String generateExpenseViewSelect() {
+        StringBuilder columns = new StringBuilder();
+        for (SQLiteColumnDefinition column : AllColumns) {
+            columns.append(TableName).append('.').append(column.getName())
+                    .append(" AS ").append(column.getName()).append(", ");
+        }
+        columns.append(PayeeContract.TableName).append('.').append(PayeeContract.CanonicalName.getName())
+                .append(" AS ").append(TransactionName.getName());
 
+        return "SELECT " + columns + " FROM " + TableName
+                + " JOIN " + PayeeContract.TableName
+                + " ON " + PayeeContract.TableName + "." + PayeeContract.PrimaryKey.getName() + " = " + TableName + "." + PayeeId.getName();
+    }
 }
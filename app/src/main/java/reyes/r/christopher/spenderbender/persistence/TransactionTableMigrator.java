@@ -0,0 +1,285 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.Locale;
+
+import reyes.r.christopher.spenderbender.model.Money;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Upgrades the transaction table from one database version to the next.
+ * Each step is written against the table layout of its own version rather than against
+ * TransactionContract, so that later changes to the contract can't break older upgrades.
+ * Steps only change tables and data. LocalDatabaseHandler drops views and triggers beforehand, and
+ * creates the current indexes, triggers and views afterwards.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class TransactionTableMigrator {
+    private static final String TableName = "financialtransaction";
+
+    // Version 2 rows whose amounts can't be stored as Money. They're set aside here, exactly as
+    // they were, rather than being migrated with a made-up amount or thrown away
+    static final String UnmigratedTableName = TableName + "_unmigrated";
+
+    // Rows touched per statement, so that no single statement has to hold the whole table
+    private static final int BatchSize = 500;
+
+    // Indexes from earlier versions which the current schema no longer defines
+    private static final String[] ObsoleteIndexNames = {
+            "financialtransaction_incurred_idx"     // Year/month/day index, replaced by the epoch day index in version 4
+    };
+
+    // Tables from earlier versions which the current schema no longer defines
+    private static final String[] ObsoleteTableNames = {
+            "financialtransaction_search"           // Expense name search, replaced by payee_search in version 7
+    };
+
+    // Triggers from earlier versions which the current schema no longer defines
+    private static final String[] ObsoleteTriggerNames = {
+            "financialtransaction_search_after_insert",     // Removed in version 7, along with their table
+            "financialtransaction_search_after_delete",
+            "financialtransaction_search_after_update"
+    };
+
+    private TransactionTableMigrator() {
+        // Only static methods
+    }
+
+    /**
+     * Version 3: Rebuilds the transaction table with an INTEGER amount column, converting the
+     * REAL amounts of version 2 to minor units. SQLite can't change a column's type in place, so the
+     * old table is renamed and each row is copied into a fresh one.
+     * Amounts are converted in Java by Money rather than by SQLite's ROUND(), which rounds the binary
+     * product and so disagrees with Money for amounts like 0.285. Migrated and newly saved expenses
+     * therefore round the same way.
+     * Version 2 never checked amounts. Rows whose amounts Money can't hold, such as infinities, are
+     * moved to the unmigrated table instead. Any stand-in amount would be made up, and the extremes
+     * of a long would overflow SQLite's SUM() when the monthly rollup is rebuilt, failing the upgrade
+     * @param db    A version 2 database. Modified!
+     */
+    static void migrateAmountsToMinorUnits(SQLiteDatabase db) {
+        String legacyTableName = TableName + "_v2";
+        String commonColumns = "incurredyear, incurredmonth, incurredday, createdyear, createdmonth, createdday";
+
+        // Indexes on the old table are dropped along with it
+        db.execSQL(String.format(Locale.US, "ALTER TABLE %s RENAME TO %s;", TableName, legacyTableName));
+        db.execSQL("CREATE TABLE " + TableName + " ( _id INTEGER PRIMARY KEY AUTOINCREMENT UNIQUE NOT NULL, "
+                + "name TEXT NOT NULL, amountminorunits INTEGER NOT NULL, "
+                + "incurredyear INTEGER NOT NULL, incurredmonth INTEGER NOT NULL, incurredday INTEGER NOT NULL, "
+                + "createdyear INTEGER NOT NULL, createdmonth INTEGER NOT NULL, createdday INTEGER NOT NULL );");
+
+        SQLiteStatement copyRow = db.compileStatement(String.format(Locale.US,
+                "INSERT INTO %1$s ( _id, name, amountminorunits, %2$s ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ? );",
+                TableName, commonColumns
+        ));
+        Cursor legacyRows = db.rawQuery(String.format(Locale.US,
+                "SELECT _id, name, amount, %2$s FROM %1$s;", legacyTableName, commonColumns
+        ), null);
+        SQLiteStatement setAsideRow = null;
+        try {
+            while (legacyRows.moveToNext()) {
+                double amount = legacyRows.getDouble(2);
+                if (!Money.isRepresentable(amount)) {
+                    if (setAsideRow == null) {
+                        setAsideRow = compileSetAside(db, commonColumns);
+                    }
+                    setAsideRow.bindLong(1, legacyRows.getLong(0));
+                    setAsideRow.bindString(2, legacyRows.getString(1));
+                    setAsideRow.bindDouble(3, amount);
+                    for (int column = 3; column < 9; column++) {
+                        setAsideRow.bindLong(column + 1, legacyRows.getLong(column));
+                    }
+                    setAsideRow.executeInsert();
+                    continue;
+                }
+
+                copyRow.bindLong(1, legacyRows.getLong(0));
+                copyRow.bindString(2, legacyRows.getString(1));
+                copyRow.bindLong(3, Money.toMinorUnits(amount));
+                for (int column = 3; column < 9; column++) {
+                    copyRow.bindLong(column + 1, legacyRows.getLong(column));
+                }
+                copyRow.executeInsert();
+            }
+        } finally {
+            legacyRows.close();
+            copyRow.close();
+            if (setAsideRow != null) {
+                setAsideRow.close();
+            }
+        }
+
+        // Carry over the AUTOINCREMENT counter so Ids of deleted expenses are never reused
+        db.execSQL("DELETE FROM sqlite_sequence WHERE name = ?;", new Object[] {TableName});
+        db.execSQL("UPDATE sqlite_sequence SET name = ? WHERE name = ?;", new Object[] {TableName, legacyTableName});
+
+        db.execSQL("DROP TABLE " + legacyTableName + ";");
+    }
+
+    /**
+     * Creates the unmigrated table, with version 2's layout, only once a row needs it
+     * @return  A statement inserting a version 2 row into it
+     */
+    private static SQLiteStatement compileSetAside(SQLiteDatabase db, String commonColumns) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + UnmigratedTableName + " ( _id INTEGER PRIMARY KEY NOT NULL, "
+                + "name TEXT NOT NULL, amount REAL NOT NULL, "
+                + "incurredyear INTEGER NOT NULL, incurredmonth INTEGER NOT NULL, incurredday INTEGER NOT NULL, "
+                + "createdyear INTEGER NOT NULL, createdmonth INTEGER NOT NULL, createdday INTEGER NOT NULL );");
+        return db.compileStatement(String.format(Locale.US,
+                "INSERT INTO %1$s ( _id, name, amount, %2$s ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ? );",
+                UnmigratedTableName, commonColumns
+        ));
+    }
+
+    /**
+     * Version 4: Adds the packed incurredepochday column and fills it in from the year, month and
+     * day columns, one range of Ids at a time.
+     * @param db    A version 3 database. Modified!
+     */
+    static void addEpochDayIncurred(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TableName + " ADD COLUMN incurredepochday INTEGER NOT NULL DEFAULT 0;");
+
+        // julianday() of midnight on 1970-01-01 is 2440587.5. Months are stored 0-based, like Calendar
+        SQLiteStatement fillBatch = db.compileStatement("UPDATE " + TableName + " SET incurredepochday = "
+                + "CAST(julianday(incurredyear || '-' || substr('0' || (incurredmonth + 1), -2, 2) || '-' || substr('0' || incurredday, -2, 2)) - 2440587.5 AS INTEGER) "
+                + "WHERE _id > ? AND _id <= ?;");
+        SQLiteStatement maxId = db.compileStatement("SELECT IFNULL(MAX(_id), 0) FROM " + TableName + ";");
+
+        long lastId = maxId.simpleQueryForLong();
+        for (long batchStart = 0; batchStart < lastId; batchStart += BatchSize) {
+            fillBatch.bindLong(1, batchStart);
+            fillBatch.bindLong(2, batchStart + BatchSize);
+            fillBatch.executeUpdateDelete();
+        }
+
+        fillBatch.close();
+        maxId.close();
+    }
+
+    /**
+     * Version 7: Moves expense names into the payee table, replacing the name column with a payee Id.
+     * Names are matched to payees in Java, since SQLite can't normalize them the same way, and the
+     * table is then rebuilt in batches ordered by Id by joining against a temporary name-to-payee map.
+     * @param db    A version 6 database without triggers. Modified!
+     */
+    static void moveNamesToPayees(SQLiteDatabase db) {
+        String legacyTableName = TableName + "_v6";
+        String commonColumns = "amountminorunits, incurredyear, incurredmonth, incurredday, incurredepochday, createdyear, createdmonth, createdday";
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS payee ( _id INTEGER PRIMARY KEY AUTOINCREMENT UNIQUE NOT NULL, "
+                + "name TEXT NOT NULL, normalizedkey TEXT NOT NULL );");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS payee_normalizedkey_idx ON payee ( normalizedkey );");
+        db.execSQL("CREATE TEMP TABLE payeename ( name TEXT PRIMARY KEY NOT NULL, payeeid INTEGER NOT NULL );");
+
+        SQLiteStatement findPayee = db.compileStatement("SELECT IFNULL(( SELECT _id FROM payee WHERE normalizedkey = ? ), -1);");
+        SQLiteStatement addPayee = db.compileStatement("INSERT INTO payee ( name, normalizedkey ) VALUES ( ?, ? );");
+        SQLiteStatement mapName = db.compileStatement("INSERT INTO temp.payeename ( name, payeeid ) VALUES ( ?, ? );");
+
+        Cursor names = db.rawQuery("SELECT DISTINCT name FROM " + TableName + ";", null);
+        while (names.moveToNext()) {
+            String name = names.getString(0);
+            String key = PayeeDictionary.normalize(name);
+
+            findPayee.bindString(1, key);
+            long payeeId = findPayee.simpleQueryForLong();
+            if (payeeId == -1) {
+                addPayee.bindString(1, name.trim());
+                addPayee.bindString(2, key);
+                payeeId = addPayee.executeInsert();
+            }
+
+            mapName.bindString(1, name);
+            mapName.bindLong(2, payeeId);
+            mapName.executeInsert();
+        }
+        names.close();
+        findPayee.close();
+        addPayee.close();
+        mapName.close();
+
+        db.execSQL(String.format(Locale.US, "ALTER TABLE %s RENAME TO %s;", TableName, legacyTableName));
+        db.execSQL("CREATE TABLE " + TableName + " ( _id INTEGER PRIMARY KEY AUTOINCREMENT UNIQUE NOT NULL, "
+                + "payeeid INTEGER NOT NULL, amountminorunits INTEGER NOT NULL, "
+                + "incurredyear INTEGER NOT NULL, incurredmonth INTEGER NOT NULL, incurredday INTEGER NOT NULL, incurredepochday INTEGER NOT NULL, "
+                + "createdyear INTEGER NOT NULL, createdmonth INTEGER NOT NULL, createdday INTEGER NOT NULL );");
+
+        SQLiteStatement copyBatch = db.compileStatement(String.format(Locale.US,
+                "INSERT INTO %1$s ( _id, payeeid, %3$s ) "
+                        + "SELECT legacy._id, payeename.payeeid, %3$s FROM %2$s AS legacy JOIN temp.payeename AS payeename ON payeename.name = legacy.name "
+                        + "WHERE legacy._id > ? ORDER BY legacy._id LIMIT %4$d;",
+                TableName, legacyTableName, commonColumns, BatchSize
+        ));
+        SQLiteStatement lastCopiedId = db.compileStatement("SELECT IFNULL(MAX(_id), 0) FROM " + TableName + ";");
+
+        long lastId = 0;
+        int copiedRows;
+        do {
+            copyBatch.bindLong(1, lastId);
+            copiedRows = copyBatch.executeUpdateDelete();
+            lastId = lastCopiedId.simpleQueryForLong();
+        } while (copiedRows == BatchSize);
+
+        copyBatch.close();
+        lastCopiedId.close();
+
+        // Carry over the AUTOINCREMENT counter so Ids of deleted expenses are never reused
+        db.execSQL("DELETE FROM sqlite_sequence WHERE name = ?;", new Object[] {TableName});
+        db.execSQL("UPDATE sqlite_sequence SET name = ? WHERE name = ?;", new Object[] {TableName, legacyTableName});
+
+        db.execSQL("DROP TABLE " + legacyTableName + ";");
+        db.execSQL("DROP TABLE temp.payeename;");
+    }
+
+    /**
+     * Drops tables which earlier versions created but the current schema doesn't define
+     * @param db    The database being upgraded. Modified!
+     */
+    static void dropObsoleteTables(SQLiteDatabase db) {
+        for (String tableName : ObsoleteTableNames) {
+            db.execSQL("DROP TABLE IF EXISTS " + tableName + ";");
+        }
+    }
+
+    /**
+     * Drops triggers which earlier versions created but the current schema doesn't define
+     * @param db    The database being upgraded. Modified!
+     */
+    static void dropObsoleteTriggers(SQLiteDatabase db) {
+        for (String triggerName : ObsoleteTriggerNames) {
+            db.execSQL("DROP TRIGGER IF EXISTS " + triggerName + ";");
+        }
+    }
+
+    /**
+     * Drops indexes which earlier versions created but the current schema doesn't define
+     * @param db    The database being upgraded. Modified!
+     */
+    static void dropObsoleteIndexes(SQLiteDatabase db) {
+        for (String indexName : ObsoleteIndexNames) {
+            db.execSQL("DROP INDEX IF EXISTS " + indexName + ";");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Receives the outcome of a write queued on the database writer.
+ * Both methods are called on the writer thread, once the write's transaction has finished, so
+ * implementations should hand any UI work off to the main thread.
+ */
+
+public interface WriteCallback<T> {
+
+    /**
+     * Called once the write has been committed
+     * @param result    The result of the write, such as the Id of a saved expense
+     */
+    void onWritten(T result);
+
+    /**
+     * Called if the write could not be committed. Nothing the write did was kept
+     * @param e The reason the write failed
+     */
+    void onFailed(Exception e);
+}
@@ -0,0 +1,48 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Runs tasks on the main thread, in the order they're given.
+ * The Handler is only made for the first task, so creating one never touches the main Looper.
+ * All of these methods are package-local. They don't need to be exposed beyond this package
+ */
+
+class MainThreadExecutor implements Executor {
+    private Handler handler;
+
+    @Override
+    public void execute(Runnable task) {
+        this.getHandler().post(task);
+    }
+
+    private synchronized Handler getHandler() {
+        if (this.handler == null) {
+            this.handler = new Handler(Looper.getMainLooper());
+        }
+        return this.handler;
+    }
+}
@@ -20,16 +20,25 @@ package reyes.r.christopher.spenderbender.viewmodel;
 
 import android.databinding.BaseObservable;
 import android.databinding.Bindable;
+import android.databinding.ObservableArrayList;
+import android.databinding.ObservableList;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
-import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import reyes.r.christopher.spenderbender.BR;
 import reyes.r.christopher.spenderbender.model.ExpenseModel;
-import reyes.r.christopher.spenderbender.persistence.LocalDatabaseHandler;
+import reyes.r.christopher.spenderbender.model.ExpenseValidator;
+import reyes.r.christopher.spenderbender.persistence.ExpenseStore;
+import reyes.r.christopher.spenderbender.persistence.WriteCallback;
 
 /**
  * Created by Christopher R Reyes on 8/19/16.
@@ -38,7 +47,12 @@ import reyes.r.christopher.spenderbender.persistence.LocalDatabaseHandler;
  */
 
 public class TransactionViewModel extends BaseObservable {
-    private final LocalDatabaseHandler dbh;
+    private static final Object sharedLoaderLock = new Object();
+    private static ExecutorService sharedLoader;
+
+    private final ExpenseStore store;
+    private final ExecutorService loader;
+    private final Executor mainThread;
 
     private double amount;
     private String stringAmount;
@@ -47,25 +61,32 @@ public class TransactionViewModel extends BaseObservable {
     private int monthIncurred;
     private int dayIncurred;
 
-    private List<ExpenseModel> expenseModelList = new ArrayList<>();
+    // Patched in place as expenses change, so observers are told exactly which rows changed
+    private final ObservableArrayList<ExpenseModel> expenseModelList = new ObservableArrayList<>();
 
-    private final HashSet<Integer> validMonths = new HashSet<>();
+    // Only touched on the main thread. Each background load remembers the generation it was
+    // started in, and its results are dropped if the generation has moved on by the time they arrive
+    private int loadGeneration;
+    private boolean isLoading;
+    private RuntimeException loadError;
+    private Future<?> pendingLoad;
 
-    public TransactionViewModel(LocalDatabaseHandler dbh) {
-        this.dbh = dbh;
+    /**
+     * @param store Where expenses are saved, such as a LocalDatabaseHandler
+     */
+    public TransactionViewModel(ExpenseStore store) {
+        this(store, getSharedLoader(), new MainThreadExecutor());
+    }
 
-        validMonths.add(GregorianCalendar.JANUARY);
-        validMonths.add(GregorianCalendar.FEBRUARY);
-        validMonths.add(GregorianCalendar.MARCH);
-        validMonths.add(GregorianCalendar.APRIL);
-        validMonths.add(GregorianCalendar.MAY);
-        validMonths.add(GregorianCalendar.JUNE);
-        validMonths.add(GregorianCalendar.JULY);
-        validMonths.add(GregorianCalendar.AUGUST);
-        validMonths.add(GregorianCalendar.SEPTEMBER);
-        validMonths.add(GregorianCalendar.OCTOBER);
-        validMonths.add(GregorianCalendar.NOVEMBER);
-        validMonths.add(GregorianCalendar.DECEMBER);
+    /**
+     * @param store         Where expenses are saved, such as a LocalDatabaseHandler
+     * @param loader        Runs background loads
+     * @param mainThread    Publishes the results of background loads
+     */
+    TransactionViewModel(ExpenseStore store, ExecutorService loader, Executor mainThread) {
+        this.store = store;
+        this.loader = loader;
+        this.mainThread = mainThread;
 
         resetFields();
     }
@@ -90,7 +111,12 @@ public class TransactionViewModel extends BaseObservable {
         notifyPropertyChanged(BR.stringAmount);
     }
 
-    public void addExpense(String name, double amount, int yearIncurred, int monthIncurred, int dayIncurred) {
+    /**
+     * Queues the expense to be saved on the database's background writer, so the caller never
+     * waits on the database
+     * @return  Completes with the new Id of the expense once it has been saved
+     */
+    public Future<Long> addExpense(String name, double amount, int yearIncurred, int monthIncurred, int dayIncurred) {
 
         ExpenseModel expense = new ExpenseModel(
                 name,
@@ -100,12 +126,44 @@ public class TransactionViewModel extends BaseObservable {
                 dayIncurred
         );
 
-        dbh.saveExpense(expense);
+        return this.store.queueExpense(expense);
     }
 
-    public void addExpense() throws IllegalStateException {
+    /**
+     * Queues the expense to be saved on the database's background writer, then tells the callback
+     * on the main thread whether it was saved
+     * @param callback  Told the new Id, or why the expense couldn't be saved, on the main thread. Optional
+     * @return          Completes with the new Id of the expense once it has been saved
+     */
+    public Future<Long> addExpense(String name, double amount, int yearIncurred, int monthIncurred, int dayIncurred, @Nullable WriteCallback<Long> callback) {
+
+        ExpenseModel expense = new ExpenseModel(
+                name,
+                amount,
+                yearIncurred,
+                monthIncurred,
+                dayIncurred
+        );
+
+        return this.store.queueExpense(expense, this.onMainThread(callback));
+    }
+
+    public Future<Long> addExpense() throws IllegalStateException {
         if (validateFields()) {
-            addExpense(this.name, this.amount, this.yearIncurred, this.monthIncurred, this.dayIncurred);
+            return addExpense(this.name, this.amount, this.yearIncurred, this.monthIncurred, this.dayIncurred);
+        }
+        else {
+            throw new IllegalStateException("Cannot save expense to database because current fields are not valid");
+        }
+    }
+
+    /**
+     * Saves the current fields as a new expense. See addExpense(String, double, int, int, int, WriteCallback)
+     * @param callback  Told the new Id, or why the expense couldn't be saved, on the main thread. Optional
+     */
+    public Future<Long> addExpense(@Nullable WriteCallback<Long> callback) throws IllegalStateException {
+        if (validateFields()) {
+            return addExpense(this.name, this.amount, this.yearIncurred, this.monthIncurred, this.dayIncurred, callback);
         }
         else {
             throw new IllegalStateException("Cannot save expense to database because current fields are not valid");
@@ -118,15 +176,7 @@ public class TransactionViewModel extends BaseObservable {
      */
     public boolean validateFields() {
         // Just need to ensure that every field is specified
-        return (
-                isValidName(this.name) &&
-                        ! this.name.isEmpty() &&
-                        isValidAmount(this.amount) &&
-                        isValidYear(this.yearIncurred) &&
-                        isValidMonth(this.monthIncurred) &&
-                        isValidDay(this.dayIncurred) &&
-                        isValidDate(this.yearIncurred, this.monthIncurred, this.dayIncurred)
-        );
+        return ExpenseValidator.isValidExpense(this.name, this.amount, this.yearIncurred, this.monthIncurred, this.dayIncurred);
     }
 
     @Bindable
@@ -147,7 +197,7 @@ public class TransactionViewModel extends BaseObservable {
             safeAmount = String.valueOf((double) 0);
         }
 
-        if (! isValidAmount(safeAmount)) {
+        if (! ExpenseValidator.isValidAmount(safeAmount)) {
             throw new IllegalArgumentException("Amount [" + safeAmount + "] is not a valid amount");
         }
 
@@ -158,86 +208,39 @@ public class TransactionViewModel extends BaseObservable {
         notifyPropertyChanged(BR.stringAmount);
     }
 
-    /**
-     * Validates that the amount of the transaction is valid
-     * Pretty much any finite amount is valid
-     * @param amount
-     * @return true if the amount is valid
-     */
-    private boolean isValidAmount(double amount) {
-        return (! Double.isInfinite(amount));
-    }
-
-    /**
-     * Validates that the amount of the transaction is valid
-     * Also checks the conversion from String to double
-     * @param amount
-     * @return
-     */
-    private boolean isValidAmount(String amount) {
-        double formattedAmount;
-        try {
-            formattedAmount = Double.valueOf(amount);
-        } catch (NumberFormatException e) {
-            return Boolean.FALSE;
-        }
-        return isValidAmount(formattedAmount);
-    }
-
     @Bindable
     public String getName() {
         return name;
     }
 
     public void setName(String name) throws IllegalArgumentException {
-        if (!isValidName(name)) {
+        if (!ExpenseValidator.isValidName(name)) {
             throw new IllegalArgumentException("Name must be not be null");
         }
         this.name = name;
         notifyPropertyChanged(BR.name);
     }
 
-    /**
-     * Checks whether or not the name is a valid String
-     * @param name
-     * @return
-     */
-    private boolean isValidName(String name) {
-        return ( name != null );
-    }
-
     @Bindable
     public int getYearIncurred() {
         return this.yearIncurred;
     }
 
     public void setYearIncurred(int yearIncurred) throws IllegalArgumentException {
-        if (! isValidYear(yearIncurred)) {
+        if (! ExpenseValidator.isValidYear(yearIncurred)) {
             throw new IllegalArgumentException("Must supply a valid year in which the expense was incurred");
         }
         this.yearIncurred = yearIncurred;
         notifyPropertyChanged(BR.yearIncurred);
     }
 
-    /**
-     * Determines if the specified year is a valid year for the transaction.
-     * Unfortunately, years before 1000 AD are not supported
-     * @param year
-     * @return true if year is valid for this transaction
-     */
-    private boolean isValidYear(int year) {
-        // Require that years be at least 4 digits for the purpose of validating specific dates.
-        // Sorry, that means no ancient transactions for you!
-        return year >= 1000;
-    }
-
     @Bindable
     public int getMonthIncurred() {
         return monthIncurred;
     }
 
     public void setMonthIncurred(int monthIncurred) throws IllegalArgumentException {
-        if ( ! isValidMonth(monthIncurred) ) {
+        if ( ! ExpenseValidator.isValidMonth(monthIncurred) ) {
             throw new IllegalArgumentException("Month incurred must be an integer between " + String.valueOf(GregorianCalendar.JANUARY) + " (for January) and " + String.valueOf(GregorianCalendar.DECEMBER) + " (for December).");
         }
 
@@ -245,39 +248,19 @@ public class TransactionViewModel extends BaseObservable {
         notifyPropertyChanged(BR.monthIncurred);
     }
 
-    /**
-     * Checks whether the supplied month is valid or not
-     * @param month
-     * @return
-     */
-    private boolean isValidMonth(int month) {
-        return (this.validMonths.contains(month));
-    }
-
     @Bindable
     public int getDayIncurred() {
         return dayIncurred;
     }
 
     public void setDayIncurred(int dayIncurred) throws IllegalArgumentException {
-        if(! isValidDay(dayIncurred)) {
+        if(! ExpenseValidator.isValidDay(dayIncurred)) {
             throw new IllegalArgumentException("Must specify a valid day of the month in which the expense was incurred");
         }
         this.dayIncurred = dayIncurred;
         notifyPropertyChanged(BR.dayIncurred);
     }
 
-    /**
-     * Does a brief check to see if the day could be a valid day of the month
-     * @param day - The day to check
-     * @return true if the day could be a valid day for some month
-     */
-    private boolean isValidDay(int day) {
-        // Do a gut-check that the day is valid.
-        // If we want to know if the day is actually valid for the given month, then use isValidDate
-        return (day >= 1 && day <= 31);
-    }
-
     /**
      * Sets year, month, and day simultaneously
      * @param yearIncurred
@@ -286,7 +269,7 @@ public class TransactionViewModel extends BaseObservable {
      * @throws IllegalArgumentException
      */
     private void setDateIncurred(int yearIncurred, int monthIncurred, int dayIncurred) throws IllegalArgumentException {
-        if (isValidDate(yearIncurred, monthIncurred, dayIncurred)) {
+        if (ExpenseValidator.isValidDate(yearIncurred, monthIncurred, dayIncurred)) {
             this.yearIncurred = yearIncurred;
             this.monthIncurred = monthIncurred;
             this.dayIncurred = dayIncurred;
@@ -301,31 +284,270 @@ public class TransactionViewModel extends BaseObservable {
     }
 
     /**
-     * Validates that the specified date is a valid date
-     * @param year
-     * @param month
-     * @param day
-     * @return true if the date will ever exist or has already happened
+     * @return The loaded expenses. Add an OnListChangedCallback to hear about each row that changes
+     */
+    @Bindable
+    public ObservableList<ExpenseModel> getExpenseModelList() {
+        return this.expenseModelList;
+    }
+
+    /**
+     * Loads every expense on the calling thread. Cancels any background load, so its older
+     * results can't replace these
+     */
+    @MainThread
+    public void loadAllExpenses() {
+        this.cancelLoading();
+        this.showExpenses(this.store.getAllExpenses());
+        this.setLoadError(null);
+    }
+
+    /**
+     * Loads every expense on a background thread, then replaces the expense list on the main thread.
+     * Replaces any background load that is still in flight
+     */
+    @MainThread
+    public void loadAllExpensesInBackground() {
+        if (this.pendingLoad != null) {
+            this.pendingLoad.cancel(Boolean.FALSE);
+        }
+        final int generation = ++this.loadGeneration;
+        this.isLoading = Boolean.TRUE;
+        notifyPropertyChanged(BR.loading);
+
+        this.pendingLoad = this.loader.submit(new Runnable() {
+            @Override
+            public void run() {
+                List<ExpenseModel> loaded;
+                RuntimeException error;
+                try {
+                    loaded = TransactionViewModel.this.store.getAllExpenses();
+                    error = null;
+                } catch (RuntimeException e) {
+                    // Such as the database being closed under us. The list is left as it was
+                    loaded = null;
+                    error = e;
+                }
+
+                final List<ExpenseModel> allExpenses = loaded;
+                final RuntimeException failure = error;
+                TransactionViewModel.this.mainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        TransactionViewModel.this.finishLoading(generation, allExpenses, failure);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops waiting for a background load. A query which has already started is left to finish,
+     * but its results are dropped
      */
-    private boolean isValidDate(int year, int month, int day) {
-        GregorianCalendar testDate = new GregorianCalendar(year, month, day);
-        testDate.setLenient(Boolean.FALSE);
-        try {
-            testDate.getTime();
-        } catch (IllegalArgumentException e ) {
-            return Boolean.FALSE;
+    @MainThread
+    public void cancelLoading() {
+        if (this.pendingLoad != null) {
+            this.pendingLoad.cancel(Boolean.FALSE);
+            this.pendingLoad = null;
         }
+        this.loadGeneration++;
 
-        return Boolean.TRUE;
+        if (this.isLoading) {
+            this.isLoading = Boolean.FALSE;
+            notifyPropertyChanged(BR.loading);
+        }
     }
 
+    /**
+     * @return true while a background load is in flight
+     */
     @Bindable
-    public List<ExpenseModel> getExpenseModelList() {
-        return this.expenseModelList;
+    public boolean isLoading() {
+        return this.isLoading;
     }
 
-    public void loadAllExpenses() {
-        this.expenseModelList = this.dbh.getAllExpenses();
+    /**
+     * @return Why the last load failed, or null if it succeeded. A failed load leaves the expense
+     *         list as it was
+     */
+    @Bindable
+    @Nullable
+    public RuntimeException getLoadError() {
+        return this.loadError;
+    }
+
+    private void finishLoading(int generation, @Nullable List<ExpenseModel> allExpenses, @Nullable RuntimeException error) {
+        if (generation != this.loadGeneration) {
+            return;
+        }
+        this.pendingLoad = null;
+        this.isLoading = Boolean.FALSE;
+
+        if (allExpenses != null) {
+            this.showExpenses(allExpenses);
+        }
+        this.setLoadError(error);
+        notifyPropertyChanged(BR.loading);
+    }
+
+    private void setLoadError(@Nullable RuntimeException error) {
+        if (error != this.loadError) {
+            this.loadError = error;
+            notifyPropertyChanged(BR.loadError);
+        }
+    }
+
+    private void showExpenses(List<ExpenseModel> allExpenses) {
+        this.expenseModelList.clear();
+        this.expenseModelList.addAll(allExpenses);
         notifyPropertyChanged(BR.expenseModelList);
     }
+
+    /**
+     * Queues changes to a saved expense on the database's background writer. Once they've been
+     * written, the expense is replaced in the expense list on the main thread.
+     * The date the expense was created is kept
+     * @param expense   The expense to change
+     * @param callback  Told on the main thread whether the expense was changed, or false if it no
+     *                  longer exists. Optional
+     * @return          Completes with true if the expense was changed
+     * @throws IllegalArgumentException if the new values don't make a valid expense
+     */
+    @MainThread
+    public Future<Boolean> updateExpense(final ExpenseModel expense, String name, double amount, int yearIncurred, int monthIncurred, int dayIncurred,
+                                         @Nullable final WriteCallback<Boolean> callback) throws IllegalArgumentException {
+        if (!ExpenseValidator.isValidExpense(name, amount, yearIncurred, monthIncurred, dayIncurred)) {
+            throw new IllegalArgumentException("Cannot update expense [" + expense.getId() + "] because the new values are not valid");
+        }
+
+        final ExpenseModel updated = new ExpenseModel(
+                name,
+                amount,
+                yearIncurred,
+                monthIncurred,
+                dayIncurred,
+                expense.getYearCreated(),
+                expense.getMonthCreated(),
+                expense.getDayCreated(),
+                expense.getId()
+        );
+
+        return this.store.queueUpdateExpense(updated, this.onMainThread(new WriteCallback<Boolean>() {
+            @Override
+            public void onWritten(Boolean isUpdated) {
+                if (isUpdated) {
+                    int index = TransactionViewModel.this.indexOfExpense(expense.getId());
+                    if (index >= 0) {
+                        TransactionViewModel.this.expenseModelList.set(index, updated);
+                    }
+                }
+                if (callback != null) {
+                    callback.onWritten(isUpdated);
+                }
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (callback != null) {
+                    callback.onFailed(e);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Queues a saved expense to be deleted on the database's background writer. Once that's been
+     * written, the expense is removed from the expense list on the main thread
+     * @param expense   The expense to delete
+     * @param callback  Told on the main thread whether the expense was deleted, or false if it no
+     *                  longer existed. Optional
+     * @return          Completes with true if the expense was deleted
+     */
+    @MainThread
+    public Future<Boolean> deleteExpense(final ExpenseModel expense, @Nullable final WriteCallback<Boolean> callback) {
+        return this.store.queueDeleteExpense(expense.getId(), this.onMainThread(new WriteCallback<Boolean>() {
+            @Override
+            public void onWritten(Boolean isDeleted) {
+                // Either way, it's no longer in the database
+                int index = TransactionViewModel.this.indexOfExpense(expense.getId());
+                if (index >= 0) {
+                    TransactionViewModel.this.expenseModelList.remove(index);
+                }
+                if (callback != null) {
+                    callback.onWritten(isDeleted);
+                }
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (callback != null) {
+                    callback.onFailed(e);
+                }
+            }
+        }));
+    }
+
+    /**
+     * @return The position of the expense with the given Id in the expense list, or -1 if it isn't loaded
+     */
+    private int indexOfExpense(long id) {
+        for (int i = 0; i < this.expenseModelList.size(); i++) {
+            if (this.expenseModelList.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return A callback which passes each outcome on to the given one on the main thread, or null
+     *         if there is no callback, so nothing is posted to the main thread
+     */
+    @Nullable
+    private <T> WriteCallback<T> onMainThread(@Nullable final WriteCallback<T> callback) {
+        if (callback == null) {
+            return null;
+        }
+
+        return new WriteCallback<T>() {
+            @Override
+            public void onWritten(final T result) {
+                TransactionViewModel.this.mainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onWritten(result);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailed(final Exception e) {
+                TransactionViewModel.this.mainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onFailed(e);
+                    }
+                });
+            }
+        };
+    }
+
+    private static ExecutorService getSharedLoader() {
+        synchronized (sharedLoaderLock) {
+            if (sharedLoader == null) {
+                // One thread, so loads run in the order they were started
+                sharedLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "SpenderBender loader");
+                        // Idle threads mustn't keep the process alive
+                        thread.setDaemon(Boolean.TRUE);
+                        return thread;
+                    }
+                });
+            }
+            return sharedLoader;
+        }
+    }
 }
@@ -0,0 +1,212 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.analytics;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import reyes.r.christopher.spenderbender.model.EpochDay;
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+import reyes.r.christopher.spenderbender.persistence.ExpenseColumns;
+import reyes.r.christopher.spenderbender.persistence.ExpenseTotal;
+import reyes.r.christopher.spenderbender.persistence.InMemoryExpenseStore;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for totalling expenses by period and payee
+ */
+public class ExpenseAggregatorTest {
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        this.executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void groupsByPeriod() throws Exception {
+        InMemoryExpenseStore store = new InMemoryExpenseStore();
+        store.saveExpense(new ExpenseModel("Lunch", 12.05, 2016, Calendar.AUGUST, 19));     // Friday
+        store.saveExpense(new ExpenseModel("Dinner", 30, 2016, Calendar.AUGUST, 21));       // Sunday
+        store.saveExpense(new ExpenseModel("Refund", -5, 2016, Calendar.AUGUST, 22));       // Monday
+        store.saveExpense(new ExpenseModel("Lunch", 8, 2017, Calendar.JANUARY, 2));
+        ExpenseColumns expenses = store.loadExpenseColumns();
+
+        ExpenseAggregator aggregator = new ExpenseAggregator(this.executor, 4, Calendar.MONDAY);
+
+        GroupedTotals days = aggregator.aggregate(expenses, Grouping.DAY);
+        Assert.assertEquals(Grouping.DAY, days.getGrouping());
+        Assert.assertEquals(4, days.size());
+        Assert.assertEquals("Groups are ordered by key", EpochDay.of(2016, Calendar.AUGUST, 19), days.getKey(0));
+        Assert.assertEquals(1205, days.getTotalInMinorUnits(0));
+
+        GroupedTotals mondayWeeks = aggregator.aggregate(expenses, Grouping.WEEK);
+        Assert.assertEquals(3, mondayWeeks.size());
+        ExpenseTotal firstWeek = mondayWeeks.getTotalFor(EpochDay.of(2016, Calendar.AUGUST, 15));
+        Assert.assertEquals("Weeks run from Monday to Sunday", 2, firstWeek.getExpenseCount());
+        Assert.assertEquals(4205, firstWeek.getTotalInMinorUnits());
+
+        GroupedTotals sundayWeeks = new ExpenseAggregator(this.executor, 4, Calendar.SUNDAY).aggregate(expenses, Grouping.WEEK);
+        Assert.assertEquals("Weeks can start on Sunday", 2,
+                sundayWeeks.getTotalFor(EpochDay.of(2016, Calendar.AUGUST, 21)).getExpenseCount());
+
+        GroupedTotals months = aggregator.aggregate(expenses, Grouping.MONTH);
+        Assert.assertEquals(2, months.size());
+        ExpenseTotal august = months.getTotalFor(2016 * 12 + Calendar.AUGUST);
+        Assert.assertEquals(3, august.getExpenseCount());
+        Assert.assertEquals(3705, august.getTotalInMinorUnits());
+        Assert.assertEquals(-500, august.getMinimumInMinorUnits());
+        Assert.assertEquals(3000, august.getMaximumInMinorUnits());
+
+        GroupedTotals years = aggregator.aggregate(expenses, Grouping.YEAR);
+        Assert.assertEquals(2016, years.getKey(0));
+        Assert.assertEquals(2017, years.getKey(1));
+        Assert.assertSame(ExpenseTotal.NONE, years.getTotalFor(2015));
+        Assert.assertEquals(-1, years.indexOf(2015));
+
+        GroupedTotals payees = aggregator.aggregate(expenses, Grouping.PAYEE);
+        Assert.assertEquals(3, payees.size());
+        int lunch = payees.indexOf(expenses.getPayeeId(expenses.indexOf(1)));
+        Assert.assertEquals("Lunch", expenses.getPayeeName(payees.getKey(lunch)));
+        Assert.assertEquals(2005, payees.getTotalInMinorUnits(lunch));
+
+        GroupedTotals ranged = aggregator.aggregate(expenses, Grouping.YEAR,
+                EpochDay.of(2016, Calendar.AUGUST, 20), EpochDay.of(2016, Calendar.DECEMBER, 31));
+        Assert.assertEquals(1, ranged.size());
+        Assert.assertEquals("Only the range is totalled", 2500, ranged.getTotalInMinorUnits(0));
+
+        Assert.assertEquals(0, aggregator.aggregate(new InMemoryExpenseStore().loadExpenseColumns(), Grouping.DAY).size());
+    }
+
+    @Test
+    public void parallelMatchesSequential() throws Exception {
+        Random random = new Random(7);
+        List<ExpenseModel> batch = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            batch.add(new ExpenseModel("Payee " + random.nextInt(200), (random.nextInt(200000) - 20000) / 100.0,
+                    2010 + random.nextInt(7), random.nextInt(12), 1 + random.nextInt(28)));
+        }
+        InMemoryExpenseStore store = new InMemoryExpenseStore();
+        store.saveExpenses(batch);
+        ExpenseColumns expenses = store.loadExpenseColumns();
+
+        // Small chunks, so the work really is split
+        ExpenseAggregator parallel = new ExpenseAggregator(this.executor, 8, Calendar.MONDAY, 100);
+        ExpenseAggregator sequential = new ExpenseAggregator(this.executor, 1, Calendar.MONDAY);
+
+        for (Grouping grouping : Grouping.values()) {
+            GroupedTotals expected = sequential.aggregate(expenses, grouping);
+            GroupedTotals actual = parallel.aggregate(expenses, grouping);
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(expected.getKey(i), actual.getKey(i));
+                Assert.assertEquals(expected.getExpenseCount(i), actual.getExpenseCount(i));
+                Assert.assertEquals(expected.getTotalInMinorUnits(i), actual.getTotalInMinorUnits(i));
+                Assert.assertEquals(expected.getMinimumInMinorUnits(i), actual.getMinimumInMinorUnits(i));
+                Assert.assertEquals(expected.getMaximumInMinorUnits(i), actual.getMaximumInMinorUnits(i));
+            }
+        }
+
+        // And both match totals worked out the slow way, one calendar at a time
+        TreeMap<Integer, Long> monthTotals = new TreeMap<>();
+        GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        for (ExpenseModel expense : batch) {
+            calendar.clear();
+            calendar.set(expense.getYearIncurred(), expense.getMonthIncurred(), expense.getDayIncurred());
+            int key = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+            Long total = monthTotals.get(key);
+            monthTotals.put(key, (total == null ? 0 : total) + expense.getAmountInMinorUnits());
+        }
+        GroupedTotals months = parallel.aggregate(expenses, Grouping.MONTH);
+        Assert.assertEquals(monthTotals.size(), months.size());
+        for (int i = 0; i < months.size(); i++) {
+            Assert.assertEquals((long) monthTotals.get(months.getKey(i)), months.getTotalInMinorUnits(i));
+        }
+    }
+
+    @Test
+    public void rangesSkipOtherBlocks() throws Exception {
+        // Entered day by day, as they usually are, so each block covers a few days
+        List<ExpenseModel> batch = new ArrayList<>();
+        int start = EpochDay.of(2010, Calendar.JANUARY, 1);
+        for (int i = 0; i < 5 * ExpenseColumns.BlockSize; i++) {
+            GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+            calendar.clear();
+            calendar.set(2010, Calendar.JANUARY, 1 + i / 3);
+            batch.add(new ExpenseModel("Coffee", 1 + i % 7, calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH)));
+        }
+        InMemoryExpenseStore store = new InMemoryExpenseStore();
+        store.saveExpenses(batch);
+        ExpenseColumns expenses = store.loadExpenseColumns();
+        Assert.assertTrue("Blocks cover separate dates", expenses.getBlockLastEpochDay(0) < expenses.getBlockFirstEpochDay(2));
+
+        int from = start + 400;
+        int to = start + 1200;
+        long expected = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            int epochDay = start + i / 3;
+            if (epochDay >= from && epochDay <= to) {
+                expected += (1 + i % 7) * 100;
+            }
+        }
+
+        ExpenseAggregator parallel = new ExpenseAggregator(this.executor, 4, Calendar.MONDAY, 100);
+        ExpenseAggregator sequential = new ExpenseAggregator(this.executor, 1, Calendar.MONDAY);
+        for (ExpenseAggregator aggregator : new ExpenseAggregator[] {parallel, sequential}) {
+            GroupedTotals payees = aggregator.aggregate(expenses, Grouping.PAYEE, from, to);
+            Assert.assertEquals(1, payees.size());
+            Assert.assertEquals(expected, payees.getTotalInMinorUnits(0));
+        }
+    }
+
+    @Test
+    public void overflowIsReported() throws Exception {
+        InMemoryExpenseStore store = new InMemoryExpenseStore();
+        List<ExpenseModel> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(new ExpenseModel("Yacht", 9e15, 2016, Calendar.AUGUST, 19));
+        }
+        store.saveExpenses(batch);
+
+        try {
+            new ExpenseAggregator(this.executor, 4, Calendar.MONDAY, 100).aggregate(store.loadExpenseColumns(), Grouping.YEAR);
+            Assert.fail("Totals which overflow are reported");
+        } catch (ArithmeticException e) {
+            // Expected
+        }
+    }
+}
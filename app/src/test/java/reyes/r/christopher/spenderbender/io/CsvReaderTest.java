@@ -0,0 +1,111 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.io;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for reading and writing comma separated values
+ */
+public class CsvReaderTest {
+
+    @Test
+    public void test_readRecord() throws Exception {
+        CsvReader reader = new CsvReader(new StringReader(
+                "\uFEFFname,amount\r\n" +
+                "Sushi,35.92\r\n" +
+                "\r\n" +
+                "\"Joe's \"\"Best\"\" Cafe, Downtown\",4.50\n" +
+                "\"Two\nLines\",1\n" +
+                "Empty,\n" +
+                "Last,2"
+        ));
+        List<String> record = new ArrayList<>();
+
+        Assert.assertTrue(reader.readRecord(record));
+        Assert.assertEquals("A byte order mark is not part of the first field", Arrays.asList("name", "amount"), record);
+        Assert.assertEquals(1, reader.getRecordLineNumber());
+
+        Assert.assertTrue(reader.readRecord(record));
+        Assert.assertEquals(Arrays.asList("Sushi", "35.92"), record);
+        Assert.assertEquals(2, reader.getRecordLineNumber());
+
+        Assert.assertTrue("Blank lines are skipped", reader.readRecord(record));
+        Assert.assertEquals("Quoted fields keep commas and doubled quotes", Arrays.asList("Joe's \"Best\" Cafe, Downtown", "4.50"), record);
+        Assert.assertEquals(4, reader.getRecordLineNumber());
+
+        Assert.assertTrue(reader.readRecord(record));
+        Assert.assertEquals("Quoted fields keep line breaks", Arrays.asList("Two\nLines", "1"), record);
+        Assert.assertEquals(5, reader.getRecordLineNumber());
+
+        Assert.assertTrue(reader.readRecord(record));
+        Assert.assertEquals("A trailing comma ends with an empty field", Arrays.asList("Empty", ""), record);
+        Assert.assertEquals("Line breaks inside quotes are counted", 7, reader.getRecordLineNumber());
+
+        Assert.assertTrue("The last line doesn't need a line break", reader.readRecord(record));
+        Assert.assertEquals(Arrays.asList("Last", "2"), record);
+
+        Assert.assertFalse(reader.readRecord(record));
+        Assert.assertTrue(record.isEmpty());
+    }
+
+    @Test
+    public void test_unterminatedQuote() throws Exception {
+        CsvReader reader = new CsvReader(new StringReader("name\n\"Never closed\n"));
+        List<String> record = new ArrayList<>();
+
+        Assert.assertTrue(reader.readRecord(record));
+        try {
+            reader.readRecord(record);
+            Assert.fail("A file which ends inside a quoted field has been cut short");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("Line 2"));
+        }
+    }
+
+    @Test
+    public void test_writeRecordRoundTrips() throws Exception {
+        List<String> original = Arrays.asList("plain", "with, comma", "with \"quotes\"", "two\r\nlines", "");
+        StringWriter text = new StringWriter();
+        CsvWriter writer = new CsvWriter(text);
+        writer.writeRecord(original);
+        writer.writeRecord("second");
+        writer.flush();
+
+        Assert.assertTrue("Plain fields are not quoted", text.toString().startsWith("plain,\"with, comma\","));
+
+        CsvReader reader = new CsvReader(new StringReader(text.toString()));
+        List<String> record = new ArrayList<>();
+        Assert.assertTrue(reader.readRecord(record));
+        Assert.assertEquals(original, record);
+        Assert.assertTrue(reader.readRecord(record));
+        Assert.assertEquals(Arrays.asList("second"), record);
+        Assert.assertFalse(reader.readRecord(record));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.io;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+import reyes.r.christopher.spenderbender.persistence.LocalDatabaseHandler;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for importing expenses from CSV files
+ */
+public class ExpenseCsvImporterTest {
+
+    @Test
+    public void test_importExpenses() throws Exception {
+        final List<ExpenseModel> saved = new ArrayList<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        LocalDatabaseHandler dbh = mockDatabaseHandler(saved, batchSizes);
+
+        String csv = "Date,Name,Amount,Notes\n" +
+                "2016-08-19,Sushi,35.92,dinner\n" +
+                "2016-07-18,  Potatoes ,5.67\n" +
+                "2016-02-30,Impossible,1.00\n" +
+                "2016-01-01,Cannot Save,2.00\n" +
+                "16-01-01,Short Year,3.00\n" +
+                "2016-01-02,,3.00\n" +
+                "2016-01-03,Free,lots\n" +
+                "2016-01-04\n" +
+                "2016-12-31,Party,100\n";
+        StringWriter rejects = new StringWriter();
+        final List<ImportSummary> progress = new ArrayList<>();
+
+        ImportSummary summary = new ExpenseCsvImporter(dbh, 2).importExpenses(new StringReader(csv), rejects, new ImportListener() {
+            @Override
+            public void onProgress(ImportSummary summary) {
+                progress.add(summary);
+            }
+        });
+
+        Assert.assertEquals(9, summary.getRowsRead());
+        Assert.assertEquals(3, summary.getRowsImported());
+        Assert.assertEquals(6, summary.getRowsRejected());
+
+        Assert.assertEquals("Valid rows are saved in batches of the given size", 2, batchSizes.size());
+        Assert.assertEquals(Integer.valueOf(2), batchSizes.get(0));
+        Assert.assertEquals(Integer.valueOf(2), batchSizes.get(1));
+        Assert.assertEquals("Progress is reported after every batch", 2, progress.size());
+        Assert.assertEquals(summary.getRowsImported(), progress.get(1).getRowsImported());
+
+        ExpenseModel sushi = saved.get(0);
+        Assert.assertEquals("Sushi", sushi.getName());
+        Assert.assertEquals(35.92, sushi.getAmount());
+        Assert.assertEquals(2016, sushi.getYearIncurred());
+        Assert.assertEquals("Months are written from 1", Calendar.AUGUST, sushi.getMonthIncurred());
+        Assert.assertEquals(19, sushi.getDayIncurred());
+        Assert.assertEquals("Names are trimmed", "Potatoes", saved.get(1).getName());
+        Assert.assertEquals("Party", saved.get(2).getName());
+
+        String rejected = rejects.toString();
+        Assert.assertTrue("Rejects keep the header, plus the reason", rejected.startsWith("Date,Name,Amount,Notes,error\r\n"));
+        Assert.assertTrue(rejected.contains("2016-02-30,Impossible,1.00,,Line 4: Date [2016-02-30] does not exist\r\n"));
+        Assert.assertTrue(rejected.contains("2016-01-01,Cannot Save,2.00,,Line 5: Could not be saved\r\n"));
+        Assert.assertTrue(rejected.contains("Line 6: Date [16-01-01] is not a date in the form yyyy-mm-dd"));
+        Assert.assertTrue(rejected.contains("Line 7: Name is missing"));
+        Assert.assertTrue(rejected.contains("Line 8: Amount [lots] is not a valid amount"));
+        Assert.assertTrue(rejected.contains("2016-01-04,,,,Line 9: Expected at least 3 fields but found 1"));
+    }
+
+    @Test
+    public void test_missingColumn() throws Exception {
+        LocalDatabaseHandler dbh = mockDatabaseHandler(new ArrayList<ExpenseModel>(), new ArrayList<Integer>());
+
+        try {
+            new ExpenseCsvImporter(dbh).importExpenses(new StringReader("name,date\nSushi,2016-08-19\n"), new StringWriter(), null);
+            Assert.fail("A file without an amount column can't be imported");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("amount"));
+        }
+
+        ImportSummary summary = new ExpenseCsvImporter(dbh).importExpenses(new StringReader(""), new StringWriter(), null);
+        Assert.assertEquals("An empty file imports nothing", 0, summary.getRowsRead());
+    }
+
+    @Test
+    public void test_parseDate() throws Exception {
+        int[] date = ExpenseCsvImporter.parseDate("2016-08-19");
+        Assert.assertEquals(2016, date[0]);
+        Assert.assertEquals(Calendar.AUGUST, date[1]);
+        Assert.assertEquals(19, date[2]);
+
+        Assert.assertNull(ExpenseCsvImporter.parseDate("2016/08/19"));
+        Assert.assertNull(ExpenseCsvImporter.parseDate("2016-08"));
+        Assert.assertNull(ExpenseCsvImporter.parseDate("2016-Aug-19"));
+        Assert.assertNull(ExpenseCsvImporter.parseDate("08-19-2016"));
+    }
+
+    /**
+     * @return A database handler which saves every expense except those named "Cannot Save"
+     */
+    private static LocalDatabaseHandler mockDatabaseHandler(final List<ExpenseModel> saved, final List<Integer> batchSizes) {
+        LocalDatabaseHandler dbh = mock(LocalDatabaseHandler.class);
+        when(dbh.saveExpenses(anyCollectionOf(ExpenseModel.class))).thenAnswer(new Answer<List<ExpenseModel>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<ExpenseModel> answer(InvocationOnMock invocation) throws Throwable {
+                Collection<ExpenseModel> expenses = (Collection<ExpenseModel>) invocation.getArguments()[0];
+                batchSizes.add(expenses.size());
+
+                List<ExpenseModel> failed = new ArrayList<>();
+                for (ExpenseModel expense : expenses) {
+                    if (expense.getName().equals("Cannot Save")) {
+                        failed.add(expense);
+                    }
+                    else {
+                        expense.setId(saved.size() + 1);
+                        saved.add(expense);
+                    }
+                }
+                return failed;
+            }
+        });
+        return dbh;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.io;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.util.Calendar;
+import java.util.zip.GZIPInputStream;
+
+import reyes.r.christopher.spenderbender.persistence.ExpenseCursor;
+import reyes.r.christopher.spenderbender.persistence.LocalDatabaseHandler;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for exporting expenses
+ */
+public class ExpenseExporterTest {
+
+    @Test
+    public void test_exportCsv() throws Exception {
+        LocalDatabaseHandler dbh = mock(LocalDatabaseHandler.class);
+        ExpenseCursor expenses = mockCursor();
+        when(dbh.openExpenseCursor()).thenReturn(expenses);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int exported = new ExpenseExporter(dbh).exportExpenses(out, ExpenseExporter.Format.CSV, Boolean.FALSE);
+
+        Assert.assertEquals(2, exported);
+        Assert.assertEquals(
+                "id,date,name,amount,created\r\n" +
+                "1,2016-08-19,Sushi,35.92,2016-08-20\r\n" +
+                "2,2016-12-01,\"Joe's \"\"Cafe\"\", Downtown\",-0.05,2016-12-01\r\n",
+                out.toString("UTF-8")
+        );
+        verify(expenses).close();
+    }
+
+    @Test
+    public void test_exportJsonLinesCompressed() throws Exception {
+        LocalDatabaseHandler dbh = mock(LocalDatabaseHandler.class);
+        ExpenseCursor expenses = mockCursor();
+        when(dbh.openExpenseCursor(17000, 17200)).thenReturn(expenses);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int exported = new ExpenseExporter(dbh).exportExpenses(out, ExpenseExporter.Format.JSON_LINES, Boolean.TRUE, 17000, 17200);
+        Assert.assertEquals(2, exported);
+
+        BufferedReader lines = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), "UTF-8"));
+        Assert.assertEquals("{\"id\":1,\"date\":\"2016-08-19\",\"name\":\"Sushi\",\"amount\":35.92,\"created\":\"2016-08-20\"}", lines.readLine());
+        Assert.assertEquals("{\"id\":2,\"date\":\"2016-12-01\",\"name\":\"Joe's \\\"Cafe\\\", Downtown\",\"amount\":-0.05,\"created\":\"2016-12-01\"}", lines.readLine());
+        Assert.assertNull(lines.readLine());
+        verify(expenses).close();
+    }
+
+    @Test
+    public void test_appendAmount() throws Exception {
+        StringBuilder text = new StringBuilder();
+        Assert.assertEquals("0.00", ExpenseExporter.appendAmount(text, 0));
+        Assert.assertEquals("12.05", ExpenseExporter.appendAmount(text, 1205));
+        Assert.assertEquals("-12.05", ExpenseExporter.appendAmount(text, -1205));
+        Assert.assertEquals("-0.99", ExpenseExporter.appendAmount(text, -99));
+        Assert.assertEquals("92233720368547758.07", ExpenseExporter.appendAmount(text, Long.MAX_VALUE));
+    }
+
+    private static ExpenseCursor mockCursor() {
+        ExpenseCursor expenses = mock(ExpenseCursor.class);
+        when(expenses.moveToNext()).thenReturn(Boolean.TRUE, Boolean.TRUE, Boolean.FALSE);
+        when(expenses.getId()).thenReturn(1L, 2L);
+        when(expenses.getName()).thenReturn("Sushi", "Joe's \"Cafe\", Downtown");
+        when(expenses.getAmountInMinorUnits()).thenReturn(3592L, -5L);
+        when(expenses.getYearIncurred()).thenReturn(2016, 2016);
+        when(expenses.getMonthIncurred()).thenReturn(Calendar.AUGUST, Calendar.DECEMBER);
+        when(expenses.getDayIncurred()).thenReturn(19, 1);
+        when(expenses.getYearCreated()).thenReturn(2016, 2016);
+        when(expenses.getMonthCreated()).thenReturn(Calendar.AUGUST, Calendar.DECEMBER);
+        when(expenses.getDayCreated()).thenReturn(20, 1);
+        return expenses;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.model;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests the EpochDay date packing
+ */
+public class EpochDayTest {
+
+    @Test
+    public void of() throws Exception {
+        Assert.assertEquals("The epoch is day 0", 0, EpochDay.of(1970, Calendar.JANUARY, 1));
+        Assert.assertEquals("The day before the epoch is day -1", -1, EpochDay.of(1969, Calendar.DECEMBER, 31));
+        Assert.assertEquals("Leap days are counted", EpochDay.of(2016, Calendar.MARCH, 1) - 2, EpochDay.of(2016, Calendar.FEBRUARY, 28));
+        Assert.assertEquals("Non-leap centuries have no leap day", EpochDay.of(1900, Calendar.MARCH, 1) - 1, EpochDay.of(1900, Calendar.FEBRUARY, 28));
+        Assert.assertEquals("Known date converts correctly", 17035, EpochDay.of(2016, Calendar.AUGUST, 22));
+    }
+
+    @Test
+    public void matchesCalendar() throws Exception {
+        // Walk every day from 1000 AD (the earliest supported year) to 2200 AD and compare against GregorianCalendar
+        GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.setGregorianChange(new java.util.Date(Long.MIN_VALUE));
+        calendar.clear();
+        calendar.set(1000, Calendar.JANUARY, 1);
+
+        int expectedEpochDay = (int) Math.floor(calendar.getTimeInMillis() / 86400000.0);
+
+        while (calendar.get(Calendar.YEAR) < 2200) {
+            int year = calendar.get(Calendar.YEAR);
+            int month = calendar.get(Calendar.MONTH);
+            int day = calendar.get(Calendar.DAY_OF_MONTH);
+
+            int epochDay = EpochDay.of(year, month, day);
+            Assert.assertEquals("Epoch day of " + year + "-" + month + "-" + day + " matches calendar", expectedEpochDay, epochDay);
+
+            int[] fields = EpochDay.toFields(epochDay);
+            Assert.assertEquals("Year round trips", year, fields[0]);
+            Assert.assertEquals("Month round trips", month, fields[1]);
+            Assert.assertEquals("Day round trips", day, fields[2]);
+            Assert.assertEquals("Year is unpacked", year, EpochDay.getYear(epochDay));
+            Assert.assertEquals("Month is unpacked", month, EpochDay.getCalendarMonth(epochDay));
+            Assert.assertEquals("Day is unpacked", day, EpochDay.getDayOfMonth(epochDay));
+            Assert.assertEquals("Month is counted from year zero", year * 12 + month, EpochDay.getMonthsSinceYearZero(epochDay));
+            Assert.assertEquals("Day of week matches calendar", calendar.get(Calendar.DAY_OF_WEEK), EpochDay.getDayOfWeek(epochDay));
+
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            expectedEpochDay++;
+        }
+    }
+
+    @Test
+    public void getters() throws Exception {
+        int epochDay = EpochDay.of(2016, Calendar.FEBRUARY, 29);
+
+        Assert.assertEquals("Year is unpacked", 2016, EpochDay.getYear(epochDay));
+        Assert.assertEquals("Month is unpacked", Calendar.FEBRUARY, EpochDay.getCalendarMonth(epochDay));
+        Assert.assertEquals("Day is unpacked", 29, EpochDay.getDayOfMonth(epochDay));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package reyes.r.christopher.spenderbender.model;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for formatting amounts and dates for display
+ */
+public class ExpenseFormatterTest {
+    private Locale defaultLocale;
+
+    @Before
+    public void setUp() throws Exception {
+        this.defaultLocale = Locale.getDefault();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Locale.setDefault(this.defaultLocale);
+    }
+
+    @Test
+    public void formatAmount() throws Exception {
+        ExpenseFormatter formatter = new ExpenseFormatter(Locale.US);
+
+        Assert.assertEquals("$12.05", formatter.formatAmount(1205));
+        Assert.assertEquals("Amounts in major units are formatted the same", "$12.05", formatter.formatAmount(12.05));
+        Assert.assertSame("Formatted amounts are remembered", formatter.formatAmount(1205), formatter.formatAmount(12.05));
+        Assert.assertEquals("Amounts which aren't Money are still formatted",
+                NumberFormat.getCurrencyInstance(Locale.US).format(Double.POSITIVE_INFINITY), formatter.formatAmount(Double.POSITIVE_INFINITY));
+
+        ExpenseFormatter german = new ExpenseFormatter(Locale.GERMANY);
+        Assert.assertTrue("Amounts follow the locale", german.formatAmount(1205).startsWith("12,05"));
+    }
+
+    @Test
+    public void formatDate() throws Exception {
+        ExpenseFormatter formatter = new ExpenseFormatter(Locale.US);
+        int epochDay = EpochDay.of(2016, Calendar.AUGUST, 19);
+
+        DateFormat expectedFormat = DateFormat.getDateInstance(DateFormat.SHORT, Locale.US);
+        String expected = expectedFormat.format(new GregorianCalendar(2016, Calendar.AUGUST, 19).getTime());
+        Assert.assertEquals(expected, formatter.formatDate(epochDay));
+        Assert.assertSame("Formatted dates are remembered", formatter.formatDate(epochDay), formatter.formatDate(epochDay));
+
+        // Enough dates to push the first out of the cache
+        String first = formatter.formatDate(epochDay);
+        for (int i = 1; i <= ExpenseFormatter.MaxCachedDates; i++) {
+            formatter.formatDate(epochDay + i);
+        }
+        Assert.assertEquals("Forgotten dates are formatted again", first, formatter.formatDate(epochDay));
+    }
+
+    @Test
+    public void getInstance() throws Exception {
+        Locale.setDefault(Locale.US);
+        ExpenseFormatter us = ExpenseFormatter.getInstance();
+        Assert.assertEquals(Locale.US, us.getLocale());
+        Assert.assertSame("The formatter is shared", us, ExpenseFormatter.getInstance());
+
+        Locale.setDefault(Locale.GERMANY);
+        ExpenseFormatter german = ExpenseFormatter.getInstance();
+        Assert.assertNotSame("A new locale gets a new formatter", us, german);
+        Assert.assertEquals(Locale.GERMANY, german.getLocale());
+    }
+
+    @Test
+    public void useDateFormat() throws Exception {
+        // A locale the other tests don't use, since the user's format is shared
+        Locale.setDefault(Locale.UK);
+        int epochDay = EpochDay.of(2016, Calendar.AUGUST, 19);
+
+        Assert.assertTrue(ExpenseFormatter.useDateFormat(new SimpleDateFormat("yyyy-MM-dd", Locale.UK), Locale.UK));
+        ExpenseFormatter formatter = ExpenseFormatter.getInstance();
+        Assert.assertEquals("Dates follow the user's format", "2016-08-19", formatter.formatDate(epochDay));
+
+        Assert.assertFalse("The same format changes nothing",
+                ExpenseFormatter.useDateFormat(new SimpleDateFormat("yyyy-MM-dd", Locale.UK), Locale.UK));
+        Assert.assertSame("The formatter is kept while the format is the same", formatter, ExpenseFormatter.getInstance());
+
+        Assert.assertTrue(ExpenseFormatter.useDateFormat(new SimpleDateFormat("dd.MM.yyyy", Locale.UK), Locale.UK));
+        Assert.assertEquals("A new format gets a new formatter", "19.08.2016", ExpenseFormatter.getInstance().formatDate(epochDay));
+
+        Locale.setDefault(Locale.CANADA);
+        DateFormat canadian = DateFormat.getDateInstance(DateFormat.SHORT, Locale.CANADA);
+        Assert.assertEquals("A format read in another locale isn't used",
+                canadian.format(new GregorianCalendar(2016, Calendar.AUGUST, 19).getTime()), ExpenseFormatter.getInstance().formatDate(epochDay));
+    }
+}
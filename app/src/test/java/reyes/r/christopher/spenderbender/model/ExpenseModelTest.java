@@ -150,6 +150,60 @@ public class ExpenseModelTest {
         Assert.assertEquals("Id should be unsaved Id", ExpenseModel.UNSAVED_EXPENSE, expenseModel2.getId());
     }
 
+    @Test
+    public void fromEpochDays() throws Exception {
+        ExpenseModel expenseModel = ExpenseModel.fromEpochDays(
+                "rent",
+                3500.99,
+                EpochDay.of(2016, Calendar.FEBRUARY, 29),
+                EpochDay.of(1999, Calendar.DECEMBER, 31),
+                15
+        );
+
+        Assert.assertEquals("Year incurred is unpacked", 2016, expenseModel.getYearIncurred());
+        Assert.assertEquals("Month incurred is unpacked", Calendar.FEBRUARY, expenseModel.getMonthIncurred());
+        Assert.assertEquals("Day incurred is unpacked", 29, expenseModel.getDayIncurred());
+        Assert.assertEquals("Year created is unpacked", 1999, expenseModel.getYearCreated());
+        Assert.assertEquals("Month created is unpacked", Calendar.DECEMBER, expenseModel.getMonthCreated());
+        Assert.assertEquals("Day created is unpacked", 31, expenseModel.getDayCreated());
+        Assert.assertEquals("Epoch days round trip", EpochDay.of(2016, Calendar.FEBRUARY, 29), expenseModel.getEpochDayIncurred());
+        Assert.assertEquals("Epoch days round trip", EpochDay.of(1999, Calendar.DECEMBER, 31), expenseModel.getEpochDayCreated());
+    }
+
+    @Test
+    public void keepsInvalidDates() throws Exception {
+        // Invalid dates must come back exactly as given, so that they can be rejected
+        ExpenseModel expenseModel = new ExpenseModel("Invalid", 1.23, 2013, Calendar.FEBRUARY, 30, 500, Calendar.JANUARY - 1, 0, 4);
+        Assert.assertEquals(2013, expenseModel.getYearIncurred());
+        Assert.assertEquals(Calendar.FEBRUARY, expenseModel.getMonthIncurred());
+        Assert.assertEquals(30, expenseModel.getDayIncurred());
+        Assert.assertEquals(500, expenseModel.getYearCreated());
+        Assert.assertEquals(Calendar.JANUARY - 1, expenseModel.getMonthCreated());
+        Assert.assertEquals(0, expenseModel.getDayCreated());
+
+        expenseModel = new ExpenseModel("Invalid", 1.23, -1, Calendar.DECEMBER + 1, 32);
+        Assert.assertEquals(-1, expenseModel.getYearIncurred());
+        Assert.assertEquals(Calendar.DECEMBER + 1, expenseModel.getMonthIncurred());
+        Assert.assertEquals(32, expenseModel.getDayIncurred());
+
+        // Values which don't fit in 16 bits aren't wrapped into valid looking ones
+        expenseModel = new ExpenseModel("Invalid", 1.23, 2016, -65536, 65537);
+        Assert.assertEquals(-65536, expenseModel.getMonthIncurred());
+        Assert.assertEquals(65537, expenseModel.getDayIncurred());
+    }
+
+    @Test
+    public void getDateIncurred() throws Exception {
+        ExpenseModel expenseModel = new ExpenseModel("rent", 3500.99, 2015, Calendar.MAY, 15);
+
+        Calendar dateIncurred = expenseModel.getDateIncurred();
+        Assert.assertEquals(2015, dateIncurred.get(Calendar.YEAR));
+        Assert.assertEquals(Calendar.MAY, dateIncurred.get(Calendar.MONTH));
+        Assert.assertEquals(15, dateIncurred.get(Calendar.DAY_OF_MONTH));
+        Assert.assertEquals("The date starts at midnight", 0, dateIncurred.get(Calendar.HOUR_OF_DAY));
+        Assert.assertNotSame("Each call makes a new Calendar", dateIncurred, expenseModel.getDateIncurred());
+    }
+
     @Test
     public void getAmountAsString() throws Exception {
         NumberFormat formatter = NumberFormat.getCurrencyInstance(Locale.getDefault());
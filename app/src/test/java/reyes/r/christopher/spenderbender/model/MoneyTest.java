@@ -0,0 +1,113 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.model;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests the Money fixed-point amount
+ */
+public class MoneyTest {
+
+    @Test
+    public void toMinorUnits() throws Exception {
+        Assert.assertEquals("Whole amounts convert exactly", 500, Money.toMinorUnits(5));
+        Assert.assertEquals("Decimal amounts convert exactly", 1234, Money.toMinorUnits(12.34));
+        Assert.assertEquals("Amounts that can't be stored exactly as doubles convert exactly", 10, Money.toMinorUnits(0.1));
+        Assert.assertEquals("Negative amounts convert exactly", -1234, Money.toMinorUnits(-12.34));
+        Assert.assertEquals("Zero converts to zero", 0, Money.toMinorUnits(0));
+        Assert.assertEquals("Negative zero converts to zero", 0, Money.toMinorUnits(-0.0));
+
+        Assert.assertEquals("Half a minor unit rounds away from zero", 101, Money.toMinorUnits(1.005));
+        Assert.assertEquals("Half a minor unit rounds away from zero", -101, Money.toMinorUnits(-1.005));
+        Assert.assertEquals("Amounts round as typed, not as stored in binary", 29, Money.toMinorUnits(0.285));
+        Assert.assertEquals("Less than half a minor unit rounds toward zero", 100, Money.toMinorUnits(1.004));
+    }
+
+    @Test
+    public void isRepresentable() throws Exception {
+        Assert.assertTrue("Typical amounts are representable", Money.isRepresentable(3500.99));
+        Assert.assertTrue("Negative amounts are representable", Money.isRepresentable(-3500.99));
+        Assert.assertFalse("Huge amounts overflow", Money.isRepresentable(Double.MAX_VALUE));
+        Assert.assertFalse("Huge negative amounts overflow", Money.isRepresentable(-Double.MAX_VALUE));
+        Assert.assertFalse("Infinity is not representable", Money.isRepresentable(Double.POSITIVE_INFINITY));
+        Assert.assertFalse("NaN is not representable", Money.isRepresentable(Double.NaN));
+
+        boolean caughtCorrectException = Boolean.FALSE;
+        try {
+            Money.toMinorUnits(Double.MAX_VALUE);
+        } catch (ArithmeticException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+        Assert.assertTrue("Converting an unrepresentable amount throws", caughtCorrectException);
+    }
+
+    @Test
+    public void toDouble() throws Exception {
+        Assert.assertEquals("Minor units convert back to major units", 12.34, Money.toDouble(1234), 0.0);
+        Assert.assertEquals("Negative minor units convert back to major units", -0.01, Money.toDouble(-1), 0.0);
+        Assert.assertEquals("Money converts back to major units", 12.34, Money.fromDouble(12.34).toDouble(), 0.0);
+    }
+
+    @Test
+    public void add() throws Exception {
+        // Adding doubles accumulates error; adding minor units doesn't
+        long total = 0;
+        for (int i = 0; i < 1000; i++) {
+            total = Money.add(total, Money.toMinorUnits(0.1));
+        }
+        Assert.assertEquals("Sums of minor units are exact", 10000, total);
+
+        Assert.assertEquals("Adding Money sums the amounts", new Money(300), new Money(100).plus(new Money(200)));
+        Assert.assertEquals("Adding negative amounts works", -50, Money.add(100, -150));
+
+        boolean caughtCorrectException = Boolean.FALSE;
+        try {
+            Money.add(Long.MAX_VALUE, 1);
+        } catch (ArithmeticException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+        Assert.assertTrue("Overflowing a sum throws", caughtCorrectException);
+
+        caughtCorrectException = Boolean.FALSE;
+        try {
+            Money.add(Long.MIN_VALUE, -1);
+        } catch (ArithmeticException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+        Assert.assertTrue("Underflowing a sum throws", caughtCorrectException);
+    }
+
+    @Test
+    public void compare() throws Exception {
+        Assert.assertTrue("Smaller amount compares less", Money.compare(1, 2) < 0);
+        Assert.assertTrue("Larger amount compares greater", Money.compare(2, 1) > 0);
+        Assert.assertEquals("Equal amounts compare equal", 0, Money.compare(2, 2));
+        Assert.assertTrue("Extreme amounts compare correctly", Money.compare(Long.MIN_VALUE, Long.MAX_VALUE) < 0);
+
+        Assert.assertTrue("Money compares by amount", new Money(-5).compareTo(Money.ZERO) < 0);
+        Assert.assertEquals("Equal Money is equal", new Money(5), Money.fromDouble(0.05));
+        Assert.assertEquals("Equal Money has equal hash codes", new Money(5).hashCode(), Money.fromDouble(0.05).hashCode());
+        Assert.assertEquals("Money prints as a plain decimal", "-12.30", new Money(-1230).toString());
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for applying writes on the background writer
+ */
+public class DatabaseWriterTest {
+
+    @Test
+    public void failsWritesWhenTheTransactionCannotBegin() throws Exception {
+        LocalDatabaseHandler dbh = mock(LocalDatabaseHandler.class);
+        when(dbh.getWritableDatabase()).thenThrow(new IllegalStateException("Database is closed"));
+        DatabaseWriter writer = new DatabaseWriter(dbh);
+
+        final List<String> outcomes = new ArrayList<>();
+        DatabaseWriter.Write<Boolean> write = new DatabaseWriter.Write<Boolean>() {
+            @Override
+            Boolean apply(SQLiteDatabase db) {
+                return Boolean.TRUE;
+            }
+
+            @Override
+            void onRolledBack() {
+                outcomes.add("rolled back");
+            }
+        };
+        Future<Boolean> pending = writer.submit(write, new WriteCallback<Boolean>() {
+            @Override
+            public void onWritten(Boolean result) {
+                outcomes.add("written " + result);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                outcomes.add("failed " + e.getMessage());
+            }
+        });
+
+        try {
+            pending.get(5, TimeUnit.SECONDS);
+            Assert.fail("A write which was never committed fails");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("Database is closed", e.getCause().getMessage());
+        }
+        writer.stop();
+
+        Assert.assertEquals("A write which was never applied has nothing to undo", 1, outcomes.size());
+        Assert.assertEquals("failed Database is closed", outcomes.get(0));
+    }
+}
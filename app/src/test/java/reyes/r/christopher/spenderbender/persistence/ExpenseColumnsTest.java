@@ -0,0 +1,107 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for holding expenses column by column
+ */
+public class ExpenseColumnsTest {
+
+    @Test
+    public void put() throws Exception {
+        ExpenseColumns columns = new ExpenseColumns(0, 7);
+        Assert.assertEquals(0, columns.size());
+        Assert.assertEquals(7, columns.getChangeSequence());
+
+        // Enough to grow past the initial capacity
+        for (int id = 1; id <= 100; id++) {
+            columns.put(id * 2, id * 100, 17000 + id, id % 3, "Payee " + (id % 3));
+        }
+        Assert.assertEquals(100, columns.size());
+        Assert.assertEquals(2, columns.getId(0));
+        Assert.assertEquals(100, columns.getAmountInMinorUnits(0));
+        Assert.assertEquals(17001, columns.getEpochDayIncurred(0));
+        Assert.assertEquals(1, columns.getPayeeId(0));
+        Assert.assertEquals("Payee 1", columns.getName(0));
+        Assert.assertEquals("Payee 2", columns.getPayeeName(2));
+        Assert.assertSame("A payee's name is held once", columns.getName(0), columns.getName(3));
+
+        columns.put(5, -250, 16000, 3, "Refund");
+        Assert.assertEquals("Expenses are kept in order of Id", 2, columns.indexOf(5));
+        Assert.assertEquals(4, columns.getId(1));
+        Assert.assertEquals(6, columns.getId(3));
+
+        columns.put(4, 999, 16001, 3, "Refund");
+        Assert.assertEquals("An existing Id is replaced", 101, columns.size());
+        Assert.assertEquals(999, columns.getAmountInMinorUnits(columns.indexOf(4)));
+        Assert.assertEquals("Refund", columns.getName(columns.indexOf(4)));
+
+        Assert.assertEquals(-1, columns.indexOf(3));
+        Assert.assertEquals(-1, columns.indexOf(1000));
+    }
+
+    @Test
+    public void remove() throws Exception {
+        ExpenseColumns columns = new ExpenseColumns(3, 0);
+        columns.put(1, 100, 17000, 0, "Lunch");
+        columns.put(2, 200, 17001, 0, "Lunch");
+        columns.put(3, 300, 17002, 1, "Dinner");
+
+        columns.remove(2);
+        Assert.assertEquals(2, columns.size());
+        Assert.assertEquals(-1, columns.indexOf(2));
+        Assert.assertEquals(1, columns.indexOf(3));
+        Assert.assertEquals(300, columns.getAmountInMinorUnits(1));
+
+        columns.remove(2);
+        Assert.assertEquals("Removing a missing Id does nothing", 2, columns.size());
+
+        columns.clear(1000);
+        Assert.assertEquals(0, columns.size());
+        columns.put(4, 400, 17003, 1, "Dinner");
+        Assert.assertEquals(0, columns.indexOf(4));
+    }
+
+    @Test
+    public void blocks() throws Exception {
+        ExpenseColumns columns = new ExpenseColumns(0, 0);
+        Assert.assertEquals(0, columns.getBlockCount());
+
+        for (int id = 1; id <= ExpenseColumns.BlockSize + 1; id++) {
+            columns.put(id, 100, 17000 + id, 0, "Lunch");
+        }
+        Assert.assertEquals(2, columns.getBlockCount());
+        Assert.assertEquals(17001, columns.getBlockFirstEpochDay(0));
+        Assert.assertEquals(17000 + ExpenseColumns.BlockSize, columns.getBlockLastEpochDay(0));
+        Assert.assertEquals(17001 + ExpenseColumns.BlockSize, columns.getBlockFirstEpochDay(1));
+
+        columns.put(2, 100, 16000, 0, "Lunch");
+        Assert.assertEquals("Blocks follow changes", 16000, columns.getBlockFirstEpochDay(0));
+        columns.remove(2);
+        Assert.assertEquals("Blocks follow removals", 17001, columns.getBlockFirstEpochDay(0));
+        Assert.assertEquals("Rows move between blocks", 17001 + ExpenseColumns.BlockSize, columns.getBlockLastEpochDay(0));
+        Assert.assertEquals(1, columns.getBlockCount());
+    }
+}
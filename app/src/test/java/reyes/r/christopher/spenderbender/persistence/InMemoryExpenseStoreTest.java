@@ -0,0 +1,254 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+import reyes.r.christopher.spenderbender.model.EpochDay;
+import reyes.r.christopher.spenderbender.model.ExpenseModel;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for keeping expenses in memory
+ */
+public class InMemoryExpenseStoreTest {
+    private InMemoryExpenseStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        this.store = new InMemoryExpenseStore();
+    }
+
+    @Test
+    public void saveExpense() throws Exception {
+        ExpenseModel lunch = new ExpenseModel("Lunch", 12.05, 2016, Calendar.AUGUST, 19);
+        ExpenseModel breakfast = new ExpenseModel("Breakfast", 4.50, 2016, Calendar.AUGUST, 18);
+
+        long lunchId = this.store.saveExpense(lunch);
+        long breakfastId = this.store.saveExpense(breakfast);
+        Assert.assertEquals("The Id is set", lunchId, lunch.getId());
+        Assert.assertTrue("Ids increase", breakfastId > lunchId);
+
+        List<ExpenseModel> all = this.store.getAllExpenses();
+        Assert.assertEquals(2, all.size());
+        Assert.assertEquals("Expenses are ordered by date", "Breakfast", all.get(0).getName());
+        ExpenseModel saved = all.get(1);
+        Assert.assertEquals(lunchId, saved.getId());
+        Assert.assertEquals(12.05, saved.getAmount(), 0);
+        Assert.assertEquals(2016, saved.getYearIncurred());
+        Assert.assertEquals(Calendar.AUGUST, saved.getMonthIncurred());
+        Assert.assertEquals(19, saved.getDayIncurred());
+        Assert.assertEquals(lunch.getYearCreated(), saved.getYearCreated());
+        Assert.assertEquals(lunch.getMonthCreated(), saved.getMonthCreated());
+        Assert.assertEquals(lunch.getDayCreated(), saved.getDayCreated());
+
+        try {
+            this.store.saveExpense(lunch);
+            Assert.fail("A saved expense can't be saved again");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        ExpenseModel tooLarge = new ExpenseModel("Yacht", 1e300, 2016, Calendar.AUGUST, 19);
+        Assert.assertEquals(ExpenseModel.UNSAVED_EXPENSE, (long) this.store.saveExpense(tooLarge));
+        Assert.assertEquals("A failed save changes nothing", 2, this.store.size());
+    }
+
+    @Test
+    public void queueExpense() throws Exception {
+        ExpenseModel lunch = new ExpenseModel("Lunch", 12.05, 2016, Calendar.AUGUST, 19);
+        long id = this.store.queueExpense(lunch).get();
+        Assert.assertEquals("Queued expenses are saved straight away", id, lunch.getId());
+        Assert.assertEquals(1, this.store.size());
+    }
+
+    @Test
+    public void saveExpenses() throws Exception {
+        ExpenseModel alreadySaved = new ExpenseModel("Rent", 950, 2016, Calendar.JULY, 1);
+        this.store.saveExpense(alreadySaved);
+        this.store.saveExpense(new ExpenseModel("Lunch", 12.05, 2016, Calendar.AUGUST, 19));
+
+        List<ExpenseModel> batch = Arrays.asList(
+                new ExpenseModel("Dinner", 30, 2016, Calendar.AUGUST, 19),
+                alreadySaved,
+                new ExpenseModel("Coffee", 3, 2016, Calendar.JUNE, 5),
+                new ExpenseModel("Yacht", 1e300, 2016, Calendar.JUNE, 5),
+                new ExpenseModel("Tea", 2, 2016, Calendar.JUNE, 5)
+        );
+
+        List<ExpenseModel> failed = this.store.saveExpenses(batch);
+        Assert.assertEquals(Arrays.asList(batch.get(1), batch.get(3)), failed);
+        Assert.assertEquals(5, this.store.size());
+
+        List<String> names = new ArrayList<>();
+        for (ExpenseModel expense : this.store.getAllExpenses()) {
+            names.add(expense.getName());
+        }
+        Assert.assertEquals("Batches are merged by date, then by Id",
+                Arrays.asList("Coffee", "Tea", "Rent", "Lunch", "Dinner"), names);
+    }
+
+    @Test
+    public void updateExpense() throws Exception {
+        ExpenseModel lunch = new ExpenseModel("Lunch", 12.05, 2016, Calendar.AUGUST, 19);
+        this.store.saveExpense(lunch);
+        this.store.saveExpense(new ExpenseModel("Dinner", 30, 2016, Calendar.AUGUST, 20));
+
+        ExpenseModel brunch = new ExpenseModel("Brunch", 20, 2016, Calendar.AUGUST, 19, 2000, Calendar.JANUARY, 1, lunch.getId());
+        Assert.assertTrue(this.store.updateExpense(brunch));
+        ExpenseModel saved = this.store.getAllExpenses().get(0);
+        Assert.assertEquals("Brunch", saved.getName());
+        Assert.assertEquals(20, saved.getAmount(), 0);
+        Assert.assertEquals("The date created never changes", lunch.getYearCreated(), saved.getYearCreated());
+
+        ExpenseModel moved = new ExpenseModel("Brunch", 20, 2016, Calendar.AUGUST, 21, 2000, Calendar.JANUARY, 1, lunch.getId());
+        Assert.assertTrue(this.store.updateExpense(moved));
+        List<ExpenseModel> all = this.store.getAllExpenses();
+        Assert.assertEquals("A new date moves the expense", "Dinner", all.get(0).getName());
+        Assert.assertEquals(lunch.getId(), all.get(1).getId());
+        Assert.assertEquals(21, all.get(1).getDayIncurred());
+        Assert.assertTrue("A moved expense can still be found", this.store.deleteExpense(lunch.getId()));
+
+        ExpenseModel missing = new ExpenseModel("Brunch", 20, 2016, Calendar.AUGUST, 21, 2000, Calendar.JANUARY, 1, 1000);
+        Assert.assertFalse(this.store.updateExpense(missing));
+
+        try {
+            this.store.updateExpense(new ExpenseModel("Lunch", 12.05, 2016, Calendar.AUGUST, 19));
+            Assert.fail("An unsaved expense can't be updated");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void deleteExpense() throws Exception {
+        ExpenseModel lunch = new ExpenseModel("Lunch", 12.05, 2016, Calendar.AUGUST, 19);
+        this.store.saveExpense(lunch);
+
+        Assert.assertTrue(this.store.deleteExpense(lunch.getId()));
+        Assert.assertFalse("An expense can only be deleted once", this.store.deleteExpense(lunch.getId()));
+        Assert.assertFalse(this.store.deleteExpense(ExpenseModel.UNSAVED_EXPENSE));
+        Assert.assertFalse(this.store.deleteExpense(1000));
+        Assert.assertEquals(0, this.store.getAllExpenses().size());
+    }
+
+    @Test
+    public void matchesNamesLikePayees() throws Exception {
+        this.store.saveExpense(new ExpenseModel("Coffee Shop", 3, 2016, Calendar.AUGUST, 19));
+        this.store.saveExpense(new ExpenseModel("  coffee   shop", 4, 2016, Calendar.AUGUST, 20));
+
+        List<ExpenseModel> all = this.store.getAllExpenses();
+        Assert.assertEquals("The first name seen is kept", "Coffee Shop", all.get(1).getName());
+
+        ExpenseModel shouted = new ExpenseModel("COFFEE SHOP", 5, 2016, Calendar.AUGUST, 19,
+                2016, Calendar.AUGUST, 19, all.get(0).getId());
+        Assert.assertTrue("Other changes are still saved", this.store.updateExpense(shouted));
+        ExpenseModel saved = this.store.getAllExpenses().get(0);
+        Assert.assertEquals(5, saved.getAmount(), 0);
+        Assert.assertEquals("Changing only the case doesn't rename the payee", "Coffee Shop", saved.getName());
+    }
+
+    @Test
+    public void getExpensesBetween() throws Exception {
+        this.store.saveExpense(new ExpenseModel("Before", 1, 2016, Calendar.JULY, 31));
+        this.store.saveExpense(new ExpenseModel("First", 2, 2016, Calendar.AUGUST, 1));
+        this.store.saveExpense(new ExpenseModel("Last", 3, 2016, Calendar.AUGUST, 31));
+        this.store.saveExpense(new ExpenseModel("After", 4, 2016, Calendar.SEPTEMBER, 1));
+
+        List<ExpenseModel> august = this.store.getExpensesBetween(
+                EpochDay.of(2016, Calendar.AUGUST, 1), EpochDay.of(2016, Calendar.AUGUST, 31));
+        Assert.assertEquals(2, august.size());
+        Assert.assertEquals("First", august.get(0).getName());
+        Assert.assertEquals("Last", august.get(1).getName());
+
+        Assert.assertEquals("A backwards range is empty", 0, this.store.getExpensesBetween(
+                EpochDay.of(2016, Calendar.AUGUST, 31), EpochDay.of(2016, Calendar.AUGUST, 1)).size());
+    }
+
+    @Test
+    public void totals() throws Exception {
+        this.store.saveExpense(new ExpenseModel("Lunch", 12.05, 2016, Calendar.AUGUST, 19));
+        this.store.saveExpense(new ExpenseModel("Refund", -5, 2016, Calendar.AUGUST, 20));
+        this.store.saveExpense(new ExpenseModel("Gift", 40, 2016, Calendar.DECEMBER, 31));
+        this.store.saveExpense(new ExpenseModel("Party", 100, 2017, Calendar.JANUARY, 1));
+
+        ExpenseTotal august = this.store.getMonthlyTotal(2016, Calendar.AUGUST);
+        Assert.assertEquals(2, august.getExpenseCount());
+        Assert.assertEquals(705, august.getTotalInMinorUnits());
+        Assert.assertEquals(-500, august.getMinimumInMinorUnits());
+        Assert.assertEquals(1205, august.getMaximumInMinorUnits());
+
+        Assert.assertEquals("December ends with the year", 4000, this.store.getMonthlyTotal(2016, Calendar.DECEMBER).getTotalInMinorUnits());
+        Assert.assertEquals(4705, this.store.getYearlyTotal(2016).getTotalInMinorUnits());
+        Assert.assertEquals(3, this.store.getYearlyTotal(2016).getExpenseCount());
+        Assert.assertSame(ExpenseTotal.NONE, this.store.getMonthlyTotal(2016, Calendar.SEPTEMBER));
+    }
+
+    @Test
+    public void staysOrderedUnderRandomChanges() throws Exception {
+        Random random = new Random(42);
+        List<ExpenseModel> batch = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            batch.add(new ExpenseModel("Payee " + random.nextInt(50), random.nextInt(10000) / 100.0,
+                    2015 + random.nextInt(2), random.nextInt(12), 1 + random.nextInt(28)));
+        }
+        Assert.assertEquals(0, this.store.saveExpenses(batch).size());
+
+        for (int i = 0; i < 500; i++) {
+            ExpenseModel expense = batch.get(random.nextInt(batch.size()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    this.store.saveExpense(new ExpenseModel("New", 1, 2016, random.nextInt(12), 1 + random.nextInt(28)));
+                    break;
+                case 1:
+                    this.store.updateExpense(new ExpenseModel(expense.getName(), 2, 2015 + random.nextInt(2), random.nextInt(12),
+                            1 + random.nextInt(28), expense.getYearCreated(), expense.getMonthCreated(), expense.getDayCreated(), expense.getId()));
+                    break;
+                default:
+                    this.store.deleteExpense(expense.getId());
+            }
+        }
+
+        List<ExpenseModel> all = this.store.getAllExpenses();
+        Assert.assertEquals(this.store.size(), all.size());
+        for (int i = 1; i < all.size(); i++) {
+            ExpenseModel previous = all.get(i - 1);
+            ExpenseModel current = all.get(i);
+            Assert.assertTrue("Expenses are ordered by date, then by Id",
+                    previous.getEpochDayIncurred() < current.getEpochDayIncurred()
+                            || (previous.getEpochDayIncurred() == current.getEpochDayIncurred() && previous.getId() < current.getId()));
+        }
+
+        long yearTotal = 0;
+        for (ExpenseModel expense : this.store.getExpensesBetween(EpochDay.of(2016, Calendar.JANUARY, 1), EpochDay.of(2016, Calendar.DECEMBER, 31))) {
+            yearTotal += expense.getAmountInMinorUnits();
+        }
+        Assert.assertEquals(yearTotal, this.store.getYearlyTotal(2016).getTotalInMinorUnits());
+    }
+}
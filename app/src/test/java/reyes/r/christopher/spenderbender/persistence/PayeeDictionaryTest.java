@@ -0,0 +1,40 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for matching expense names to payees
+ */
+public class PayeeDictionaryTest {
+
+    @Test
+    public void test_normalize() throws Exception {
+        Assert.assertEquals("Keys ignore case", "coffee shop", PayeeDictionary.normalize("Coffee Shop"));
+        Assert.assertEquals("Keys ignore surrounding whitespace", "coffee shop", PayeeDictionary.normalize(" \tcoffee shop\n"));
+        Assert.assertEquals("Keys collapse whitespace between words", "coffee shop", PayeeDictionary.normalize("coffee  \t shop"));
+        Assert.assertEquals("Keys keep punctuation", "joe's cafe", PayeeDictionary.normalize("Joe's Cafe"));
+        Assert.assertFalse("Different words are different payees", PayeeDictionary.normalize("coffee").equals(PayeeDictionary.normalize("coffee beans")));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for our SQLite full-text table definitions
+ */
+public class SQLiteFullTextTableSchemaTest {
+    private final SQLiteColumnDefinition id = SQLiteColumnDefinition.StandardPrimaryKey();
+    private final SQLiteColumnDefinition name = new SQLiteColumnDefinition("name", SQLiteColumnDefinition.DataType.TEXT);
+    private final SQLiteColumnDefinition note = new SQLiteColumnDefinition("note", SQLiteColumnDefinition.DataType.TEXT);
+
+    @Test
+    public void test_toString() throws Exception {
+        SQLiteFullTextTableSchema search = new SQLiteFullTextTableSchema("foo_search", "foo", id, Arrays.asList(name, note));
+
+        Pattern createTable = Pattern.compile("^CREATE\\s+VIRTUAL\\s+TABLE\\s+foo_search\\s+USING\\s+fts4\\s*\\(\\s*name\\s*,\\s*note\\s*\\)\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Full text table should be an FTS4 table of the indexed columns", createTable.matcher(search.toString()).matches());
+
+        Pattern populate = Pattern.compile("^INSERT\\s+INTO\\s+foo_search\\s*\\(\\s*docid\\s*,\\s*name\\s*,\\s*note\\s*\\)\\s*SELECT\\s+_id\\s*,\\s*name\\s*,\\s*note\\s+FROM\\s+foo\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Populating should copy every row keyed by its Id", populate.matcher(search.getPopulateStatement()).matches());
+    }
+
+    @Test
+    public void test_triggers() throws Exception {
+        SQLiteFullTextTableSchema search = new SQLiteFullTextTableSchema("foo_search", "foo", id, Arrays.asList(name));
+
+        List<SQLiteTriggerDefinition> triggers = search.getTriggers();
+        Assert.assertEquals("Inserts, deletes and updates should each have a trigger", 3, triggers.size());
+
+        for (SQLiteTriggerDefinition trigger : triggers) {
+            Assert.assertEquals("Triggers should be on the shadowed table", "foo", trigger.getTableName());
+            Assert.assertEquals("Triggers should run after the change", SQLiteTriggerDefinition.Timing.AFTER, trigger.getTiming());
+
+            if (trigger.getEvent() == SQLiteTriggerDefinition.Event.UPDATE) {
+                Assert.assertEquals("Updates should only fire on indexed columns or the Id", Arrays.asList("name", "_id"), trigger.getUpdateOfColumns());
+                Assert.assertEquals("Updates should replace the old row", 2, trigger.getStatements().size());
+            }
+        }
+    }
+
+    @Test
+    public void test_constructor() throws Exception {
+        boolean caughtCorrectException = Boolean.FALSE;
+        try {
+            new SQLiteFullTextTableSchema("foo_search", "foo", id, new ArrayList<SQLiteColumnDefinition>());
+        } catch (IllegalArgumentException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+        Assert.assertTrue("Full text table without columns should throw IllegalArgumentException", caughtCorrectException);
+
+        caughtCorrectException = Boolean.FALSE;
+        try {
+            new SQLiteFullTextTableSchema("foo_search", "foo", note, Arrays.asList(name));
+        } catch (IllegalArgumentException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+        Assert.assertTrue("Full text table keyed by a column other than the primary key should throw IllegalArgumentException", caughtCorrectException);
+    }
+}
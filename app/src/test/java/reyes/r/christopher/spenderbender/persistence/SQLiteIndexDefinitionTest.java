@@ -0,0 +1,113 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for our SQLite index definitions
+ */
+public class SQLiteIndexDefinitionTest {
+
+    @Test
+    public void test_toString() throws Exception {
+        // Basic single column index
+        SQLiteIndexDefinition index1 = new SQLiteIndexDefinition("foo_idx", "foo", Arrays.asList("bar"));
+
+        Pattern basicIndex = Pattern.compile("^CREATE\\s+INDEX\\s+IF\\s+NOT\\s+EXISTS\\s+foo_idx\\s+ON\\s+foo\\s*\\(\\s*bar\\s*\\)\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Basic index should create a single column index on the table", basicIndex.matcher(index1.toString()).matches());
+
+        // Composite index keeps the order of its columns
+        SQLiteIndexDefinition index2 = new SQLiteIndexDefinition("foo_idx", "foo", Arrays.asList("year", "month", "day"));
+
+        Pattern compositeIndex = Pattern.compile("^.*\\(\\s*year\\s*,\\s*month\\s*,\\s*day\\s*\\)\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Composite index should list its columns in order", compositeIndex.matcher(index2.toString()).matches());
+
+        // Unique index
+        SQLiteIndexDefinition index3 = new SQLiteIndexDefinition("foo_idx", "foo", Arrays.asList("bar"), Boolean.TRUE, null);
+
+        Pattern uniqueIndex = Pattern.compile("^CREATE\\s+UNIQUE\\s+INDEX\\s.*$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Unique index should be created as UNIQUE", uniqueIndex.matcher(index3.toString()).matches());
+        Assert.assertFalse("Non-unique index should not be created as UNIQUE", uniqueIndex.matcher(index1.toString()).matches());
+
+        // Partial index
+        SQLiteIndexDefinition index4 = new SQLiteIndexDefinition("foo_idx", "foo", Arrays.asList("bar"), null, "  amount > 0 ");
+
+        Pattern partialIndex = Pattern.compile("^.*\\)\\s+WHERE\\s+amount > 0\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Partial index should end with its WHERE clause", partialIndex.matcher(index4.toString()).matches());
+        Assert.assertEquals("Where clause should be trimmed", "amount > 0", index4.getWhereClause());
+
+        // Blank where clause means the index is not partial
+        SQLiteIndexDefinition index5 = new SQLiteIndexDefinition("foo_idx", "foo", Arrays.asList("bar"), null, " ");
+
+        Assert.assertNull("Blank where clause should be ignored", index5.getWhereClause());
+        Assert.assertFalse("Blank where clause should not produce a WHERE", index5.toString().toUpperCase().contains("WHERE"));
+
+        // Expression index
+        SQLiteIndexDefinition index6 = new SQLiteIndexDefinition("foo_idx", "foo", Arrays.asList("lower(name)"));
+
+        Pattern expressionIndex = Pattern.compile("^.*\\(\\s*lower\\(name\\)\\s*\\)\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Expression index should index the expression", expressionIndex.matcher(index6.toString()).matches());
+    }
+
+    @Test
+    public void test_constructor() throws Exception {
+        boolean caughtCorrectException = Boolean.FALSE;
+
+        try {
+            new SQLiteIndexDefinition("foo_idx", "foo", new ArrayList<String>());
+        } catch (IllegalArgumentException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+
+        Assert.assertTrue("Index must have at least one term", caughtCorrectException);
+
+        List<String> terms = new ArrayList<>();
+        terms.add("bar");
+
+        SQLiteIndexDefinition index = new SQLiteIndexDefinition("foo_idx", "foo", terms);
+        terms.add("baz");
+
+        Assert.assertEquals("Index should not change when the list it was built from changes", 1, index.getTerms().size());
+        Assert.assertEquals("Index should default to non-unique", Boolean.FALSE, index.getIsUnique());
+        Assert.assertEquals("Index name should be set", "foo_idx", index.getName());
+        Assert.assertEquals("Index table should be set", "foo", index.getTableName());
+    }
+
+    @Test
+    public void test_columnTerms() throws Exception {
+        SQLiteColumnDefinition column1 = new SQLiteColumnDefinition("year", SQLiteColumnDefinition.DataType.INT);
+        SQLiteColumnDefinition column2 = new SQLiteColumnDefinition("amount", SQLiteColumnDefinition.DataType.REAL);
+
+        List<String> terms = SQLiteIndexDefinition.columnTerms(column1, column2);
+
+        Assert.assertEquals("Should have one term per column", 2, terms.size());
+        Assert.assertEquals("Terms should be the column names in order", "year", terms.get(0));
+        Assert.assertEquals("Terms should be the column names in order", "amount", terms.get(1));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for the statements generated by our SQLite table schemas
+ */
+public class SQLiteTableSchemaTest {
+    private static final SQLiteColumnDefinition Id = new SQLiteColumnDefinition("_id", SQLiteColumnDefinition.DataType.INT, Boolean.TRUE, Boolean.TRUE, Boolean.TRUE, Boolean.TRUE);
+    private static final SQLiteColumnDefinition Name = new SQLiteColumnDefinition("name", SQLiteColumnDefinition.DataType.TEXT);
+    private static final SQLiteColumnDefinition Amount = new SQLiteColumnDefinition("amount", SQLiteColumnDefinition.DataType.INT);
+
+    private static SQLiteTableSchema keyedSchema() {
+        return new SQLiteTableSchema("foo", Arrays.asList(Id, Name, Amount));
+    }
+
+    private static SQLiteTableSchema keylessSchema() {
+        return new SQLiteTableSchema("bar", Arrays.asList(Name, Amount));
+    }
+
+    @Test
+    public void test_toString() throws Exception {
+        Assert.assertEquals("CREATE TABLE IF NOT EXISTS foo ( " + Id + ", " + Name + ", " + Amount + " );", keyedSchema().toString());
+    }
+
+    @Test
+    public void getInsertStatement() throws Exception {
+        SQLiteTableSchema schema = keyedSchema();
+
+        Assert.assertEquals("Auto-incrementing columns are left for SQLite to fill in",
+                "INSERT INTO foo ( name, amount ) VALUES ( ?, ? );", schema.getInsertStatement());
+        Assert.assertEquals("Insert columns are in the order of the insert's parameters",
+                Arrays.asList(Name, Amount), schema.getInsertColumns());
+        Assert.assertEquals("Every column can be inserted when restoring rows",
+                "INSERT INTO foo ( _id, name, amount ) VALUES ( ?, ?, ? );", schema.getInsertWithKeyStatement());
+        Assert.assertEquals("Tables without a key insert every column",
+                "INSERT INTO bar ( name, amount ) VALUES ( ?, ? );", keylessSchema().getInsertStatement());
+    }
+
+    @Test
+    public void getUpdateStatement() throws Exception {
+        SQLiteTableSchema schema = keyedSchema();
+
+        Assert.assertEquals("Only the given columns are updated, in the order given",
+                "UPDATE foo SET amount = ?, name = ? WHERE _id = ?;", schema.getUpdateStatement(Arrays.asList(Amount, Name)));
+        Assert.assertEquals("UPDATE foo SET name = ? WHERE _id = ?;", schema.getUpdateStatement(Collections.singletonList(Name)));
+
+        try {
+            schema.getUpdateStatement(new ArrayList<SQLiteColumnDefinition>());
+            Assert.fail("An update must change at least one column");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            schema.getUpdateStatement(Collections.singletonList(Id));
+            Assert.fail("The primary key can't be updated");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        List<SQLiteColumnDefinition> otherTable = Collections.singletonList(new SQLiteColumnDefinition("other", SQLiteColumnDefinition.DataType.TEXT));
+        try {
+            schema.getUpdateStatement(otherTable);
+            Assert.fail("Columns of other tables can't be updated");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            keylessSchema().getUpdateStatement(Collections.singletonList(Name));
+            Assert.fail("Tables without a key can't be updated by key");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void getDeleteStatement() throws Exception {
+        Assert.assertEquals("DELETE FROM foo WHERE _id = ?;", keyedSchema().getDeleteStatement());
+
+        try {
+            keylessSchema().getDeleteStatement();
+            Assert.fail("Tables without a key can't be deleted from by key");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void test_constructor() throws Exception {
+        SQLiteIndexDefinition otherTableIndex = new SQLiteIndexDefinition("bar_idx", "bar", Collections.singletonList("name"));
+        try {
+            new SQLiteTableSchema("foo", Arrays.asList(Id, Name), Collections.singletonList(otherTableIndex));
+            Assert.fail("Indexes must belong to the table");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        SQLiteIndexDefinition index = new SQLiteIndexDefinition("foo_idx", "foo", Collections.singletonList("name"));
+        SQLiteTableSchema schema = new SQLiteTableSchema("foo", Arrays.asList(Id, Name), Collections.singletonList(index));
+        Assert.assertEquals(Collections.singletonList(index.toString()), schema.getCreateIndexStatements());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for our SQLite trigger definitions
+ */
+public class SQLiteTriggerDefinitionTest {
+
+    @Test
+    public void test_toString() throws Exception {
+        SQLiteTriggerDefinition trigger1 = new SQLiteTriggerDefinition("foo_trg", "foo",
+                SQLiteTriggerDefinition.Timing.AFTER, SQLiteTriggerDefinition.Event.INSERT,
+                Arrays.asList("UPDATE bar SET total = total + NEW.amount"));
+
+        Pattern basicTrigger = Pattern.compile("^CREATE\\s+TRIGGER\\s+IF\\s+NOT\\s+EXISTS\\s+foo_trg\\s+AFTER\\s+INSERT\\s+ON\\s+foo\\s+FOR\\s+EACH\\s+ROW\\s+"
+                + "BEGIN\\s+UPDATE bar SET total = total \\+ NEW.amount\\s*;\\s*END\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Basic trigger should run its statement on each inserted row", basicTrigger.matcher(trigger1.toString()).matches());
+
+        // Multiple statements run in order
+        SQLiteTriggerDefinition trigger2 = new SQLiteTriggerDefinition("foo_trg", "foo",
+                SQLiteTriggerDefinition.Timing.BEFORE, SQLiteTriggerDefinition.Event.DELETE,
+                Arrays.asList("DELETE FROM bar WHERE id = OLD.id", "DELETE FROM baz WHERE id = OLD.id"));
+
+        Pattern multipleStatements = Pattern.compile("^.*\\s+BEFORE\\s+DELETE\\s+ON\\s+foo\\s+.*BEGIN\\s+DELETE FROM bar WHERE id = OLD.id\\s*;\\s*"
+                + "DELETE FROM baz WHERE id = OLD.id\\s*;\\s*END\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Trigger should run every statement in order", multipleStatements.matcher(trigger2.toString()).matches());
+
+        // Update trigger limited to some columns
+        SQLiteColumnDefinition amount = new SQLiteColumnDefinition("amount", SQLiteColumnDefinition.DataType.INT);
+        SQLiteColumnDefinition month = new SQLiteColumnDefinition("month", SQLiteColumnDefinition.DataType.INT);
+        SQLiteTriggerDefinition trigger3 = new SQLiteTriggerDefinition("foo_trg", "foo",
+                SQLiteTriggerDefinition.Timing.AFTER, SQLiteTriggerDefinition.Event.UPDATE,
+                Arrays.asList(amount, month), Arrays.asList("SELECT 1"));
+
+        Pattern updateOf = Pattern.compile("^.*\\s+AFTER\\s+UPDATE\\s+OF\\s+amount\\s*,\\s*month\\s+ON\\s+foo\\s+.*$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("Update trigger should list the columns which fire it", updateOf.matcher(trigger3.toString()).matches());
+    }
+
+    @Test
+    public void test_constructor() throws Exception {
+        boolean caughtCorrectException = Boolean.FALSE;
+        try {
+            new SQLiteTriggerDefinition("foo_trg", "foo",
+                    SQLiteTriggerDefinition.Timing.AFTER, SQLiteTriggerDefinition.Event.UPDATE,
+                    new ArrayList<String>());
+        } catch (IllegalArgumentException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+        Assert.assertTrue("Trigger without statements should throw IllegalArgumentException", caughtCorrectException);
+
+        caughtCorrectException = Boolean.FALSE;
+        try {
+            new SQLiteTriggerDefinition("foo_trg", "foo",
+                    SQLiteTriggerDefinition.Timing.AFTER, SQLiteTriggerDefinition.Event.INSERT,
+                    Arrays.asList(new SQLiteColumnDefinition("amount", SQLiteColumnDefinition.DataType.INT)),
+                    Arrays.asList("SELECT 1"));
+        } catch (IllegalArgumentException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+        Assert.assertTrue("Insert trigger limited to some columns should throw IllegalArgumentException", caughtCorrectException);
+    }
+}
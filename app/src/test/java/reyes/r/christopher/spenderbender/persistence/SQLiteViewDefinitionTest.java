@@ -0,0 +1,55 @@
+/*
+ * SpenderBender: A free offline budget tracking tool.
+ * Copyright (c) 2016 Christopher R Reyes
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package reyes.r.christopher.spenderbender.persistence;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+/**
+ * Created by Christopher R Reyes on 10/18/26.
+ *
+ * Tests for our SQLite view definitions
+ */
+public class SQLiteViewDefinitionTest {
+
+    @Test
+    public void test_toString() throws Exception {
+        SQLiteViewDefinition view = new SQLiteViewDefinition("foo_view", "  SELECT foo.a AS a, bar.b AS b FROM foo JOIN bar ON bar._id = foo.barid ");
+
+        Pattern createView = Pattern.compile("^CREATE\\s+VIEW\\s+IF\\s+NOT\\s+EXISTS\\s+foo_view\\s+AS\\s+SELECT foo.a AS a, bar.b AS b FROM foo JOIN bar ON bar._id = foo.barid\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("View should be created from its trimmed select statement", createView.matcher(view.toString()).matches());
+
+        Pattern dropView = Pattern.compile("^DROP\\s+VIEW\\s+IF\\s+EXISTS\\s+foo_view\\s*;$", Pattern.CASE_INSENSITIVE);
+        Assert.assertTrue("View should be dropped by name", dropView.matcher(view.getDropStatement()).matches());
+    }
+
+    @Test
+    public void test_constructor() throws Exception {
+        boolean caughtCorrectException = Boolean.FALSE;
+        try {
+            new SQLiteViewDefinition("foo_view", "  ");
+        } catch (IllegalArgumentException e) {
+            caughtCorrectException = Boolean.TRUE;
+        }
+        Assert.assertTrue("View without a select statement should throw IllegalArgumentException", caughtCorrectException);
+    }
+}
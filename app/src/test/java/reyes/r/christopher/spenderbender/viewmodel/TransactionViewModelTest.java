@@ -18,6 +18,8 @@
 
 package reyes.r.christopher.spenderbender.viewmodel;
 
+import android.databinding.ObservableList;
+
 import junit.framework.Assert;
 
 import org.junit.After;
@@ -31,9 +33,21 @@ import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import reyes.r.christopher.spenderbender.model.ExpenseModel;
+import reyes.r.christopher.spenderbender.persistence.InMemoryExpenseStore;
 import reyes.r.christopher.spenderbender.persistence.LocalDatabaseHandler;
+import reyes.r.christopher.spenderbender.persistence.WriteCallback;
 
 /**
  * Created by Christopher R Reyes on 8/19/16.
@@ -842,6 +856,51 @@ public class TransactionViewModelTest {
         Assert.assertEquals("Saved the correct expense day", validExpenseModel2.getDayIncurred(), savedExpense.getDayIncurred());
     }
 
+    @Test
+    public void addExpenseWithCallback() throws Exception {
+        InMemoryExpenseStore store = new InMemoryExpenseStore();
+        final BlockingQueue<Runnable> mainThreadTasks = new LinkedBlockingQueue<>();
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                mainThreadTasks.add(task);
+            }
+        };
+        TransactionViewModel viewModel = new TransactionViewModel(store, Executors.newSingleThreadExecutor(), mainThread);
+
+        final ArrayList<String> outcomes = new ArrayList<>();
+        WriteCallback<Long> callback = new WriteCallback<Long>() {
+            @Override
+            public void onWritten(Long result) {
+                outcomes.add("written " + result);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                outcomes.add("failed");
+            }
+        };
+
+        setViewModelPrivateFields(viewModel, validExpenseModel1);
+        long newId = viewModel.addExpense(callback).get();
+
+        Assert.assertEquals("The outcome waits for the main thread", 0, outcomes.size());
+        mainThreadTasks.poll(5, TimeUnit.SECONDS).run();
+        Assert.assertEquals("written " + newId, outcomes.get(0));
+        Assert.assertEquals(1, store.size());
+
+        // Amounts too large for Money fail when they are written, not when they are queued
+        viewModel.addExpense("too much", Double.MAX_VALUE, 2016, Calendar.MAY, 1, callback);
+        mainThreadTasks.poll(5, TimeUnit.SECONDS).run();
+        Assert.assertEquals("failed", outcomes.get(1));
+        Assert.assertEquals(1, store.size());
+
+        // Callers who don't need the outcome can leave the callback out
+        viewModel.addExpense("Lunch", 12.05, 2016, Calendar.MAY, 1, null).get();
+        Assert.assertEquals(2, store.size());
+        Assert.assertTrue("Nothing is posted to the main thread", mainThreadTasks.isEmpty());
+    }
+
     @Test
     public void addExpenseWithoutArgs() throws Exception {
         TransactionViewModel viewModel = mock(TransactionViewModel.class);
@@ -967,6 +1026,236 @@ public class TransactionViewModelTest {
         Whitebox.setInternalState(viewModel, "dayIncurred", expense.getDayIncurred());
     }
 
+    @Test
+    public void updateExpense() throws Exception {
+        InMemoryExpenseStore store = new InMemoryExpenseStore();
+        final BlockingQueue<Runnable> mainThreadTasks = new LinkedBlockingQueue<>();
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                mainThreadTasks.add(task);
+            }
+        };
+        TransactionViewModel viewModel = new TransactionViewModel(store, Executors.newSingleThreadExecutor(), mainThread);
+
+        store.saveExpense(this.validExpenseModel1);
+        store.saveExpense(this.validExpenseModel2);
+        viewModel.loadAllExpenses();
+        ExpenseModel original = viewModel.getExpenseModelList().get(1);
+
+        ListChangeRecorder changes = new ListChangeRecorder();
+        viewModel.getExpenseModelList().addOnListChangedCallback(changes);
+        final ArrayList<String> outcomes = new ArrayList<>();
+        WriteCallback<Boolean> callback = new WriteCallback<Boolean>() {
+            @Override
+            public void onWritten(Boolean result) {
+                outcomes.add("written " + result);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                outcomes.add("failed");
+            }
+        };
+
+        Assert.assertTrue(viewModel.updateExpense(original, "Sweet Potatoes", 6.10, 2012, Calendar.JULY, 19, callback).get());
+        Assert.assertEquals("The list waits for the main thread", "", changes.toString());
+        mainThreadTasks.poll(5, TimeUnit.SECONDS).run();
+
+        Assert.assertEquals("written true", outcomes.get(0));
+        Assert.assertEquals("Only the changed row is reported", "changed 1 1", changes.toString());
+        ExpenseModel updated = viewModel.getExpenseModelList().get(1);
+        Assert.assertEquals("The list is patched in place", 2, viewModel.getExpenseModelList().size());
+        Assert.assertEquals("Updated expense keeps its Id", original.getId(), updated.getId());
+        Assert.assertEquals("Sweet Potatoes", updated.getName());
+        Assert.assertEquals(6.10, updated.getAmount(), 0.001);
+        Assert.assertEquals(19, updated.getDayIncurred());
+        Assert.assertEquals("Updated expense keeps its date created", original.getYearCreated(), updated.getYearCreated());
+        boolean isStored = false;
+        for (ExpenseModel stored : store.getAllExpenses()) {
+            isStored = isStored || (stored.getId() == updated.getId() && "Sweet Potatoes".equals(stored.getName()));
+        }
+        Assert.assertTrue("The store has the change", isStored);
+
+        try {
+            viewModel.updateExpense(updated, "", 6.10, 2012, Calendar.JULY, 19, callback);
+            Assert.fail("Expenses can't be updated to be invalid");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        store.deleteExpense(updated.getId());
+        Assert.assertFalse("Expenses which no longer exist can't be updated",
+                viewModel.updateExpense(updated, "Yams", 6.10, 2012, Calendar.JULY, 19, null).get());
+        mainThreadTasks.poll(5, TimeUnit.SECONDS).run();
+        Assert.assertEquals("A failed update leaves the list alone", "Sweet Potatoes", viewModel.getExpenseModelList().get(1).getName());
+    }
+
+    @Test
+    public void deleteExpense() throws Exception {
+        InMemoryExpenseStore store = new InMemoryExpenseStore();
+        final BlockingQueue<Runnable> mainThreadTasks = new LinkedBlockingQueue<>();
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                mainThreadTasks.add(task);
+            }
+        };
+        TransactionViewModel viewModel = new TransactionViewModel(store, Executors.newSingleThreadExecutor(), mainThread);
+
+        store.saveExpense(this.validExpenseModel1);
+        store.saveExpense(this.validExpenseModel2);
+        viewModel.loadAllExpenses();
+        ExpenseModel first = viewModel.getExpenseModelList().get(0);
+        ExpenseModel second = viewModel.getExpenseModelList().get(1);
+
+        ListChangeRecorder changes = new ListChangeRecorder();
+        viewModel.getExpenseModelList().addOnListChangedCallback(changes);
+
+        Assert.assertTrue(viewModel.deleteExpense(first, null).get());
+        Assert.assertEquals("The list waits for the main thread", 2, viewModel.getExpenseModelList().size());
+        mainThreadTasks.poll(5, TimeUnit.SECONDS).run();
+
+        Assert.assertEquals("Only the removed row is reported", "removed 0 1", changes.toString());
+        Assert.assertEquals(1, viewModel.getExpenseModelList().size());
+        Assert.assertEquals(second.getId(), viewModel.getExpenseModelList().get(0).getId());
+        Assert.assertEquals(1, store.size());
+    }
+
+    @Test
+    public void loadAllExpensesInBackground() throws Exception {
+        LocalDatabaseHandler dbh = mock(LocalDatabaseHandler.class);
+        ExecutorService loader = Executors.newSingleThreadExecutor();
+        // Tasks for the main thread wait here until the test runs them
+        final BlockingQueue<Runnable> mainThreadTasks = new LinkedBlockingQueue<>();
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                mainThreadTasks.add(task);
+            }
+        };
+
+        try {
+            TransactionViewModel viewModel = new TransactionViewModel(dbh, loader, mainThread);
+
+            this.validExpenseModel1.setId(1);
+            ArrayList<ExpenseModel> testExpenses = new ArrayList<>();
+            testExpenses.add(this.validExpenseModel1);
+            when(dbh.getAllExpenses()).thenReturn(testExpenses);
+
+            Assert.assertFalse("Nothing is loading yet", viewModel.isLoading());
+            viewModel.loadAllExpensesInBackground();
+            Assert.assertTrue("Loading until the results reach the main thread", viewModel.isLoading());
+
+            Runnable publish = mainThreadTasks.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull("The results are sent to the main thread", publish);
+            Assert.assertEquals("The list isn't touched off the main thread", 0, viewModel.getExpenseModelList().size());
+            publish.run();
+
+            Assert.assertFalse(viewModel.isLoading());
+            Assert.assertEquals(1, viewModel.getExpenseModelList().size());
+            Assert.assertEquals(1, viewModel.getExpenseModelList().get(0).getId());
+
+            // Loads queue up behind whatever the loader is already doing
+            final CountDownLatch loaderBusy = new CountDownLatch(1);
+            loader.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    loaderBusy.await();
+                    return null;
+                }
+            });
+
+            this.validExpenseModel2.setId(2);
+            testExpenses.add(this.validExpenseModel2);
+            viewModel.loadAllExpensesInBackground();
+            viewModel.cancelLoading();
+            Assert.assertFalse("Cancelling stops loading at once", viewModel.isLoading());
+            viewModel.loadAllExpensesInBackground();
+            viewModel.loadAllExpensesInBackground();
+            loaderBusy.countDown();
+
+            mainThreadTasks.poll(5, TimeUnit.SECONDS).run();
+            Assert.assertFalse(viewModel.isLoading());
+            Assert.assertEquals(2, viewModel.getExpenseModelList().size());
+            Assert.assertNull("Cancelled and replaced loads never run", mainThreadTasks.poll(100, TimeUnit.MILLISECONDS));
+            verify(dbh, times(2)).getAllExpenses();
+
+            // Results which arrive after a newer load has started are dropped
+            viewModel.loadAllExpensesInBackground();
+            Runnable stale = mainThreadTasks.poll(5, TimeUnit.SECONDS);
+            testExpenses.remove(this.validExpenseModel1);
+            viewModel.loadAllExpensesInBackground();
+            stale.run();
+            Assert.assertTrue("A replaced load doesn't end loading", viewModel.isLoading());
+            Assert.assertEquals("A replaced load's results are dropped", 2, viewModel.getExpenseModelList().size());
+            mainThreadTasks.poll(5, TimeUnit.SECONDS).run();
+            Assert.assertFalse(viewModel.isLoading());
+            Assert.assertEquals(1, viewModel.getExpenseModelList().size());
+
+            // A load which fails leaves the list alone
+            when(dbh.getAllExpenses()).thenThrow(new IllegalStateException("Database is closed"));
+            int loadedSize = viewModel.getExpenseModelList().size();
+            viewModel.loadAllExpensesInBackground();
+            mainThreadTasks.poll(5, TimeUnit.SECONDS).run();
+            Assert.assertFalse(viewModel.isLoading());
+            Assert.assertEquals(loadedSize, viewModel.getExpenseModelList().size());
+            Assert.assertEquals("The failure is reported", "Database is closed", viewModel.getLoadError().getMessage());
+
+            // And cleared by the next load which succeeds
+            doReturn(testExpenses).when(dbh).getAllExpenses();
+            viewModel.loadAllExpensesInBackground();
+            mainThreadTasks.poll(5, TimeUnit.SECONDS).run();
+            Assert.assertNull(viewModel.getLoadError());
+        } finally {
+            loader.shutdownNow();
+        }
+    }
+
+    /**
+     * Records the list changes reported to it, as "<kind> <start> <count>"
+     */
+    private static class ListChangeRecorder extends ObservableList.OnListChangedCallback<ObservableList<ExpenseModel>> {
+        private final StringBuilder changes = new StringBuilder();
+
+        private void record(String kind, int start, int count) {
+            if (this.changes.length() > 0) {
+                this.changes.append(", ");
+            }
+            this.changes.append(kind).append(' ').append(start).append(' ').append(count);
+        }
+
+        @Override
+        public void onChanged(ObservableList<ExpenseModel> sender) {
+            this.changes.append("everything");
+        }
+
+        @Override
+        public void onItemRangeChanged(ObservableList<ExpenseModel> sender, int positionStart, int itemCount) {
+            this.record("changed", positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(ObservableList<ExpenseModel> sender, int positionStart, int itemCount) {
+            this.record("inserted", positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(ObservableList<ExpenseModel> sender, int fromPosition, int toPosition, int itemCount) {
+            this.record("moved", fromPosition, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(ObservableList<ExpenseModel> sender, int positionStart, int itemCount) {
+            this.record("removed", positionStart, itemCount);
+        }
+
+        @Override
+        public String toString() {
+            return this.changes.toString();
+        }
+    }
+
     private class MockDatabaseHandler extends LocalDatabaseHandler {
 
         private ExpenseModel lastSavedExpense;
@@ -982,6 +1271,21 @@ public class TransactionViewModelTest {
             return Long.MAX_VALUE;
         }
 
+        @Override
+        public Future<Long> queueExpense(ExpenseModel expense) {
+            final Long newId = this.saveExpense(expense);
+
+            FutureTask<Long> savedExpense = new FutureTask<>(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return newId;
+                }
+            });
+            savedExpense.run();
+
+            return savedExpense;
+        }
+
         private ExpenseModel getLastSavedExpense() {
             return lastSavedExpense;
         }